@@ -0,0 +1,706 @@
+package cs311.hw8;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import cs311.hw8.OSMMap.Location;
+import cs311.hw8.OSMMap.Street;
+import cs311.hw8.graph.CSRGraph;
+import cs311.hw8.graph.Graph;
+import cs311.hw8.graph.IGraph;
+import cs311.hw8.graph.IGraph.Vertex;
+import cs311.hw8.graphalgorithms.BidirectionalDijkstra;
+import cs311.hw8.graphalgorithms.ContractionHierarchy;
+import cs311.hw8.graphalgorithms.DijkstraSearch;
+import cs311.hw8.graphalgorithms.GraphAlgorithms;
+import cs311.hw8.graphalgorithms.Tour;
+
+/**
+ * Small command line harness used to time the map loading and routing code.
+ * Usage: java cs311.hw8.Benchmark <benchmark> <args...>
+ * Run each benchmark in its own JVM so that heap numbers are not polluted by earlier runs.
+ */
+public class Benchmark {
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("usage: Benchmark load <dom|stream|streets|pbf> <file>");
+			System.err.println("       Benchmark region <file> <minLat> <minLon> <maxLat> <maxLon>");
+			System.err.println("       Benchmark snapshot <file> <snapshot>");
+			System.err.println("       Benchmark route <file> <queries>");
+			System.err.println("       Benchmark search <file> <queries>");
+			System.err.println("       Benchmark closest <file> <queries>");
+			System.err.println("       Benchmark hierarchy <file> <hierarchy> <queries>");
+			System.err.println("       Benchmark table <file> <stops>");
+			System.err.println("       Benchmark parallel <file> <stops> <threads>");
+			System.err.println("       Benchmark mst <file>");
+			System.err.println("       Benchmark tour <file> <stops>");
+			System.err.println("       Benchmark cache <file> <queries> <distinct> <capacity>");
+			return;
+		}
+
+		if (args[0].equals("load")) {
+			Load(args[1], args[2]);
+		} else if (args[0].equals("region")) {
+			Region(args[1], MapRegion.Box(Double.parseDouble(args[2]), Double.parseDouble(args[3]),
+					Double.parseDouble(args[4]), Double.parseDouble(args[5])));
+		} else if (args[0].equals("snapshot")) {
+			Snapshot(args[1], args[2]);
+		} else if (args[0].equals("route")) {
+			Route(args[1], Integer.parseInt(args[2]));
+		} else if (args[0].equals("search")) {
+			Search(args[1], Integer.parseInt(args[2]));
+		} else if (args[0].equals("closest")) {
+			Closest(args[1], Integer.parseInt(args[2]));
+		} else if (args[0].equals("hierarchy")) {
+			Hierarchy(args[1], args[2], Integer.parseInt(args[3]));
+		} else if (args[0].equals("table")) {
+			Table(args[1], Integer.parseInt(args[2]));
+		} else if (args[0].equals("parallel")) {
+			Parallel(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		} else if (args[0].equals("mst")) {
+			Mst(args[1]);
+		} else if (args[0].equals("tour")) {
+			Tour(args[1], Integer.parseInt(args[2]));
+		} else if (args[0].equals("cache")) {
+			Cache(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+		} else {
+			System.err.println("Unknown benchmark " + args[0]);
+		}
+	}
+
+	/**
+	 * Time a single map load and report the peak heap used while loading.
+	 * @param mode Either 'dom' or 'stream' to select the loader, 'streets' to stream in only the street nodes, or 'pbf' for a PBF file.
+	 * @param filename The OSM XML file to load.
+	 */
+	public static void Load(String mode, String filename) {
+		OSMMap map = new OSMMap();
+		ResetPeakHeap();
+
+		long start = System.nanoTime();
+		int vertices;
+		if (mode.equals("dom")) {
+			vertices = LoadDOM(filename).getVertexCount();
+		} else if (mode.equals("pbf")) {
+			map.LoadMapPBF(filename);
+			vertices = map.getGraph().getVertices().size();
+		} else if (mode.equals("streets")) {
+			map.setLoadMode(OSMMap.LoadMode.STREET_NODES);
+			map.LoadMap(filename);
+			vertices = map.getGraph().getVertices().size();
+		} else {
+			map.LoadMap(filename);
+			vertices = map.getGraph().getVertices().size();
+		}
+		long time = System.nanoTime() - start;
+
+		System.out.printf("load %-6s %8.1f ms  peak heap %7.1f MB  vertices %d%n",
+				mode, time / 1e6, PeakHeap() / 1e6, vertices);
+	}
+
+	/**
+	 * Load a map by first building a DOM tree of the whole file, as OSMMap.LoadMap(...) did before it
+	 * streamed the file. Only kept here to compare the time and memory of the two.
+	 * @param filename The OSM XML file to load.
+	 * @return The same graph LoadMap(...) builds.
+	 */
+	private static CSRGraph<Location, Street> LoadDOM(String filename) {
+		MapLoader loader = new MapLoader(false, null);
+		try {
+			File f = new File(filename);
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			DocumentBuilder builder = factory.newDocumentBuilder();
+			Document doc = builder.parse(f);
+			doc.normalize();
+
+			// Read each node representing a vertex in our graph.
+			NodeList nodes = doc.getElementsByTagName("node");
+			int numnodes = nodes.getLength();
+			for (int i=0; i<numnodes; i++) {
+				Element e = (Element)nodes.item(i);
+				long id = Long.parseLong(e.getAttribute("id"));
+				double lat = Double.parseDouble(e.getAttribute("lat"));
+				double lon = Double.parseDouble(e.getAttribute("lon"));
+				loader.node(id, lat, lon);
+			}
+			
+			// Read each node representing an edge in our graph.
+			NodeList edges = doc.getElementsByTagName("way");
+			int numedges = edges.getLength();
+			for (int i=0; i<numedges; i++) {
+				Element e = (Element)edges.item(i);
+				
+				// We will need to find these properties for each edge.
+				boolean oneway = false;
+				boolean highway = false; // highway attribute must be present but not stored in the graph
+				String name = null; // the name attribute is also required but will be stored in the graph
+
+				// First browse the Tags to find the state of one way and the name.
+				NodeList tags = e.getElementsByTagName("tag");
+				int numtags = tags.getLength();
+				for (int k=0; k<numtags; k++) {
+					Element tag = (Element)tags.item(k);
+					if (tag.getAttribute("k").equals("oneway") && tag.getAttribute("v").equals("yes")) {
+						oneway = true;
+					}
+					if (tag.getAttribute("k").equals("name")) {
+						name = tag.getAttribute("v");
+					}
+					if (tag.getAttribute("k").equals("highway")) {
+						highway = true;
+					}
+				}
+				
+				// Highway and Name attributes are required for a street to be added to our graph.
+				if (!highway || name == null) {
+					continue;
+				}
+			
+				// Next find the list of vertices that define the edges making up this street.
+				NodeList verts = e.getElementsByTagName("nd");
+				int numverts = verts.getLength();
+				long[] refs = new long[numverts];
+				for (int k=0; k<numverts; k++) {
+					refs[k] = Long.parseLong(((Element)verts.item(k)).getAttribute("ref"));
+				}
+				loader.way(refs, numverts, name, highway, oneway);
+			}
+
+		// Only catch exception from the Document parser, allow exceptions from the Graph class to fall through.
+		} catch (SAXException e) {
+			System.err.print("SAXException");
+		} catch (IOException e) {
+			System.err.println("IOException");
+		} catch (ParserConfigurationException e) {
+			System.err.println("ParserConfigurationException");
+		}
+
+		return loader.build();
+	}
+
+	/**
+	 * Time loading only part of a map and report the peak heap used while loading.
+	 * @param filename The OSM XML file to load.
+	 * @param region The part of the map to keep.
+	 */
+	public static void Region(String filename, MapRegion region) {
+		OSMMap map = new OSMMap();
+		map.setLoadRegion(region);
+		ResetPeakHeap();
+
+		long start = System.nanoTime();
+		map.LoadMap(filename);
+		long time = System.nanoTime() - start;
+
+		System.out.printf("load region %8.1f ms  peak heap %7.1f MB  vertices %d  edges %d%n",
+				time / 1e6, PeakHeap() / 1e6, map.getGraph().getVertices().size(), map.getGraph().getEdges().size());
+	}
+
+	/**
+	 * Write a snapshot of the given map then time reloading it against a full XML load.
+	 * @param filename The OSM XML file to load.
+	 * @param snapshot Where to write the snapshot file.
+	 */
+	public static void Snapshot(String filename, String snapshot) {
+		try {
+			OSMMap map = new OSMMap();
+			long start = System.nanoTime();
+			map.LoadMap(filename);
+			long xml = System.nanoTime() - start;
+			map.SaveSnapshot(snapshot);
+
+			OSMMap warm = new OSMMap();
+			start = System.nanoTime();
+			warm.LoadSnapshot(snapshot);
+			long snap = System.nanoTime() - start;
+
+			System.out.printf("xml load %8.1f ms  snapshot load %8.1f ms  distance %.3f / %.3f%n",
+					xml / 1e6, snap / 1e6, map.TotalDistance(), warm.TotalDistance());
+		} catch (IOException e) {
+			System.err.println("IOException");
+		}
+	}
+
+	/**
+	 * Time point to point shortest path queries between random routable vertices.
+	 * Compares the indexed heap search on both the HashMap based Graph and the frozen CSRGraph,
+	 * and against a DijkstraSearch reused for every query.
+	 * @param filename The OSM XML file to load.
+	 * @param queries Number of random queries to run.
+	 */
+	public static void Route(String filename, int queries) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		CSRGraph<Location, Street> csr = (CSRGraph<Location, Street>)map.getGraph();
+		Graph<Location, Street> graph = Thaw(csr);
+		String[][] pairs = RandomPairs(csr, queries);
+		DijkstraSearch<Location, Street> search = new DijkstraSearch<Location, Street>(csr);
+
+		double[] total = new double[3];
+		long[] time = new long[3];
+		for (String[] p : pairs) {
+			long start = System.nanoTime();
+			total[0] += Length(GraphAlgorithms.ShortestPath(graph, p[0], p[1]));
+			time[0] += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			total[1] += Length(GraphAlgorithms.ShortestPath(csr, p[0], p[1]));
+			time[1] += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			total[2] += Length(search.ShortestPath(csr.getVertexIndex(p[0]), csr.getVertexIndex(p[1])));
+			time[2] += System.nanoTime() - start;
+		}
+
+		String[] label = { "heap / Graph", "heap / CSRGraph", "reused / CSRGraph" };
+		for (int i=0; i<label.length; i++) {
+			System.out.printf("%-17s %8.2f ms/query  total length %.3f%n", label[i], time[i] / 1e6 / queries, total[i]);
+		}
+	}
+
+	/**
+	 * Time point to point queries with each search algorithm ShortestRoute(...) can use:
+	 * Dijkstra's algorithm, A* with the straight line heuristic and bidirectional Dijkstra.
+	 * @param filename The OSM XML file to load.
+	 * @param queries Number of random queries to run.
+	 */
+	public static void Search(String filename, int queries) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		CSRGraph<Location, Street> csr = (CSRGraph<Location, Street>)map.getGraph();
+		String[][] pairs = RandomPairs(csr, queries);
+		BidirectionalDijkstra<Location, Street> both = new BidirectionalDijkstra<Location, Street>(csr);
+
+		double[] total = new double[3];
+		long[] time = new long[3];
+		for (String[] p : pairs) {
+			long start = System.nanoTime();
+			total[0] += Length(GraphAlgorithms.ShortestPath(csr, p[0], p[1]));
+			time[0] += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			total[1] += Length(GraphAlgorithms.ShortestPath(csr, p[0], p[1], OSMMap.STRAIGHT_LINE));
+			time[1] += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			total[2] += Length(both.ShortestPath(csr.getVertexIndex(p[0]), csr.getVertexIndex(p[1])));
+			time[2] += System.nanoTime() - start;
+		}
+
+		String[] label = { "dijkstra", "astar", "bidirectional" };
+		for (int i=0; i<3; i++) {
+			System.out.printf("%-16s %8.2f ms/query  total length %.3f%n", label[i], time[i] / 1e6 / queries, total[i]);
+		}
+	}
+
+	/**
+	 * Time building, saving and reloading a contraction hierarchy, then compare its queries against bidirectional Dijkstra.
+	 * @param filename The OSM XML file to load.
+	 * @param file File to save the hierarchy to.
+	 * @param queries Number of random queries to run.
+	 */
+	public static void Hierarchy(String filename, String file, int queries) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		CSRGraph<Location, Street> csr = (CSRGraph<Location, Street>)map.getGraph();
+
+		long start = System.nanoTime();
+		ContractionHierarchy<Location, Street> ch = new ContractionHierarchy<Location, Street>(csr);
+		System.out.printf("build      %8d ms  %d shortcuts for %d edges%n", (System.nanoTime() - start) / 1000000, ch.getShortcutCount(), csr.getEdgeCount());
+
+		try {
+			ch.write(file);
+			start = System.nanoTime();
+			ch = ContractionHierarchy.read(csr, file);
+			System.out.printf("reload     %8d ms  %d bytes%n", (System.nanoTime() - start) / 1000000, new File(file).length());
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		String[][] pairs = RandomPairs(csr, queries);
+		BidirectionalDijkstra<Location, Street> both = new BidirectionalDijkstra<Location, Street>(csr);
+		double[] total = new double[2];
+		long[] time = new long[2];
+		for (String[] p : pairs) {
+			start = System.nanoTime();
+			total[0] += Length(both.ShortestPath(csr.getVertexIndex(p[0]), csr.getVertexIndex(p[1])));
+			time[0] += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			total[1] += Length(ch.ShortestPath(csr.getVertexIndex(p[0]), csr.getVertexIndex(p[1])));
+			time[1] += System.nanoTime() - start;
+		}
+
+		String[] label = { "bidirectional", "hierarchy" };
+		for (int i=0; i<2; i++) {
+			System.out.printf("%-16s %8.3f ms/query  total length %.3f%n", label[i], time[i] / 1e6 / queries, total[i]);
+		}
+	}
+
+	/**
+	 * Time building the distance table between random stops the way ApproximateTSP(...) used to
+	 * (a search per pair), with one search per stop, and with the contraction hierarchy buckets.
+	 * @param filename The OSM XML file to load.
+	 * @param stops Number of random stops.
+	 */
+	public static void Table(String filename, int stops) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		CSRGraph<Location, Street> csr = (CSRGraph<Location, Street>)map.getGraph();
+		List<String> vertices = new ArrayList<String>();
+		for (String[] p : RandomPairs(csr, stops)) {
+			vertices.add(p[0]);
+		}
+
+		long start = System.nanoTime();
+		double pairwise = 0.0;
+		for (String from : vertices) {
+			for (String to : vertices) {
+				if (from != to) {
+					pairwise += Length(GraphAlgorithms.ShortestPath(csr, from, to));
+				}
+			}
+		}
+		long pairTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		double rows = Sum(GraphAlgorithms.DistanceTable(csr, vertices, vertices));
+		long rowTime = System.nanoTime() - start;
+
+		map.setRouteMode(OSMMap.RouteMode.CONTRACTION_HIERARCHY);
+		map.PrepareHierarchy();
+		start = System.nanoTime();
+		double buckets = Sum(map.DistanceTable(vertices));
+		long bucketTime = System.nanoTime() - start;
+
+		System.out.printf("pairwise   %10.1f ms  total length %.3f%n", pairTime / 1e6, pairwise);
+		System.out.printf("per source %10.1f ms  total length %.3f%n", rowTime / 1e6, rows);
+		System.out.printf("hierarchy  %10.1f ms  total length %.3f%n", bucketTime / 1e6, buckets);
+	}
+
+	/**
+	 * Time distance tables between random stops on pools of 1 up to 'threads' threads,
+	 * with one search per stop and with the contraction hierarchy buckets.
+	 * @param filename The OSM XML file to load.
+	 * @param stops Number of random stops.
+	 * @param threads Largest pool to try.
+	 */
+	public static void Parallel(String filename, int stops, int threads) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		CSRGraph<Location, Street> csr = (CSRGraph<Location, Street>)map.getGraph();
+		List<String> vertices = new ArrayList<String>();
+		for (String[] p : RandomPairs(csr, stops)) {
+			vertices.add(p[0]);
+		}
+		int[] ids = new int[stops];
+		for (int i=0; i<stops; i++) {
+			ids[i] = csr.getVertexIndex(vertices.get(i));
+		}
+		ContractionHierarchy<Location, Street> ch = new ContractionHierarchy<Location, Street>(csr);
+
+		// Warm up on this thread first so the first pool is not charged for compilation.
+		GraphAlgorithms.DistanceTable(csr, vertices, vertices);
+		ch.DistanceTable(ids, ids);
+
+		System.out.printf("%d cores available%n", Runtime.getRuntime().availableProcessors());
+		for (int p=1; p<=threads; p++) {
+			ForkJoinPool pool = new ForkJoinPool(p);
+			long start = System.nanoTime();
+			double rows = Sum(GraphAlgorithms.DistanceTable(csr, vertices, vertices, pool));
+			long rowTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			double buckets = Sum(ch.DistanceTable(ids, ids, pool));
+			long bucketTime = System.nanoTime() - start;
+			pool.shutdown();
+
+			System.out.printf("%2d threads  per source %8.1f ms  hierarchy %8.1f ms  total length %.3f / %.3f%n",
+				p, rowTime / 1e6, bucketTime / 1e6, rows, buckets);
+		}
+	}
+
+	/**
+	 * Time PipeDream's workload, a minimum spanning tree of the whole map, with the union-find
+	 * Kruscal on the frozen map and on a HashMap based copy.
+	 * @param filename The OSM XML file to load.
+	 */
+	public static void Mst(String filename) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		IGraph<Location, Street> g = map.getGraph();
+		Graph<Location, Street> copy = Thaw(g);
+
+		// A few rounds, the first ones are mostly spent compiling.
+		for (int round=1; round<=3; round++) {
+			long start = System.nanoTime();
+			double frozen = Length(GraphAlgorithms.Kruscal(g).getEdges());
+			long frozenTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			double thawed = Length(GraphAlgorithms.Kruscal(copy).getEdges());
+			long thawedTime = System.nanoTime() - start;
+
+
+			System.out.printf("round %d%n", round);
+			System.out.printf("union-find (CSRGraph) %10d ms  total length %.3f%n", frozenTime / 1000000, frozen);
+			System.out.printf("union-find (Graph)    %10d ms  total length %.3f%n", thawedTime / 1000000, thawed);
+		}
+	}
+
+	/**
+	 * Time the spanning tree step of ApproximateTSP(...) over the distance table of random stops,
+	 * the way it used to be done (Primm(...) on a complete Graph built from the table, counting the
+	 * time to build it), and with the array based Prim's algorithm straight off the table.
+	 * Then compare the tours each Tour.Construction builds, before and after Tour.Improve(...).
+	 * @param filename The OSM XML file to load.
+	 * @param stops Number of random stops.
+	 */
+	public static void Tour(String filename, int stops) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		CSRGraph<Location, Street> csr = (CSRGraph<Location, Street>)map.getGraph();
+		List<String> vertices = new ArrayList<String>();
+		for (String[] p : RandomPairs(csr, stops)) {
+			if (!vertices.contains(p[0])) { // the temporary graph needs distinct stops
+				vertices.add(p[0]);
+			}
+		}
+		stops = vertices.size();
+		double[][] length = map.DistanceTable(vertices);
+
+		for (int round=1; round<=3; round++) {
+			long start = System.nanoTime();
+			Graph<Location, Street> tmp = new Graph<Location, Street>();
+			for (String s : vertices) {
+				tmp.addVertex(s, csr.getVertexData(s));
+			}
+			for (int i=0; i<stops; i++) {
+				for (int k=0; k<stops; k++) {
+					if (i != k) {
+						tmp.addEdge(vertices.get(i), vertices.get(k), new Street(vertices.get(i) + "->" + vertices.get(k), length[i][k]));
+					}
+				}
+			}
+			double graph = Length(GraphAlgorithms.Primm(tmp, vertices.get(0)).getEdges());
+			long graphTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			double dense = GraphAlgorithms.PrimmDense(length, 0).getTotalWeight();
+			long denseTime = System.nanoTime() - start;
+
+			System.out.printf("round %d%n", round);
+			System.out.printf("Primm (Graph)     %10.2f ms  total length %.3f%n", graphTime / 1e6, graph);
+			System.out.printf("dense (table)     %10.2f ms  total length %.3f%n", denseTime / 1e6, dense);
+		}
+
+		// Tour lengths from each construction, before and after improving them.
+		for (Tour.Construction c : Tour.Construction.values()) {
+			long start = System.nanoTime();
+			int[] tour = Tour.Solve(length, c, 0);
+			long buildTime = System.nanoTime() - start;
+			double built = Tour.Length(length, tour);
+
+			start = System.nanoTime();
+			double improved = Tour.Improve(length, tour, 10000000000L);
+			long improveTime = System.nanoTime() - start;
+
+			System.out.printf("%-17s %10.2f ms  tour length %.3f, improved in %.2f ms to %.3f%n",
+				c, buildTime / 1e6, built, improveTime / 1e6, improved);
+		}
+	}
+
+	/**
+	 * Time ShortestRoute(...) on a workload that keeps repeating the same trips,
+	 * without and with the route cache.
+	 * @param filename The OSM XML file to load.
+	 * @param queries Number of queries to run.
+	 * @param distinct Number of different trips the queries are drawn from.
+	 * @param capacity Number of routes the cache may hold.
+	 */
+	public static void Cache(String filename, int queries, int distinct, int capacity) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		CSRGraph<Location, Street> csr = (CSRGraph<Location, Street>)map.getGraph();
+		String[][] trips = RandomPairs(csr, distinct);
+
+		// Skewed towards the first trips, as real traffic is.
+		Random r = new Random(5);
+		Location[][] workload = new Location[queries][];
+		for (int i=0; i<queries; i++) {
+			String[] p = trips[(int)(distinct * Math.pow(r.nextDouble(), 3))];
+			workload[i] = new Location[] { csr.getVertexData(p[0]), csr.getVertexData(p[1]) };
+		}
+
+		for (int cap : new int[] { 0, capacity }) {
+			map.setRouteCache(cap);
+			long start = System.nanoTime();
+			long stops = 0;
+			for (Location[] q : workload) {
+				stops += map.ShortestRoute(q[0], q[1]).size();
+			}
+			long time = System.nanoTime() - start;
+			System.out.printf("capacity %6d %8.3f ms/query  %d stops  %s%n",
+					cap, time / 1e6 / queries, stops, cap > 0 ? map.getRouteCache() : "");
+		}
+	}
+
+	/**
+	 * Time ClosestRoad(...) lookups through the k-d tree against a scan of every vertex.
+	 * @param filename The OSM XML file to load.
+	 * @param queries Number of random locations to look up.
+	 */
+	public static void Closest(String filename, int queries) {
+		OSMMap map = new OSMMap();
+		map.LoadMap(filename);
+		IGraph<Location, Street> g = map.getGraph();
+
+		// Random locations within the bounds of the map.
+		double minlat = Double.MAX_VALUE, maxlat = -Double.MAX_VALUE, minlon = Double.MAX_VALUE, maxlon = -Double.MAX_VALUE;
+		for (IGraph.Vertex<Location> v : g.getVertices()) {
+			minlat = Math.min(minlat, v.getVertexData().getLatitude());
+			maxlat = Math.max(maxlat, v.getVertexData().getLatitude());
+			minlon = Math.min(minlon, v.getVertexData().getLongitude());
+			maxlon = Math.max(maxlon, v.getVertexData().getLongitude());
+		}
+		Random r = new Random(311);
+		Location[] locs = new Location[queries];
+		for (int i=0; i<queries; i++) {
+			locs[i] = new Location(minlat + r.nextDouble() * (maxlat - minlat), minlon + r.nextDouble() * (maxlon - minlon));
+		}
+
+		long start = System.nanoTime();
+		int same = 0;
+		String[] found = new String[queries];
+		for (int i=0; i<queries; i++) {
+			found[i] = map.ClosestRoad(locs[i]);
+		}
+		long tree = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		List<IGraph.Vertex<Location>> verts = g.getVertices();
+		for (int i=0; i<queries; i++) {
+			IGraph.Vertex<Location> nearest = null;
+			double dist = Double.MAX_VALUE;
+			for (IGraph.Vertex<Location> v : verts) {
+				double d = locs[i].getDistance(v.getVertexData());
+				if (d < dist && g.getNeighbors(v.getVertexName()).size() > 0) {
+					dist = d;
+					nearest = v;
+				}
+			}
+			if (nearest.getVertexName().equals(found[i])) {
+				same++;
+			}
+		}
+		long scan = System.nanoTime() - start;
+
+		System.out.printf("kd tree %10.4f ms/query  scan %10.4f ms/query  agree %d/%d%n",
+				tree / 1e6 / queries, scan / 1e6 / queries, same, queries);
+	}
+
+	/**
+	 * Pick random pairs of vertices that both have an outgoing edge.
+	 * A fixed seed is used so every run sees the same queries.
+	 */
+	public static String[][] RandomPairs(CSRGraph<Location, Street> g, int count) {
+		int[] offsets = g.getOffsets();
+		List<String> routable = new ArrayList<String>();
+		for (int v=0; v<g.getVertexCount(); v++) {
+			if (offsets[v + 1] > offsets[v]) {
+				routable.add(g.getVertexName(v));
+			}
+		}
+
+		Random r = new Random(311);
+		String[][] pairs = new String[count][];
+		for (int i=0; i<count; i++) {
+			pairs[i] = new String[] {
+				routable.get(r.nextInt(routable.size())), routable.get(r.nextInt(routable.size()))
+			};
+		}
+		return pairs;
+	}
+
+	/**
+	 * @return The sum of every entry in a distance table.
+	 */
+	public static double Sum(double[][] table) {
+		double sum = 0.0;
+		for (double[] row : table) {
+			for (double d : row) {
+				sum += d;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * @return A mutable HashMap based copy of the given graph.
+	 */
+	public static Graph<Location, Street> Thaw(IGraph<Location, Street> g) {
+		Graph<Location, Street> copy = new Graph<Location, Street>(g.isDirectedGraph());
+		for (IGraph.Vertex<Location> v : g.getVertices()) {
+			copy.addVertex(v.getVertexName(), v.getVertexData());
+		}
+		for (IGraph.Edge<Street> e : g.getEdges()) {
+			copy.addEdge(e.getVertexName1(), e.getVertexName2(), e.getEdgeData());
+		}
+		return copy;
+	}
+
+	/**
+	 * @return The sum of the edge lengths along a path.
+	 */
+	public static double Length(List<IGraph.Edge<Street>> path) {
+		double sum = 0.0;
+		for (IGraph.Edge<Street> e : path) {
+			sum += e.getEdgeData().getWeight();
+		}
+		return sum;
+	}
+
+	/**
+	 * Collect garbage and reset the peak usage counters of every heap memory pool.
+	 */
+	public static void ResetPeakHeap() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * @return Sum of the peak usage of every heap memory pool since the last ResetPeakHeap().
+	 */
+	public static long PeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+}
@@ -0,0 +1,27 @@
+package cs311.hw8;
+
+/**
+ * Receives the elements of an OSM file as they are read from the input.
+ * Readers call these methods in file order, so for a well formed OSM file every
+ * node will have been delivered before the first way referencing it.
+ */
+public interface IOSMHandler {
+	/**
+	 * Called once for every node element in the file.
+	 * @param id The unique identifier of this node, OSM ids are 64 bit integers.
+	 * @param lat Latitude of this node.
+	 * @param lon Longitude of this node.
+	 */
+	public void node(long id, double lat, double lon);
+
+	/**
+	 * Called once for every way element in the file.
+	 * The refs array is reused by the reader, copy it if it must outlive this call.
+	 * @param refs Ordered node ids making up this way, only the first 'count' entries are part of it.
+	 * @param count Number of nodes in this way.
+	 * @param name Value of the 'name' tag, null if the way has no name.
+	 * @param highway True if the way carries a 'highway' tag.
+	 * @param oneway True if the way is tagged 'oneway=yes'.
+	 */
+	public void way(long[] refs, int count, String name, boolean highway, boolean oneway);
+}
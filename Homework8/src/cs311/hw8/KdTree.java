@@ -0,0 +1,184 @@
+package cs311.hw8;
+
+import cs311.hw8.OSMMap.Location;
+import cs311.hw8.graph.CSRGraph;
+
+/**
+ * Static 2-d tree over the routable vertices of a map (those with at least one street going out).
+ * The tree is implicit: the vertices are arranged in flat arrays so that the middle element
+ * of every range splits the rest of that range, alternating between latitude and longitude.
+ * Nearest neighbor queries are O(log n) on typical maps and do not allocate.
+ */
+public class KdTree {
+
+	/**
+	 * Graph vertex id of each entry, in tree order.
+	 */
+	private int[] ids;
+
+	/**
+	 * Latitude of each entry, in tree order.
+	 */
+	private double[] lat;
+
+	/**
+	 * Longitude of each entry, in tree order.
+	 */
+	private double[] lon;
+
+	/**
+	 * Build the tree over every vertex of g that has an outgoing edge.
+	 * @param g The map graph to index.
+	 * @param coords Coordinates of the vertices of g by dense id.
+	 */
+	public KdTree(CSRGraph<?, ?> g, CoordinateStore coords) {
+		int[] offsets = g.getOffsets();
+		int n = 0;
+		for (int v=0; v<g.getVertexCount(); v++) {
+			if (offsets[v + 1] > offsets[v]) {
+				n++;
+			}
+		}
+
+		ids = new int[n];
+		lat = new double[n];
+		lon = new double[n];
+		for (int v=0, i=0; v<g.getVertexCount(); v++) {
+			if (offsets[v + 1] > offsets[v]) {
+				ids[i] = v;
+				lat[i] = coords.getLatitude(v);
+				lon[i] = coords.getLongitude(v);
+				i++;
+			}
+		}
+
+		build(0, n, 0);
+	}
+
+	/**
+	 * @return The number of vertices in the tree.
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Find the indexed vertex nearest to the given coordinate.
+	 * @param qlat Latitude of the query.
+	 * @param qlon Longitude of the query.
+	 * @return Graph vertex id of the nearest vertex, -1 if the tree is empty.
+	 */
+	public int nearest(double qlat, double qlon) {
+		if (ids.length == 0) {
+			return -1;
+		}
+		int best = search(0, ids.length, 0, qlat, qlon, Math.cos(Math.toRadians(qlat)), -1, Double.MAX_VALUE);
+		return ids[best];
+	}
+
+	/**
+	 * Recursive nearest neighbor search of the range [lo, hi).
+	 * @param best Tree position of the best entry so far, -1 if none.
+	 * @param bestDist Distance to that entry.
+	 * @return Tree position of the best entry after searching this range.
+	 */
+	private int search(int lo, int hi, int depth, double qlat, double qlon, double cosq, int best, double bestDist) {
+		if (lo >= hi) {
+			return best;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		double d = Location.getDistance(qlat, qlon, lat[mid], lon[mid]);
+		if (d < bestDist) {
+			best = mid;
+			bestDist = d;
+		}
+
+		// Signed offset of the query from this node's splitting line.
+		double diff = (depth & 1) == 0 ? qlat - lat[mid] : qlon - lon[mid];
+
+		// Search the side containing the query first.
+		int first = best;
+		if (diff < 0) {
+			best = search(lo, mid, depth + 1, qlat, qlon, cosq, best, bestDist);
+		} else {
+			best = search(mid + 1, hi, depth + 1, qlat, qlon, cosq, best, bestDist);
+		}
+		if (best != first) {
+			bestDist = Location.getDistance(qlat, qlon, lat[best], lon[best]);
+		}
+
+		// Only cross the splitting line if something on the other side could be closer.
+		if (Bound(diff, depth, cosq) < bestDist) {
+			if (diff < 0) {
+				best = search(mid + 1, hi, depth + 1, qlat, qlon, cosq, best, bestDist);
+			} else {
+				best = search(lo, mid, depth + 1, qlat, qlon, cosq, best, bestDist);
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Lower bound in miles on the distance from the query to any point across a splitting line.
+	 * Across a parallel the latitude alone must change by at least |diff| degrees.
+	 * Across a meridian the bound is the great circle distance from the query to that meridian.
+	 */
+	private static double Bound(double diff, int depth, double cosq) {
+		double rad = Math.toRadians(Math.abs(diff));
+		if ((depth & 1) == 0) {
+			return Location.RADIUS * rad;
+		}
+		if (rad >= Math.PI / 2) {
+			return 0.0; // Never happens on a city map, but keep the bound valid.
+		}
+		return Location.RADIUS * Math.asin(cosq * Math.sin(rad));
+	}
+
+	/**
+	 * Arrange the range [lo, hi) so its middle entry splits it on the axis for this depth.
+	 */
+	private void build(int lo, int hi, int depth) {
+		if (hi - lo <= 1) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, (depth & 1) == 0 ? lat : lon);
+		build(lo, mid, depth + 1);
+		build(mid + 1, hi, depth + 1);
+	}
+
+	/**
+	 * Quickselect: partially sort [lo, hi] so that position k holds the entry it would in a full sort by key.
+	 */
+	private void select(int lo, int hi, int k, double[] key) {
+		while (lo < hi) {
+			double pivot = key[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (key[i] < pivot) { i++; }
+				while (key[j] > pivot) { j--; }
+				if (i <= j) {
+					swap(i++, j--);
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Swap two entries of the tree.
+	 */
+	private void swap(int a, int b) {
+		int id = ids[a]; ids[a] = ids[b]; ids[b] = id;
+		double t = lat[a]; lat[a] = lat[b]; lat[b] = t;
+		t = lon[a]; lon[a] = lon[b]; lon[b] = t;
+	}
+}
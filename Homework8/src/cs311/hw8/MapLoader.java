@@ -0,0 +1,256 @@
+package cs311.hw8;
+
+import java.util.Arrays;
+
+import cs311.hw8.OSMMap.Location;
+import cs311.hw8.OSMMap.Street;
+import cs311.hw8.graph.CSRGraph;
+import cs311.hw8.graph.GraphBuilder;
+import cs311.hw8.graph.IGraph.NoSuchVertexException;
+import cs311.hw8.graph.LongIntHashMap;
+
+/**
+ * Builds the map graph from the nodes and ways of a map file as a reader hands them over.
+ * Only ways with both a highway and a name tag become streets.
+ *
+ * By default every node becomes a vertex as soon as it is read. With streetNodesOnly set only
+ * the nodes some street passes through become vertices, which leaves out the buildings, points
+ * of interest, and the outlines of rivers, parks and the like that make up most of a typical
+ * extract. Nodes come before the ways that use them, so which of them are needed is not known
+ * until the ways have been read. Rather than reading the file twice the nodes are held as
+ * primitives (20 bytes each) and the streets as their runs of refs, then filtered by build().
+ *
+ * Given a region only the nodes inside it are kept, the rest are dropped as they are read, so
+ * memory grows with the size of the region rather than the file. A street crossing the edge of
+ * the region is cut down to the runs of it that lie inside. Since dropped nodes are not
+ * remembered, a street referring to a node missing from the file is then cut at it as well,
+ * where otherwise it is an error.
+ */
+class MapLoader implements IOSMHandler {
+
+	private GraphBuilder<Location, Street> graph;
+	private CoordinateStore coords;
+	private StreetStore streets;
+	private boolean streetNodesOnly;
+	private MapRegion region;
+
+	/**
+	 * Id and coordinates of each node read, in file order. Only used with streetNodesOnly.
+	 */
+	private long[] nodeIds;
+	private double[] nodeLat;
+	private double[] nodeLon;
+	private int nodes;
+
+	/**
+	 * Maps the id of each node held to its index in nodeIds. Only used with both streetNodesOnly and a region.
+	 */
+	private LongIntHashMap inside;
+
+	/**
+	 * Refs of every street read, back to back. Street w is wayRefs[wayStart[w] .. wayStart[w+1]-1],
+	 * with its name code and one way flag in wayCode[w] and wayOneway[w]. Only used with streetNodesOnly.
+	 */
+	private long[] wayRefs;
+	private int refs;
+	private int[] wayStart;
+	private int[] wayCode;
+	private boolean[] wayOneway;
+	private int ways;
+
+	/**
+	 * Constructs a loader for an empty map.
+	 * @param StreetNodesOnly If true only the nodes used by some street become vertices.
+	 * @param Region Only nodes inside this region become vertices, null to keep nodes anywhere.
+	 */
+	public MapLoader(boolean StreetNodesOnly, MapRegion Region) {
+		graph = new GraphBuilder<Location, Street>(true, true, 1 << 16, 1 << 16);
+		coords = new CoordinateStore(1 << 16);
+		streets = new StreetStore(new StreetNames(), 1 << 16);
+		streetNodesOnly = StreetNodesOnly;
+		region = Region;
+		if (streetNodesOnly && region != null) {
+			inside = new LongIntHashMap(1 << 16);
+		}
+		if (streetNodesOnly) {
+			nodeIds = new long[1 << 16];
+			nodeLat = new double[1 << 16];
+			nodeLon = new double[1 << 16];
+			wayRefs = new long[1 << 16];
+			wayStart = new int[1 << 12];
+			wayCode = new int[1 << 12];
+			wayOneway = new boolean[1 << 12];
+		}
+	}
+
+	@Override public void node(long id, double lat, double lon) {
+		if (region != null && !region.contains(lat, lon)) {
+			return;
+		}
+		if (!streetNodesOnly) {
+			graph.addVertex(id, null);
+			coords.add(lat, lon);
+			return;
+		}
+		if (nodes == nodeIds.length) {
+			nodeIds = Arrays.copyOf(nodeIds, nodes * 2);
+			nodeLat = Arrays.copyOf(nodeLat, nodes * 2);
+			nodeLon = Arrays.copyOf(nodeLon, nodes * 2);
+		}
+		nodeIds[nodes] = id;
+		nodeLat[nodes] = lat;
+		nodeLon[nodes] = lon;
+		if (inside != null) {
+			inside.put(id, nodes);
+		}
+		nodes++;
+	}
+
+	@Override public void way(long[] refs, int count, String name, boolean highway, boolean oneway) {
+		// Highway and Name attributes are required for a street to be added to our graph.
+		if (!highway || name == null || count == 0) {
+			return;
+		}
+		if (region == null) {
+			// Every segment refers to the one copy of the name in the dictionary.
+			Street(refs, 0, count, streets.getNames().getCode(name), oneway);
+			return;
+		}
+
+		// Keep each run of the street that stays inside the region, at least one segment long.
+		// The name is only added to the dictionary once some part of the street is kept.
+		int code = -1;
+		int from = 0;
+		for (int k=0; k<=count; k++) {
+			if (k < count && IsKept(refs[k])) {
+				continue;
+			}
+			if (k - from > 1) {
+				if (code < 0) {
+					code = streets.getNames().getCode(name);
+				}
+				Street(refs, from, k - from, code, oneway);
+			}
+			from = k + 1;
+		}
+	}
+
+	/**
+	 * @param id OSM id of a node.
+	 * @return True if the node was read and kept (it lies inside the region).
+	 */
+	private boolean IsKept(long id) {
+		return streetNodesOnly ? inside.containsKey(id) : graph.getVertexIndex(id) >= 0;
+	}
+
+	/**
+	 * Add a street to the map, or hold it until build() if the nodes it uses are not known yet.
+	 * @param refs Holds the ordered OSM ids of the vertices along the street.
+	 * @param from Index in refs of the first vertex along the street.
+	 * @param count Number of vertices along the street.
+	 * @param code Name code of the street.
+	 * @param oneway If false the reverse of each edge is added as well.
+	 */
+	private void Street(long[] refs, int from, int count, int code, boolean oneway) {
+		if (!streetNodesOnly) {
+			AddStreet(refs, from, count, code, oneway);
+			return;
+		}
+		if (ways == wayStart.length) {
+			wayStart = Arrays.copyOf(wayStart, ways * 2);
+			wayCode = Arrays.copyOf(wayCode, ways * 2);
+			wayOneway = Arrays.copyOf(wayOneway, ways * 2);
+		}
+		if (this.refs + count > wayRefs.length) {
+			wayRefs = Arrays.copyOf(wayRefs, Math.max(wayRefs.length * 2, this.refs + count));
+		}
+		System.arraycopy(refs, from, wayRefs, this.refs, count);
+		wayStart[ways] = this.refs;
+		wayCode[ways] = code;
+		wayOneway[ways] = oneway;
+		this.refs += count;
+		ways++;
+	}
+
+	/**
+	 * Build everything handed over so far (even if reading the file failed part way) into the map graph.
+	 * @return The directed map graph, with a CoordinateStore and a StreetStore holding its data.
+	 */
+	public CSRGraph<Location, Street> build() {
+		if (streetNodesOnly) {
+			AddStreetNodes();
+		}
+		coords.trim();
+		return graph.build(coords, streets);
+	}
+
+	/**
+	 * @return The coordinates of the vertices of the graph given by build().
+	 */
+	public CoordinateStore getCoordinates() {
+		return coords;
+	}
+
+	/**
+	 * Add the held nodes used by some street as vertices, in file order, then add the held streets.
+	 */
+	private void AddStreetNodes() {
+		// Mark every node some street refers to.
+		LongIntHashMap used = new LongIntHashMap(Math.max(refs / 2, 16));
+		for (int k=0; k<refs; k++) {
+			used.putIfAbsent(wayRefs[k], 0);
+		}
+
+		for (int i=0; i<nodes; i++) {
+			if (used.containsKey(nodeIds[i])) {
+				graph.addVertex(nodeIds[i], null);
+				coords.add(nodeLat[i], nodeLon[i]);
+			}
+		}
+		nodeIds = null;
+		nodeLat = null;
+		nodeLon = null;
+		used = null;
+		inside = null;
+
+		for (int w=0; w<ways; w++) {
+			int end = w + 1 < ways ? wayStart[w + 1] : refs;
+			AddStreet(wayRefs, wayStart[w], end - wayStart[w], wayCode[w], wayOneway[w]);
+		}
+		wayRefs = null;
+		nodes = 0;
+		ways = 0;
+		refs = 0;
+	}
+
+	/**
+	 * Add the edges making up a single street to the map being built.
+	 * Each consecutive pair of vertices along the street becomes one edge.
+	 * A segment repeated by another street is only kept the first time.
+	 * @param refs Holds the ordered OSM ids of the vertices along the street.
+	 * @param from Index in refs of the first vertex along the street.
+	 * @param count Number of vertices along the street.
+	 * @param code Name code of the street.
+	 * @param oneway If false the reverse of each edge is added as well.
+	 */
+	private void AddStreet(long[] refs, int from, int count, int code, boolean oneway) {
+		int v2 = graph.getVertexIndex(refs[from]);
+		for (int k=from+1; k<from+count; k++) {
+			int v1 = v2;
+			v2 = graph.getVertexIndex(refs[k]);
+			if (v1 < 0 || v2 < 0) {
+				// The length of the street can not be found without both of its ends.
+				throw new NoSuchVertexException();
+			}
+			double length = coords.getDistance(v1, v2);
+			graph.addEdge(v1, v2, null);
+			streets.add(code, length);
+
+			// If this street is NOT a one way street, add the reverse edge as well.
+			if (!oneway) {
+				graph.addEdge(v2, v1, null);
+				streets.add(code, length);
+			}
+		}
+	}
+}
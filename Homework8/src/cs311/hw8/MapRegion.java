@@ -0,0 +1,92 @@
+package cs311.hw8;
+
+/**
+ * An area of a map, either a latitude/longitude box or a polygon, used to load only part of a map file.
+ * Polygons are treated as flat, their edges as straight lines in latitude and longitude,
+ * which is close enough over the neighborhood sized areas they are meant for.
+ */
+public class MapRegion {
+
+	/**
+	 * Bounding box of the region, every point inside lies within it.
+	 */
+	private double minLat, minLon, maxLat, maxLon;
+
+	/**
+	 * Corners of the polygon in order, null if the region is just its bounding box.
+	 */
+	private double[] lats, lons;
+
+	private MapRegion(double MinLat, double MinLon, double MaxLat, double MaxLon) {
+		minLat = MinLat;
+		minLon = MinLon;
+		maxLat = MaxLat;
+		maxLon = MaxLon;
+	}
+
+	/**
+	 * Constructs the region of all points within the given latitude and longitude bounds (inclusive).
+	 * @param MinLat Southern edge of the box.
+	 * @param MinLon Western edge of the box.
+	 * @param MaxLat Northern edge of the box.
+	 * @param MaxLon Eastern edge of the box.
+	 * @return The new region.
+	 */
+	public static MapRegion Box(double MinLat, double MinLon, double MaxLat, double MaxLon) {
+		if (MinLat > MaxLat || MinLon > MaxLon) {
+			throw new IllegalArgumentException("Empty bounding box.");
+		}
+		return new MapRegion(MinLat, MinLon, MaxLat, MaxLon);
+	}
+
+	/**
+	 * Constructs the region of all points inside the given polygon.
+	 * @param Lats Latitude of each corner of the polygon, in order around it.
+	 * @param Lons Longitude of each corner, as long as Lats. The last corner joins back to the first.
+	 * @return The new region.
+	 */
+	public static MapRegion Polygon(double[] Lats, double[] Lons) {
+		if (Lats.length != Lons.length || Lats.length < 3) {
+			throw new IllegalArgumentException("A polygon needs at least 3 corners.");
+		}
+		double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE;
+		double maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+		for (int i=0; i<Lats.length; i++) {
+			minLat = Math.min(minLat, Lats[i]);
+			maxLat = Math.max(maxLat, Lats[i]);
+			minLon = Math.min(minLon, Lons[i]);
+			maxLon = Math.max(maxLon, Lons[i]);
+		}
+		MapRegion region = new MapRegion(minLat, minLon, maxLat, maxLon);
+		region.lats = Lats.clone();
+		region.lons = Lons.clone();
+		return region;
+	}
+
+	/**
+	 * @param lat Latitude of a point.
+	 * @param lon Longitude of a point.
+	 * @return True if the point lies inside the region.
+	 */
+	public boolean contains(double lat, double lon) {
+		// Most points of a large file are far away, the box rules them out cheaply.
+		if (lat < minLat || lat > maxLat || lon < minLon || lon > maxLon) {
+			return false;
+		}
+		if (lats == null) {
+			return true;
+		}
+
+		// Even-odd rule, count the polygon edges crossed by a ray from the point towards increasing longitude.
+		boolean inside = false;
+		for (int i=0, j=lats.length-1; i<lats.length; j=i++) {
+			if ((lats[i] > lat) != (lats[j] > lat)) {
+				double cross = lons[i] + (lat - lats[i]) * (lons[j] - lons[i]) / (lats[j] - lats[i]);
+				if (lon < cross) {
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+}
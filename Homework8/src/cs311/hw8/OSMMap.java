@@ -4,38 +4,115 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import cs311.hw8.graph.Graph;
+import cs311.hw8.graph.CSRGraph;
 import cs311.hw8.graph.IGraph;
 import cs311.hw8.graph.IGraph.Edge;
 import cs311.hw8.graph.IGraph.NoSuchEdgeException;
 import cs311.hw8.graph.IGraph.NoSuchVertexException;
-import cs311.hw8.graph.IGraph.Vertex;
+import cs311.hw8.graphalgorithms.BidirectionalDijkstra;
+import cs311.hw8.graphalgorithms.ContractionHierarchy;
+import cs311.hw8.graphalgorithms.DijkstraSearch;
 import cs311.hw8.graphalgorithms.GraphAlgorithms;
+import cs311.hw8.graphalgorithms.IHeuristic;
 import cs311.hw8.graphalgorithms.IWeight;
+import cs311.hw8.graphalgorithms.RouteCache;
+import cs311.hw8.graphalgorithms.Tour;
 
 public class OSMMap {
 	
 	/**
 	 * Graph which will represent the map data.
 	 * This will be generated be the LoadMap(...) method of this class.
+	 * Always a frozen CSRGraph, an empty one until a map is loaded.
+	 */
+	private CSRGraph<Location, Street> g;
+	
+	/**
+	 * Spatial index over the vertices with streets going out, used by ClosestRoad(...).
+	 * Rebuilt whenever a map is loaded, null while the map is empty.
+	 */
+	private KdTree roads;
+	
+	/**
+	 * Contraction hierarchy used by the CONTRACTION_HIERARCHY route mode.
+	 * Built on first use (or by PrepareHierarchy / LoadHierarchy), discarded whenever a map is loaded.
+	 */
+	private ContractionHierarchy<Location, Street> hierarchy;
+	
+	/**
+	 * Search reused by every DIJKSTRA mode query, so they allocate nothing per query.
+	 * Created on first use, discarded whenever a map is loaded.
+	 */
+	private DijkstraSearch<Location, Street> search;
+	
+	/**
+	 * Search reused by every BIDIRECTIONAL mode query, in the same way as search.
+	 * Created on first use, discarded whenever a map is loaded.
+	 */
+	private BidirectionalDijkstra<Location, Street> bidirectional;
+	
+	/**
+	 * Search algorithm used by ShortestRoute(...).
+	 */
+	private RouteMode mode = RouteMode.ASTAR;
+	
+	/**
+	 * Which nodes LoadMap(...) and LoadMapPBF(...) turn into vertices.
+	 */
+	private LoadMode loadMode = LoadMode.ALL_NODES;
+	
+	/**
+	 * Part of the map file LoadMap(...) and LoadMapPBF(...) keep, null for all of it.
+	 */
+	private MapRegion loadRegion;
+	
+	/**
+	 * Routes already found by ShortestRoute(...), keyed by the vertices the locations snapped to.
+	 * Null unless enabled with setRouteCache(...), cleared whenever a map is loaded.
+	 */
+	private RouteCache<List<String>> routes;
+	
+	/**
+	 * Algorithms ShortestRoute(...) may use to search the map, all of them find the same shortest route.
 	 */
-	private IGraph<Location, Street> g;
+	public enum RouteMode {
+		/** Plain Dijkstra search outward from the start. */
+		DIJKSTRA,
+		/** A* search guided by the straight line distance to the destination. */
+		ASTAR,
+		/** Dijkstra searches from both ends at once, meeting in the middle. */
+		BIDIRECTIONAL,
+		/** Upward searches over a precomputed contraction hierarchy, by far the fastest per query. */
+		CONTRACTION_HIERARCHY
+	}
+	
+	/**
+	 * Which nodes of a map file become vertices of the map when it is loaded.
+	 */
+	public enum LoadMode {
+		/** Every node, including the buildings and other features no street passes through. */
+		ALL_NODES,
+		/** Only the nodes some street passes through, far fewer on a typical extract. */
+		STREET_NODES
+	}
+	
+	/**
+	 * A* heuristic for the map, the great circle distance between two locations.
+	 * Every street is at least as long as the straight line between its ends, so this never overestimates.
+	 */
+	public static final IHeuristic<Location> STRAIGHT_LINE = new IHeuristic<Location>() {
+		@Override public double getEstimate(Location vertex, Location target) {
+			return vertex.getDistance(target);
+		}
+	};
 	
 	public static void main2(String[] args) {
 		// Load the provided map of Ames and output the approximate total distance.
@@ -111,9 +188,74 @@ public class OSMMap {
 	}
 	
 	public OSMMap() {
-		// Initialize to an empty graph.
-		g = new Graph<Location, Street>();
-		g.setDirectedGraph();
+		// Initialize to an empty graph, in the same frozen form a loaded map takes.
+		g = new MapLoader(false, null).build();
+	}
+	
+	/**
+	 * Select the algorithm used by ShortestRoute(...), A* is used by default.
+	 * @param Mode The search algorithm to use.
+	 */
+	public void setRouteMode(RouteMode Mode) {
+		mode = Mode;
+	}
+	
+	/**
+	 * @return The algorithm currently used by ShortestRoute(...).
+	 */
+	public RouteMode getRouteMode() {
+		return mode;
+	}
+	
+	/**
+	 * Choose which nodes become vertices when a map is loaded, from the next load on.
+	 * Leaving out the nodes no street uses gives the same streets and routes in less memory,
+	 * but those nodes can then not be looked up in the graph.
+	 * @param Mode Which nodes to keep.
+	 */
+	public void setLoadMode(LoadMode Mode) {
+		loadMode = Mode;
+	}
+	
+	/**
+	 * @return Which nodes LoadMap(...) currently turns into vertices.
+	 */
+	public LoadMode getLoadMode() {
+		return loadMode;
+	}
+	
+	/**
+	 * Load only part of the map from the next load on. Nodes outside the region are dropped while
+	 * the file is streamed in, and streets crossing its edge are cut short at the last node inside,
+	 * so memory depends on the size of the region rather than the size of the file.
+	 * @param Region The part of the map to keep, see MapRegion.Box(...) and MapRegion.Polygon(...),
+	 * or null to load the whole map.
+	 */
+	public void setLoadRegion(MapRegion Region) {
+		loadRegion = Region;
+	}
+	
+	/**
+	 * @return The part of the map LoadMap(...) currently keeps, null if it keeps all of it.
+	 */
+	public MapRegion getLoadRegion() {
+		return loadRegion;
+	}
+	
+	/**
+	 * Keep the most recently used routes found by ShortestRoute(...), so repeated queries between
+	 * the same vertices skip the search. Any routes already cached are dropped.
+	 * @param capacity Largest number of routes to keep, 0 to turn the cache off.
+	 */
+	public void setRouteCache(int capacity) {
+		routes = capacity > 0 ? new RouteCache<List<String>>(capacity) : null;
+	}
+	
+	/**
+	 * @return The route cache with its hit and miss counters, null if it is turned off.
+	 */
+	public RouteCache<List<String>> getRouteCache() {
+		return routes;
 	}
 	
 	/**
@@ -129,48 +271,75 @@ public class OSMMap {
      * TSP Bonus
      * ---------------------------------------------------------------------------- */
 	
+	/**
+	 * Thrown by ApproximateTSP(...) when some of its vertices are cut off from the rest,
+	 * so that no tour through all of them exists.
+	 */
+	public final static class UnreachableStopsException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> stops;
+
+		public UnreachableStopsException(List<String> Stops) {
+			super("No route to or from " + Stops);
+			stops = Stops;
+		}
+
+		/**
+		 * @return The vertices that cannot be driven to from the first vertex, or cannot get back to it.
+		 */
+		public List<String> getStops() {
+			return stops;
+		}
+	}
+	
 	/**
 	 * Approximates the traveling salesperson problem for the given input.
 	 * Generates an approximately optimal path that visits each input vertex at
-	 * least once.
+	 * least once. The minimum spanning tree tour is improved until it stops getting shorter,
+	 * with the work capped rather than the time, so the same map and vertices always give the same tour.
 	 * @param vertices A list of vertex names currently represented in this graph.
 	 * @return An approximate optimal tour of those vertices.
+	 * @throws UnreachableStopsException If some of the vertices cannot be reached from the others.
 	 */
 	public List<String> ApproximateTSP(List<String> vertices) {
-		// Create a temporary graph with only the points of interest.
-		IGraph<Location, Street> tmp = new Graph<Location, Street>();
-		tmp.setDirectedGraph();
-		for (String s : vertices) {
-			tmp.addVertex(s, g.getVertexData(s));
-		}
-
-		// Add edges representing the shortest path between every pair of vertices.
-		for (int i=0; i<vertices.size(); i++) {
-			for (int k=0; k<vertices.size(); k++) {
-				// No need to add an edge between vertices that are the same.
-				if (i == k) { continue; }
-
-				// Find the sum over all edges in this shortest path.
-				double length = 0.0;
-				for (IGraph.Edge<Street> e : GraphAlgorithms.ShortestPath(g, vertices.get(i), vertices.get(k))) {
-					length += e.getEdgeData().getWeight();
-				}
-				
-				// Add an edge representing how long it takes to get between these two vertices.
-				tmp.addEdge(vertices.get(i), vertices.get(k), 
-					new Street(vertices.get(i) + "->" + vertices.get(k), length) // Give it a nice name for debug.
-				);
+		return ApproximateTSP(vertices, Tour.Construction.MST_PREORDER, -1);
+	}
+	
+	/**
+	 * Approximates the traveling salesperson problem for the given input.
+	 * An initial tour is built with the given construction, then improved with 2-opt and Or-opt
+	 * moves (see Tour.Improve(...)) until it stops getting shorter or the budget runs out.
+	 * @param vertices A list of vertex names currently represented in this graph.
+	 * @param start How the initial tour is built.
+	 * @param budget Milliseconds the tour may be improved for, 0 to return the initial tour as is,
+	 * or negative for no time limit (the work is capped instead, see Tour.Improve(d, tour)).
+	 * @return An approximate optimal tour of those vertices, starting and ending at the first one.
+	 * @throws UnreachableStopsException If some of the vertices cannot be reached from the others.
+	 */
+	public List<String> ApproximateTSP(List<String> vertices, Tour.Construction start, long budget) {
+		// The shortest path between every pair of vertices.
+		double[][] length = DistanceTable(vertices);
+		
+		// Any tour through a stop that is cut off is infinitely long, there is nothing to approximate.
+		int[] unreachable = Tour.Unreachable(length);
+		if (unreachable.length > 0) {
+			List<String> stops = new ArrayList<String>();
+			for (int v : unreachable) {
+				stops.add(vertices.get(v));
 			}
+			throw new UnreachableStopsException(stops);
 		}
 		
-		// The minimum spanning tree will give us the shortest path round these vertices.
-		// Both Kruscal and Primm will work here take your pick.
-//		IGraph<Location, Street> mst = GraphAlgorithms.Kruscal(tmp);
-		IGraph<Location, Street> mst = GraphAlgorithms.Primm(tmp, vertices.get(0));
+		// The table is a complete graph, so the tour is built and improved straight off it.
+		// With MST_PREORDER the minimum spanning tree gives us the shortest path round these vertices,
+		// walked in preorder (nearer children first).
+		int[] order = budget < 0 ? Tour.Solve(length, start) : Tour.Solve(length, start, budget * 1000000);
 		
-		// Get the vertex order by performing a preorder traversal of the mst.
 		List<String> tour = new ArrayList<String>();
-		PreorderTraverse(vertices.get(0), mst, tour);
+		for (int i : order) {
+			tour.add(vertices.get(i));
+		}
 		tour.add(vertices.get(0)); // Close the loop.
 
 		/* ----------------------------------------------------------------------------
@@ -199,38 +368,6 @@ public class OSMMap {
 		return tour;
 	}
 	
-	/**
-	 * Perform a recursive preorder traversal for the given MST.
-	 * @param current Current node of traversal, starting node on initial call.
-	 * @param mst Minimum spanning tree we will be traversing.
-	 * @param tour Generated tour by traversal, initially an empty list.
-	 */
-	private void PreorderTraverse(String current, IGraph<Location, Street> mst, List<String> tour) {
-		tour.add(current);
-		
-		// Get a priority queue representing the neighbors (closer vertices towards the front).
-		List<Vertex<Location>> neighbors = mst.getNeighbors(current);
-    	PriorityQueue<Vertex<Location>> PQ = new PriorityQueue<Vertex<Location>>(neighbors.size(), 
-			new Comparator<Vertex<Location>>() {
-				public int compare(Vertex<Location> first, Vertex<Location> second) {
-					Double w0 = mst.getEdge(current, first.getVertexName()).getEdgeData().getWeight();
-					Double w1 = mst.getEdge(current, second.getVertexName()).getEdgeData().getWeight();
-					return w0.compareTo(w1);
-				}
-			}
-		);
-		
-    	// Add all of the neighbors to our priority queue.
-		for (Vertex<Location> n : neighbors) { PQ.add(n); }
-		
-		// Recurse to our neighbors (nearer first).
-		for (Vertex<Location> v = PQ.poll(); v != null; v = PQ.poll()) {
-			if (!tour.contains(v.getVertexName())) { // If this vertex has not been added yet...
-				PreorderTraverse(v.getVertexName(), mst, tour); // Add it (and its children) to our tour.
-			}
-		}
-	}
-
     /* ----------------------------------------------------------------------------
      * Required Public Methods.
      * ---------------------------------------------------------------------------- */
@@ -247,6 +384,10 @@ public class OSMMap {
 	 * @throws NoSuchVertexException 
 	 */
 	public List<String> StreetRoute(List<String> vertices) {
+		if (g.getEdgeStore() instanceof StreetStore) {
+			return StreetRoute(g, vertices);
+		}
+
 		List<String> path = new ArrayList<String>();
 
 		// Iterate through pairs of vertices (corresponding to edges).
@@ -268,6 +409,39 @@ public class OSMMap {
 
 		return path;
 	}
+
+	/**
+	 * StreetRoute(...) for a loaded map, comparing the name codes of the edges instead of their names
+	 * so no Street is made and no String compared along the route.
+	 */
+	private static List<String> StreetRoute(CSRGraph<Location, Street> csr, List<String> vertices) {
+		StreetStore streets = (StreetStore)csr.getEdgeStore();
+		List<String> path = new ArrayList<String>();
+		int last = -1;
+
+		// Iterate through pairs of vertices (corresponding to edges).
+		for (int i=1; i<vertices.size(); i++) {
+			int e;
+			try {
+				e = csr.findEdge(csr.getVertexIndex(vertices.get(i-1)), csr.getVertexIndex(vertices.get(i)));
+			} catch (NoSuchVertexException ex) {
+				e = -1;
+			}
+			if (e < 0) {
+				System.err.println("Error - Edge in path does not exist, returning empty list!");
+				return new ArrayList<String>();
+			}
+
+			// Do not add consecutive entries of the same name.
+			int code = streets.getCode(e);
+			if (code != last) {
+				path.add(streets.getNames().getName(code));
+				last = code;
+			}
+		}
+
+		return path;
+	}
 	
 	/**
 	 * Finds the shortest route from the 'fromLocation' ending at the 'toLocation'.
@@ -282,8 +456,46 @@ public class OSMMap {
 		String from = ClosestRoad(fromLocation);
 		// Which vertex should we go to?
 		String to = ClosestRoad(toLocation);
+		// Have we been asked this already?
+		if (routes != null) {
+			List<String> cached = routes.get(from, to);
+			if (cached != null) {
+				return new ArrayList<String>(cached);
+			}
+		}
 		// Our shortest path utility will do all the rest of the work.
-		List<IGraph.Edge<Street>> edges = GraphAlgorithms.<Location, Street>ShortestPath(g, from, to);
+		List<IGraph.Edge<Street>> edges;
+		switch (mode) {
+		case ASTAR:
+			edges = GraphAlgorithms.<Location, Street>ShortestPath(g, from, to, STRAIGHT_LINE);
+			break;
+		case BIDIRECTIONAL:
+			BidirectionalDijkstra<Location, Street> both = bidirectional;
+			if (both == null) {
+				bidirectional = both = new BidirectionalDijkstra<Location, Street>(g);
+			}
+			synchronized (both) {
+				CSRGraph<Location, Street> map = both.getGraph();
+				edges = both.ShortestPath(map.getVertexIndex(from), map.getVertexIndex(to));
+			}
+			break;
+		case CONTRACTION_HIERARCHY:
+			if (hierarchy == null) {
+				PrepareHierarchy();
+			}
+			edges = hierarchy.ShortestPath(g.getVertexIndex(from), g.getVertexIndex(to));
+			break;
+		default:
+			DijkstraSearch<Location, Street> dijkstra = search;
+			if (dijkstra == null) {
+				search = dijkstra = new DijkstraSearch<Location, Street>(g);
+			}
+			synchronized (dijkstra) {
+				CSRGraph<Location, Street> map = dijkstra.getGraph();
+				edges = dijkstra.ShortestPath(map.getVertexIndex(from), map.getVertexIndex(to));
+			}
+			break;
+		}
 
 		// Now convert that return list of edges to the list of stops.
 		List<String> out = new ArrayList<String>();
@@ -294,13 +506,35 @@ public class OSMMap {
 			out.add(e.getVertexName2());
 		}
 		
-		for (String v : out) {
-			Vertex<Location> l = g.getVertex(v);
+		if (routes != null) {
+			routes.put(from, to, new ArrayList<String>(out));
 		}
-		
 		return out;
 	}
 	
+	/**
+	 * Computes the length of the shortest route between every pair of the given vertices.
+	 * The contraction hierarchy is used when that route mode is selected, otherwise one
+	 * Dijkstra search is run from each vertex. The searches are spread over every core.
+	 * @param vertices A list of vertex names currently represented in this graph.
+	 * @return table[i][k] is the length in miles of the shortest route from vertices[i] to vertices[k],
+	 * Double.MAX_VALUE if there is none.
+	 */
+	public double[][] DistanceTable(List<String> vertices) {
+		if (mode != RouteMode.CONTRACTION_HIERARCHY) {
+			return GraphAlgorithms.DistanceTable(g, vertices, vertices, ForkJoinPool.commonPool());
+		}
+
+		if (hierarchy == null) {
+			PrepareHierarchy();
+		}
+		int[] ids = new int[vertices.size()];
+		for (int i=0; i<ids.length; i++) {
+			ids[i] = g.getVertexIndex(vertices.get(i));
+		}
+		return hierarchy.DistanceTable(ids, ids, ForkJoinPool.commonPool());
+	}
+	
 	/**
 	 * Find the nearest location on the map to the input location coordinate.
 	 * Only locations with streets going out will be included.
@@ -308,18 +542,35 @@ public class OSMMap {
 	 * @return The vertex name for the nearest location.
 	 */
 	public String ClosestRoad(Location loc) {
+		if (roads != null) {
+			return g.getVertexName(roads.nearest(loc.getLatitude(), loc.getLongitude()));
+		}
+
+		// No index (nothing has been loaded), fall back to checking every vertex.
 		List<IGraph.Vertex<Location>> verts = g.getVertices();
 		IGraph.Vertex<Location> nearest = null;
 		double dist = Double.MAX_VALUE;
 
+		// Set by the visitor below when a vertex has at least one street going out.
+		final boolean[] out = new boolean[1];
+		IGraph.EdgeVisitor<Street> any = new IGraph.EdgeVisitor<Street>() {
+			public void visit(String target, Street street) {
+				out[0] = true;
+			}
+		};
+
 		for (IGraph.Vertex<Location> v : verts) {
 			double d = loc.getDistance(v.getVertexData());
 			
 			// To be the nearest vertex make the distance must be less than the current shortest
 			// distance, further the out degree of our vertex must be greater than 0.
-			if (d < dist && g.getNeighbors(v.getVertexName()).size() > 0) {
-				dist = d;
-				nearest = v;
+			if (d < dist) {
+				out[0] = false;
+				g.forEachOutEdge(v.getVertexName(), any);
+				if (out[0]) {
+					dist = d;
+					nearest = v;
+				}
 			}
 		}
 
@@ -329,90 +580,133 @@ public class OSMMap {
 	/**
 	 * Loads all the data for the given file provided.
 	 * If this map already has data loaded, that data will be overridden.
+	 * The file is streamed, so only the graph itself (and not the XML tree) is held in memory.
 	 * @param filename The file we wish to load data from.
 	 */
 	public void LoadMap(String filename) {
-		// Wipe all current graph data and create a new directed graph.
-		g = new Graph<Location, Street>();
-		g.setDirectedGraph();
+		// Wipe all current graph data and collect the new directed graph in bulk.
+		MapLoader loader = new MapLoader(loadMode == LoadMode.STREET_NODES, loadRegion);
+		roads = null;
+		hierarchy = null;
+		search = null;
+		bidirectional = null;
+		ClearRouteCache();
 
 		try {
-			File f = new File(filename);
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document doc = builder.parse(f);
-			doc.normalize();
-
-			// Read each node representing a vertex in our graph.
-			NodeList nodes = doc.getElementsByTagName("node");
-			int numnodes = nodes.getLength();
-			for (int i=0; i<numnodes; i++) {
-				Element e = (Element)nodes.item(i);
-				String id = e.getAttribute("id");
-				String lat = e.getAttribute("lat");
-				String lon = e.getAttribute("lon");
-				g.addVertex(id, new Location(lat, lon));
-			}
-			
-			// Read each node representing an edge in our graph.
-			NodeList edges = doc.getElementsByTagName("way");
-			int numedges = edges.getLength();
-			for (int i=0; i<numedges; i++) {
-				Element e = (Element)edges.item(i);
-				
-				// We will need to find these properties for each edge.
-				boolean oneway = false;
-				boolean highway = false; // highway attribute must be present but not stored in the graph
-				String name = null; // the name attribute is also required but will be stored in the graph
-
-				// First browse the Tags to find the state of one way and the name.
-				NodeList tags = e.getElementsByTagName("tag");
-				int numtags = tags.getLength();
-				for (int k=0; k<numtags; k++) {
-					Element tag = (Element)tags.item(k);
-					if (tag.getAttribute("k").equals("oneway") && tag.getAttribute("v").equals("yes")) {
-						oneway = true;
-					}
-					if (tag.getAttribute("k").equals("name")) {
-						name = tag.getAttribute("v");
-					}
-					if (tag.getAttribute("k").equals("highway")) {
-						highway = true;
-					}
-				}
-				
-				// Highway and Name attributes are required for a street to be added to our graph.
-				if (!highway || name == null) {
-					continue;
-				}
-			
-				// Next find the list of vertices that define the edges making up this street.
-				NodeList verts = e.getElementsByTagName("nd");
-				int numverts = verts.getLength();
-				for (int k=1; k<numverts; k++) {
-					Element prev = (Element)verts.item(k-1);
-					Element cur = (Element)verts.item(k);
-
-					String v1 = prev.getAttribute("ref");
-					String v2 = cur.getAttribute("ref");
-					Street s = new Street(name, GetDistance(v1, v2));
-					g.addEdge(v1, v2, s);
-
-					// If this street is NOT a one way street, add the reverse edge as well.
-					if (!oneway) {
-						g.addEdge(v2, v1, s);
-					}
-				}
-			}
+			OSMXmlReader.read(filename, loader);
+
+		// Only catch exception from the XML parser, allow exceptions from the Graph class to fall through.
+		} catch (XMLStreamException e) {
+			System.err.println("XMLStreamException");
+		} catch (IOException e) {
+			System.err.println("IOException");
+		}
 
-		// Only catch exception from the Document parser, allow exceptions from the Graph class to fall through.
-		} catch (SAXException e) {
-			System.err.print("SAXException");
+		// The map is read only from here on, build it straight into the compact array form.
+		Freeze(loader);
+	}
+
+	/**
+	 * Loads all the data for the given OSM PBF file, the compressed binary form of an OSM file.
+	 * The blocks of the file are decoded on every core at once, otherwise this produces the same
+	 * graph as LoadMap(...) given the same map as XML (the load mode and region apply as well).
+	 * If this map already has data loaded, that data will be overridden.
+	 * @param filename The PBF file we wish to load data from.
+	 */
+	public void LoadMapPBF(String filename) {
+		// Wipe all current graph data and collect the new directed graph in bulk.
+		MapLoader loader = new MapLoader(loadMode == LoadMode.STREET_NODES, loadRegion);
+		roads = null;
+		hierarchy = null;
+		search = null;
+		bidirectional = null;
+		ClearRouteCache();
+
+		try {
+			OSMPbfReader.read(filename, loader);
+
+		// Only catch exception from the PBF reader, allow exceptions from the Graph class to fall through.
 		} catch (IOException e) {
 			System.err.println("IOException");
-		} catch (ParserConfigurationException e) {
-			System.err.println("ParserConfigurationException");
 		}
+
+		// The map is read only from here on, build it straight into the compact array form.
+		Freeze(loader);
+	}
+
+	/**
+	 * Build the freshly loaded map into the CSRGraph 'g' and index its roads.
+	 * @param loader Holds everything read from the map file (even if reading it failed part way).
+	 */
+	private void Freeze(MapLoader loader) {
+		CSRGraph<Location, Street> frozen = loader.build();
+		g = frozen;
+		roads = new KdTree(frozen, loader.getCoordinates());
+	}
+	
+	/**
+	 * Saves the current state of this map to a compact binary snapshot.
+	 * The snapshot can be reloaded with LoadSnapshot(...) without re-parsing the original map file.
+	 * @param filename The file to write the snapshot to.
+	 * @throws IOException If the snapshot could not be written.
+	 */
+	public void SaveSnapshot(String filename) throws IOException {
+		OSMSnapshot.write(g, filename);
+	}
+
+	/**
+	 * Loads a snapshot previously written by SaveSnapshot(...).
+	 * If this map already has data loaded, that data will be overridden.
+	 * @param filename The snapshot file to load.
+	 * @throws IOException If the snapshot could not be read.
+	 */
+	public void LoadSnapshot(String filename) throws IOException {
+		CSRGraph<Location, Street> csr = OSMSnapshot.read(filename);
+		g = csr;
+		roads = new KdTree(csr, (CoordinateStore)csr.getVertexStore());
+		hierarchy = null;
+		search = null;
+		bidirectional = null;
+		ClearRouteCache();
+	}
+	
+	/**
+	 * Drop every cached route, they belong to the map being replaced.
+	 */
+	private void ClearRouteCache() {
+		if (routes != null) {
+			routes.clear();
+		}
+	}
+	
+	/**
+	 * Builds the contraction hierarchy for the loaded map.
+	 * This takes a while on a large map, it is done automatically the first time
+	 * the CONTRACTION_HIERARCHY route mode is used if it has not been done already.
+	 */
+	public void PrepareHierarchy() {
+		hierarchy = new ContractionHierarchy<Location, Street>(g);
+	}
+	
+	/**
+	 * Saves the contraction hierarchy of the loaded map, building it first if needed.
+	 * @param filename The file to write the hierarchy to.
+	 * @throws IOException If the hierarchy could not be written.
+	 */
+	public void SaveHierarchy(String filename) throws IOException {
+		if (hierarchy == null) {
+			PrepareHierarchy();
+		}
+		hierarchy.write(filename);
+	}
+	
+	/**
+	 * Loads a contraction hierarchy previously saved by SaveHierarchy(...) for the same map.
+	 * @param filename The hierarchy file to load.
+	 * @throws IOException If the file could not be read or belongs to a different map.
+	 */
+	public void LoadHierarchy(String filename) throws IOException {
+		hierarchy = ContractionHierarchy.read(g, filename);
 	}
 	
 	/**
@@ -439,17 +733,6 @@ public class OSMMap {
      * Private Utilities.
      * ---------------------------------------------------------------------------- */
 	
-	/**
-	 * Given the name of two nodes in the graph 'g' for this map, compute the distance in miles
-	 * between those two vertices.
-	 * @param v1 The unique identifier representing the first vertex.
-	 * @param v2 The unique identifier representing the second vertex.
-	 * @return Distance in miles between vertex v1 and vertex v2.
-	 */
-	private double GetDistance(String v1, String v2) {
-		return g.getVertexData(v1).getDistance(g.getVertexData(v2));
-	}
-	
 	/**
 	 * Represents a Location object as a pair of latitude and longitude double values.
 	 * This will serve as vertex data for the graph.
@@ -489,16 +772,28 @@ public class OSMMap {
 		 * @return The distance between this location and the input 'other' location.
 		 */
 		public double getDistance(Location other) {
+			return getDistance(lat, lon, other.lat, other.lon);
+		}
+		
+		/**
+		 * Radius of the earth in miles, used by getDistance(...).
+		 */
+		public static final double RADIUS = 3958.75;
+		
+		/**
+		 * Compute the distance in miles between two latitude, longitude pairs.
+		 * @return The distance between (lat1, lon1) and (lat2, lon2).
+		 */
+		public static double getDistance(double lat1, double lon1, double lat2, double lon2) {
 			// Compute the distance using the Haversine formula.
 			// https://en.wikipedia.org/wiki/Haversine_formula
 			// Based on the answer posted here provided on stackoverflow below...
 			// http://stackoverflow.com/questions/120283/how-can-i-measure-distance-and-create-a-bounding-box-based-on-two-latitudelongi#12330
 
-			final double RADIUS = 3958.75;
-			double sinlat = Math.sin(Math.toRadians(lat - other.lat) / 2.0);
-			double sinlon = Math.sin(Math.toRadians(lon - other.lon) / 2.0);
+			double sinlat = Math.sin(Math.toRadians(lat1 - lat2) / 2.0);
+			double sinlon = Math.sin(Math.toRadians(lon1 - lon2) / 2.0);
 			double a = Math.pow(sinlat,  2) + Math.pow(sinlon, 2)
-					   * Math.cos(Math.toRadians(lat)) * Math.cos(Math.toRadians(other.lat));
+					   * Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2));
 			double c = 2.0 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 
 			return RADIUS * c;
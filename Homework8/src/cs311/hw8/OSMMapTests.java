@@ -1,5 +1,417 @@
 package cs311.hw8;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cs311.hw8.OSMMap.Location;
+import cs311.hw8.OSMMap.Street;
+import cs311.hw8.graph.IGraph;
+
 public class OSMMapTests {
 
-}
\ No newline at end of file
+    private static double EPSILON = .0000007;
+
+    private OSMMap map;
+
+    private File file;
+
+    /**
+     * Writes a small OSM file: an 8x8 grid of named two way streets with every third
+     * row one way, plus a handful of building nodes that no street passes through.
+     */
+    @Before
+    public void setUp() throws IOException {
+        File f = file = File.createTempFile("grid", ".osm");
+        f.deleteOnExit();
+
+        PrintWriter out = new PrintWriter(f);
+        out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        out.println("<osm version=\"0.6\">");
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                out.printf(" <node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\"/>%n", 100 + i * 8 + j, 42.0 + i * 0.001, -93.6 + j * 0.0013);
+            }
+        }
+        for (int k = 0; k < 5; k++) {
+            out.printf(" <node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\">%n  <tag k=\"building\" v=\"yes\"/>%n </node>%n", 900 + k, 42.0005 + k * 0.001, -93.5995);
+        }
+        for (int i = 0; i < 8; i++) {
+            out.printf(" <way id=\"%d\">%n", i + 1);
+            for (int j = 0; j < 8; j++) {
+                out.printf("  <nd ref=\"%d\"/>%n", 100 + i * 8 + j);
+            }
+            out.printf("  <tag k=\"highway\" v=\"residential\"/>%n  <tag k=\"name\" v=\"%d Street\"/>%n", i);
+            if (i % 3 == 1) {
+                out.println("  <tag k=\"oneway\" v=\"yes\"/>");
+            }
+            out.println(" </way>");
+        }
+        for (int j = 0; j < 8; j++) {
+            out.printf(" <way id=\"%d\">%n", j + 20);
+            for (int i = 0; i < 8; i++) {
+                out.printf("  <nd ref=\"%d\"/>%n", 100 + i * 8 + j);
+            }
+            out.printf("  <tag k=\"highway\" v=\"residential\"/>%n  <tag k=\"name\" v=\"%d Avenue\"/>%n </way>%n", j);
+        }
+        out.println("</osm>");
+        out.close();
+
+        map = new OSMMap();
+        map.LoadMap(f.getPath());
+    }
+
+    @Test
+    public void loadsGrid() {
+        assertEquals(69, map.getGraph().getVertices().size());
+        // 8 streets and 8 avenues of 7 segments each, with 3 of the streets one way.
+        assertEquals(16 * 7 * 2 - 3 * 7, map.getGraph().getEdges().size());
+    }
+
+    @Test
+    public void streetNodesOnlyDropsBuildings() {
+        OSMMap streets = new OSMMap();
+        streets.setLoadMode(OSMMap.LoadMode.STREET_NODES);
+        streets.LoadMap(file.getPath());
+        IGraph<Location, Street> g = streets.getGraph();
+        assertEquals(64, g.getVertices().size());
+        assertEquals(map.getGraph().getEdges().size(), g.getEdges().size());
+        assertEquals(42.002, g.getVertexData("123").getLatitude(), 1e-9);
+
+        // The same streets give the same routes.
+        Location from = new Location(42.0, -93.6);
+        Location to = new Location(42.007, -93.6 + 7 * 0.0013);
+        assertEquals(map.ShortestRoute(from, to), streets.ShortestRoute(from, to));
+    }
+
+    @Test
+    public void regionClipsStreets() throws Exception {
+        // Rows 0 to 3 of the grid and the 3 buildings among them.
+        OSMMap part = new OSMMap();
+        part.setLoadRegion(MapRegion.Box(41.9999, -93.61, 42.0031, -93.59));
+        part.LoadMap(file.getPath());
+        assertEquals(35, part.getGraph().getVertices().size());
+        // 4 streets with row 1 one way, and the 8 avenues cut down to their first 3 segments.
+        assertEquals(3 * 7 * 2 + 7 + 8 * 3 * 2, part.getGraph().getEdges().size());
+
+        part.setLoadMode(OSMMap.LoadMode.STREET_NODES);
+        part.LoadMap(file.getPath());
+        assertEquals(32, part.getGraph().getVertices().size());
+        assertEquals(3 * 7 * 2 + 7 + 8 * 3 * 2, part.getGraph().getEdges().size());
+
+        // The triangle east of the diagonal from node 100 to node 163, less the diagonal, keeps the
+        // nodes 100 + i * 8 + j with j > i. The last avenue loses its last node.
+        double[] lats = { 41.9995, 41.9995, 42.008 };
+        double[] lons = { -93.6 + 0.0001, -93.5, -93.6 + 8 * 0.0013 + 0.0001 };
+        part.setLoadRegion(MapRegion.Polygon(lats, lons));
+        part.LoadMap(file.getPath());
+        assertEquals(28, part.getGraph().getVertices().size());
+        assertEquals("0 Street", part.getGraph().getEdgeData("101", "102").getName());
+        assertEquals("7 Avenue", part.getGraph().getEdgeData("155", "147").getName());
+    }
+
+    @Test
+    public void coordinatesMadeOnDemand() {
+        // Node 100 + i * 8 + j sits at (42.0 + i * 0.001, -93.6 + j * 0.0013).
+        IGraph<Location, Street> g = map.getGraph();
+        Location l = g.getVertexData("123");
+        assertEquals(42.002, l.getLatitude(), 1e-9);
+        assertEquals(-93.6 + 7 * 0.0013, l.getLongitude(), 1e-9);
+
+        // Each call makes a new Location, updates go to the store.
+        g.setVertexData("123", new Location(41.5, -93.0));
+        assertEquals(41.5, g.getVertexData("123").getLatitude(), 1e-9);
+        assertEquals(-93.0, g.getVertexData("123").getLongitude(), 1e-9);
+        assertEquals(42.0, g.getVertexData("100").getLatitude(), 1e-9);
+    }
+
+    @Test
+    public void closestRoadMatchesScan() {
+        Random r = new Random(311);
+        for (int i = 0; i < 200; i++) {
+            Location loc = new Location(41.999 + r.nextDouble() * 0.01, -93.601 + r.nextDouble() * 0.012);
+            Location found = map.getGraph().getVertexData(map.ClosestRoad(loc));
+
+            // Compare against checking every vertex with a street going out.
+            double best = Double.MAX_VALUE;
+            for (IGraph.Vertex<Location> v : map.getGraph().getVertices()) {
+                if (map.getGraph().getNeighbors(v.getVertexName()).size() > 0) {
+                    best = Math.min(best, loc.getDistance(v.getVertexData()));
+                }
+            }
+            assertEquals(best, loc.getDistance(found), EPSILON);
+        }
+    }
+
+    @Test
+    public void closestRoadSkipsBuildings() {
+        // Right on top of a building node, which has no streets going out.
+        String v = map.ClosestRoad(new Location(42.0005, -93.5995));
+        assertTrue(map.getGraph().getNeighbors(v).size() > 0);
+    }
+
+    @Test
+    public void routeFollowsStreets() throws Exception {
+        Location from = new Location(42.0, -93.6);
+        Location to = new Location(42.0, -93.6 + 7 * 0.0013);
+        for (OSMMap.RouteMode mode : OSMMap.RouteMode.values()) {
+            map.setRouteMode(mode);
+            assertEquals(Arrays.asList("0 Street"), map.StreetRoute(map.ShortestRoute(from, to)));
+
+            double length = 0.0;
+            List<String> route = map.ShortestRoute(from, to);
+            for (int i = 1; i < route.size(); i++) {
+                Street s = map.getGraph().getEdgeData(route.get(i - 1), route.get(i));
+                length += s.getWeight();
+            }
+            assertEquals(from.getDistance(to), length, 0.001);
+        }
+    }
+
+    @Test
+    public void routeCacheHitsAndClears() {
+        Location from = new Location(42.0, -93.6);
+        Location to = new Location(42.007, -93.6 + 5 * 0.0013);
+        List<String> expected = map.ShortestRoute(from, to);
+
+        map.setRouteCache(16);
+        assertEquals(expected, map.ShortestRoute(from, to));
+        // Nearby locations snap to the same vertices, so this is the same route.
+        assertEquals(expected, map.ShortestRoute(new Location(42.00001, -93.60001), to));
+        assertEquals(1, map.getRouteCache().getMisses());
+        assertEquals(1, map.getRouteCache().getHits());
+
+        map.LoadMap(file.getPath());
+        assertEquals(0, map.getRouteCache().size());
+        assertEquals(expected, map.ShortestRoute(from, to));
+        assertEquals(2, map.getRouteCache().getMisses());
+    }
+
+    @Test
+    public void tourReportsUnreachableStops() {
+        try {
+            map.ApproximateTSP(Arrays.asList("100", "900", "163", "901"));
+            fail();
+        } catch (OSMMap.UnreachableStopsException e) {
+            // The buildings have no streets at all.
+            assertEquals(Arrays.asList("900", "901"), e.getStops());
+        }
+    }
+
+    @Test
+    public void pbfMatchesXml() throws IOException {
+        File f = File.createTempFile("grid", ".osm.pbf");
+        f.deleteOnExit();
+        WriteGridPbf(f);
+
+        OSMMap pbf = new OSMMap();
+        pbf.LoadMapPBF(f.getPath());
+        IGraph<Location, Street> g = pbf.getGraph();
+        assertEquals(69, g.getVertices().size());
+        assertEquals(map.getGraph().getEdges().size(), g.getEdges().size());
+        assertEquals(-93.6 + 7 * 0.0013, g.getVertexData("123").getLongitude(), 1e-9);
+        assertEquals(42.0005, g.getVertexData("900").getLatitude(), 1e-9);
+
+        Location from = new Location(42.0, -93.6);
+        Location to = new Location(42.007, -93.6 + 7 * 0.0013);
+        assertEquals(map.ShortestRoute(from, to), pbf.ShortestRoute(from, to));
+        assertEquals(map.StreetRoute(map.ShortestRoute(from, to)), pbf.StreetRoute(pbf.ShortestRoute(from, to)));
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws IOException {
+        File f = File.createTempFile("grid", ".snap");
+        f.deleteOnExit();
+        map.SaveSnapshot(f.getPath());
+
+        OSMMap loaded = new OSMMap();
+        loaded.LoadSnapshot(f.getPath());
+        IGraph<Location, Street> g = loaded.getGraph();
+        assertEquals(69, g.getVertices().size());
+        assertEquals(map.getGraph().getEdges().size(), g.getEdges().size());
+        assertEquals(map.TotalDistance(), loaded.TotalDistance(), 1e-9);
+        assertEquals(42.0005, g.getVertexData("900").getLatitude(), 1e-9);
+
+        Location from = new Location(42.0, -93.6);
+        Location to = new Location(42.007, -93.6 + 7 * 0.0013);
+        assertEquals(map.ShortestRoute(from, to), loaded.ShortestRoute(from, to));
+        assertEquals(map.StreetRoute(map.ShortestRoute(from, to)), loaded.StreetRoute(loaded.ShortestRoute(from, to)));
+    }
+
+    @Test
+    public void emptyMapSnapshot() throws IOException {
+        // Nothing loaded yet, the map is still an empty frozen graph.
+        File f = File.createTempFile("empty", ".snap");
+        f.deleteOnExit();
+        new OSMMap().SaveSnapshot(f.getPath());
+
+        OSMMap loaded = new OSMMap();
+        loaded.LoadSnapshot(f.getPath());
+        assertEquals(0, loaded.getGraph().getVertices().size());
+        assertEquals(0.0, loaded.TotalDistance(), 0.0);
+    }
+
+    @Test
+    public void emptyMapHierarchy() throws IOException {
+        // The hierarchy calls work on the empty map a fresh OSMMap starts with.
+        File f = File.createTempFile("empty", ".ch");
+        f.deleteOnExit();
+        OSMMap empty = new OSMMap();
+        empty.setRouteMode(OSMMap.RouteMode.CONTRACTION_HIERARCHY);
+        assertEquals(0, empty.DistanceTable(Arrays.<String>asList()).length);
+        empty.SaveHierarchy(f.getPath());
+        empty.LoadHierarchy(f.getPath());
+    }
+
+    @Test
+    public void truncatedSnapshotFails() throws IOException {
+        File f = File.createTempFile("grid", ".snap");
+        f.deleteOnExit();
+        map.SaveSnapshot(f.getPath());
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        raf.setLength(raf.length() / 2);
+        raf.close();
+
+        try {
+            new OSMMap().LoadSnapshot(f.getPath());
+            fail();
+        } catch (IOException e) {
+            // Expected, rather than a BufferUnderflowException.
+        }
+    }
+
+    /**
+     * Writes the same map as setUp() in PBF form: the grid as zlib compressed dense nodes,
+     * the buildings as plain nodes in an uncompressed blob, then one block per street.
+     */
+    private static void WriteGridPbf(File f) throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(f));
+        WriteBlob(out, "OSMHeader", Bytes(4, "OsmSchema-V0.6".getBytes("UTF-8")), true);
+
+        ByteArrayOutputStream ids = new ByteArrayOutputStream();
+        ByteArrayOutputStream lats = new ByteArrayOutputStream();
+        ByteArrayOutputStream lons = new ByteArrayOutputStream();
+        long id = 0, lat = 0, lon = 0;
+        for (int i = 0; i < 64; i++) {
+            // Granularity 100, so coordinates are in units of 1e-7 degrees.
+            long nextLat = 420000000L + (i / 8) * 10000L;
+            long nextLon = -936000000L + (i % 8) * 13000L;
+            Varint(ids, ZigZag(100 + i - id));
+            Varint(lats, ZigZag(nextLat - lat));
+            Varint(lons, ZigZag(nextLon - lon));
+            id = 100 + i;
+            lat = nextLat;
+            lon = nextLon;
+        }
+        byte[] dense = Concat(Bytes(1, ids.toByteArray()), Bytes(8, lats.toByteArray()), Bytes(9, lons.toByteArray()));
+        WriteBlob(out, "OSMData", Block(new String[0], Bytes(2, dense)), true);
+
+        ByteArrayOutputStream buildings = new ByteArrayOutputStream();
+        for (int k = 0; k < 5; k++) {
+            ByteArrayOutputStream node = new ByteArrayOutputStream();
+            Varint(node, 1 << 3);
+            Varint(node, ZigZag(900 + k));
+            Varint(node, 8 << 3);
+            Varint(node, ZigZag(420005000L + k * 10000L));
+            Varint(node, 9 << 3);
+            Varint(node, ZigZag(-935995000L));
+            buildings.write(Bytes(1, node.toByteArray()));
+        }
+        WriteBlob(out, "OSMData", Block(new String[0], buildings.toByteArray()), false);
+
+        // String 0 is left empty, as in real files. Then highway, residential, name, oneway, yes.
+        for (int w = 0; w < 16; w++) {
+            String[] strings = { "", "highway", "residential", "name", "oneway", "yes", w < 8 ? w + " Street" : (w - 8) + " Avenue" };
+            ByteArrayOutputStream keys = new ByteArrayOutputStream();
+            ByteArrayOutputStream values = new ByteArrayOutputStream();
+            Varint(keys, 1); Varint(values, 2);
+            Varint(keys, 3); Varint(values, 6);
+            if (w < 8 && w % 3 == 1) {
+                Varint(keys, 4); Varint(values, 5);
+            }
+            ByteArrayOutputStream refs = new ByteArrayOutputStream();
+            long ref = 0;
+            for (int k = 0; k < 8; k++) {
+                long next = w < 8 ? 100 + w * 8 + k : 100 + k * 8 + (w - 8);
+                Varint(refs, ZigZag(next - ref));
+                ref = next;
+            }
+            byte[] way = Concat(Bytes(2, keys.toByteArray()), Bytes(3, values.toByteArray()), Bytes(8, refs.toByteArray()));
+            WriteBlob(out, "OSMData", Block(strings, Bytes(3, way)), true);
+        }
+        out.close();
+    }
+
+    private static byte[] Block(String[] strings, byte[] group) throws IOException {
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        for (String s : strings) {
+            table.write(Bytes(1, s.getBytes("UTF-8")));
+        }
+        return Concat(Bytes(1, table.toByteArray()), Bytes(2, group));
+    }
+
+    private static void WriteBlob(DataOutputStream out, String type, byte[] data, boolean compress) throws IOException {
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        if (compress) {
+            ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+            DeflaterOutputStream deflate = new DeflaterOutputStream(zlib);
+            deflate.write(data);
+            deflate.close();
+            Varint(blob, 2 << 3);
+            Varint(blob, data.length);
+            blob.write(Bytes(3, zlib.toByteArray()));
+        } else {
+            blob.write(Bytes(1, data));
+        }
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(Bytes(1, type.getBytes("UTF-8")));
+        Varint(header, 3 << 3);
+        Varint(header, blob.size());
+        out.writeInt(header.size());
+        header.writeTo(out);
+        blob.writeTo(out);
+    }
+
+    private static byte[] Bytes(int field, byte[] value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Varint(out, field << 3 | 2);
+        Varint(out, value.length);
+        out.write(value, 0, value.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] Concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) {
+            out.write(p, 0, p.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static long ZigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static void Varint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int)(v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write((int)v);
+    }
+}
@@ -0,0 +1,521 @@
+package cs311.hw8;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming reader for OSM PBF files, the binary protocol buffer form of OSM data.
+ * A PBF file is a series of blobs, each a length prefixed BlobHeader followed by a zlib
+ * compressed block of a few thousand nodes or ways. The file itself is read in order on the
+ * calling thread, but the blocks are inflated and decoded on a pool, several at once, and
+ * only handed to the IOSMHandler (again in file order, on the calling thread) once decoded.
+ * At most a few blocks per thread are held at any time, so memory does not grow with the file.
+ *
+ * Nodes are read from both DenseNodes and plain Node groups, and ways with the same tags
+ * as OSMXmlReader looks for. Relations, changesets and node tags are skipped.
+ * Only zlib compressed and uncompressed blobs are supported, as produced by default by osmium,
+ * osmosis and the planet dumps.
+ */
+public class OSMPbfReader {
+
+	/**
+	 * Largest BlobHeader and Blob the format allows.
+	 */
+	private static final int MAX_HEADER = 64 * 1024;
+	private static final int MAX_BLOB = 32 * 1024 * 1024;
+
+	/**
+	 * Features a file may require that this reader understands, any other makes it unreadable.
+	 */
+	private static final List<String> FEATURES = Arrays.asList("OsmSchema-V0.6", "DenseNodes");
+
+	/**
+	 * Stream the given file, decoding its blocks on every core and passing each node and way to the handler.
+	 * @param filename The OSM PBF file to read.
+	 * @param handler Receives every node and way in file order.
+	 * @throws IOException If the file could not be read or is not a PBF file this reader supports.
+	 */
+	public static void read(String filename, IOSMHandler handler) throws IOException {
+		read(filename, handler, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Stream the given file, passing each node and way to the handler.
+	 * @param filename The OSM PBF file to read.
+	 * @param handler Receives every node and way in file order.
+	 * @param pool Pool to decode the blocks on, null to decode them on this thread.
+	 * @throws IOException If the file could not be read or is not a PBF file this reader supports.
+	 */
+	public static void read(String filename, IOSMHandler handler, ForkJoinPool pool) throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(filename), 1 << 16)) {
+			read(in, handler, pool);
+		}
+	}
+
+	/**
+	 * Stream the given input, passing each node and way to the handler.
+	 * The handler is only ever called from this thread. The input stream is not closed by this method.
+	 * @param input Stream containing OSM PBF data.
+	 * @param handler Receives every node and way in file order.
+	 * @param pool Pool to decode the blocks on, null to decode them on this thread.
+	 * @throws IOException If the input could not be read or is not a PBF file this reader supports.
+	 */
+	public static void read(InputStream input, IOSMHandler handler, ForkJoinPool pool) throws IOException {
+		DataInputStream in = new DataInputStream(input);
+		// Blocks being decoded, oldest first. A few per thread keeps every thread busy.
+		ArrayDeque<Future<Block>> pending = new ArrayDeque<Future<Block>>();
+		int window = pool == null ? 0 : 2 * pool.getParallelism();
+
+		try {
+			int first;
+			while ((first = in.read()) >= 0) {
+				// Each blob starts with the length of its header as a 4 byte big endian int.
+				int length = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+				if (length < 0 || length > MAX_HEADER) {
+					throw new IOException("Not a PBF file, blob header of " + length + " bytes.");
+				}
+				byte[] header = new byte[length];
+				in.readFully(header);
+
+				String type = null;
+				int size = -1;
+				ProtoReader r = new ProtoReader(header, 0, length);
+				while (r.next()) {
+					switch (r.getField()) {
+					case 1:  type = r.readString(); break;
+					case 3:  size = (int)r.readVarint(); break;
+					default: r.skip();
+					}
+				}
+				if (size < 0 || size > MAX_BLOB) {
+					throw new IOException("Not a PBF file, blob of " + size + " bytes.");
+				}
+				final byte[] blob = new byte[size];
+				in.readFully(blob);
+
+				if ("OSMHeader".equals(type)) {
+					CheckHeader(Inflate(blob));
+				} else if ("OSMData".equals(type)) {
+					if (pool == null) {
+						Decode(Inflate(blob)).deliver(handler);
+						continue;
+					}
+					pending.add(pool.submit(new Callable<Block>() {
+						@Override public Block call() throws IOException {
+							return Decode(Inflate(blob));
+						}
+					}));
+					while (pending.size() > window) {
+						Take(pending.poll()).deliver(handler);
+					}
+				}
+				// Blobs of any other type are skipped, as the format allows.
+			}
+			while (!pending.isEmpty()) {
+				Take(pending.poll()).deliver(handler);
+			}
+		} finally {
+			// Only left over if reading failed, there is no one to hand them to.
+			for (Future<Block> f : pending) {
+				f.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Wait for a block to be decoded.
+	 * @param f The block being decoded.
+	 * @return The decoded block.
+	 * @throws IOException If the block could not be decoded, or this thread was interrupted.
+	 */
+	private static Block Take(Future<Block> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException)e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Unpack the data held by a Blob message.
+	 * @param blob The encoded Blob.
+	 * @return The uncompressed data.
+	 * @throws IOException If the blob is malformed or uses a compression other than zlib.
+	 */
+	static byte[] Inflate(byte[] blob) throws IOException {
+		ProtoReader r = new ProtoReader(blob, 0, blob.length);
+		int size = -1;
+		ProtoReader raw = null;
+		ProtoReader zlib = null;
+		while (r.next()) {
+			switch (r.getField()) {
+			case 1:  raw = r.readMessage(); break;
+			case 2:  size = (int)r.readVarint(); break;
+			case 3:  zlib = r.readMessage(); break;
+			case 4:
+			case 5:
+			case 6:
+			case 7:  throw new IOException("Unsupported PBF compression, only zlib is supported.");
+			default: r.skip();
+			}
+		}
+
+		if (raw != null) {
+			return Arrays.copyOfRange(blob, raw.getPosition(), raw.getLimit());
+		}
+		if (zlib == null || size < 0 || size > MAX_BLOB) {
+			throw new IOException("Malformed PBF blob.");
+		}
+
+		byte[] data = new byte[size];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(blob, zlib.getPosition(), zlib.getLimit() - zlib.getPosition());
+			int done = 0;
+			while (done < size) {
+				int n = inflater.inflate(data, done, size - done);
+				if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Truncated PBF blob.");
+				}
+				done += n;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Malformed PBF blob.", e);
+		} finally {
+			inflater.end();
+		}
+		return data;
+	}
+
+	/**
+	 * Make sure this reader can read a file with the given HeaderBlock.
+	 * @param data The decoded HeaderBlock.
+	 * @throws IOException If the file requires a feature this reader does not have.
+	 */
+	private static void CheckHeader(byte[] data) throws IOException {
+		ProtoReader r = new ProtoReader(data, 0, data.length);
+		while (r.next()) {
+			if (r.getField() == 4) {
+				String feature = r.readString();
+				if (!FEATURES.contains(feature)) {
+					throw new IOException("Unsupported PBF feature " + feature + ".");
+				}
+			} else {
+				r.skip();
+			}
+		}
+	}
+
+	/**
+	 * Decode the nodes and ways of a PrimitiveBlock.
+	 * @param data The decoded PrimitiveBlock.
+	 * @return The nodes and ways of the block, in the order they appear in it.
+	 * @throws IOException If the block is malformed.
+	 */
+	static Block Decode(byte[] data) throws IOException {
+		ProtoReader r = new ProtoReader(data, 0, data.length);
+		Block block = new Block(data);
+		// The coordinate settings follow the groups, so the groups are only read once they are known.
+		List<ProtoReader> groups = new ArrayList<ProtoReader>();
+		while (r.next()) {
+			switch (r.getField()) {
+			case 1:  block.strings(r.readMessage()); break;
+			case 2:  groups.add(r.readMessage()); break;
+			case 17: block.granularity = r.readVarint(); break;
+			case 19: block.latOffset = r.readVarint(); break;
+			case 20: block.lonOffset = r.readVarint(); break;
+			default: r.skip();
+			}
+		}
+
+		for (ProtoReader group : groups) {
+			while (group.next()) {
+				switch (group.getField()) {
+				case 1:  block.node(group.readMessage()); break;
+				case 2:  block.dense(group.readMessage()); break;
+				case 3:  block.way(group.readMessage()); break;
+				default: group.skip();
+				}
+			}
+		}
+		return block;
+	}
+
+	/**
+	 * Read the value of a packed repeated field.
+	 * @param r Positioned at the field.
+	 * @return A reader over the packed values.
+	 * @throws IOException If the field is not packed.
+	 */
+	private static ProtoReader Packed(ProtoReader r) throws IOException {
+		if (r.getWireType() != ProtoReader.LENGTH) {
+			throw new IOException("Expected a packed array in field " + r.getField() + ".");
+		}
+		return r.readMessage();
+	}
+
+	/**
+	 * The nodes and ways of one decoded PrimitiveBlock, held as primitives until they are delivered.
+	 */
+	static class Block {
+
+		private byte[] data;
+
+		/**
+		 * Position and length in data of each string of the string table, the strings are only made when needed.
+		 */
+		private int[] stringStart = new int[0];
+		private int[] stringLength = new int[0];
+		private String[] strings = new String[0];
+		private int nameKey = -1, highwayKey = -1, onewayKey = -1, yesValue = -1;
+
+		/**
+		 * Coordinates are stored as (offset + granularity * value) nanodegrees.
+		 */
+		private long granularity = 100;
+		private long latOffset = 0;
+		private long lonOffset = 0;
+
+		private long[] nodeIds = new long[16];
+		private double[] nodeLat = new double[16];
+		private double[] nodeLon = new double[16];
+		private int nodes;
+
+		/**
+		 * Refs of every way, back to back. Way w ends just before wayEnd[w].
+		 */
+		private long[] refs = new long[64];
+		private int refCount;
+		private int[] wayEnd = new int[16];
+		private String[] wayName = new String[16];
+		private boolean[] wayHighway = new boolean[16];
+		private boolean[] wayOneway = new boolean[16];
+		private int ways;
+
+		private Block(byte[] Data) {
+			data = Data;
+		}
+
+		/**
+		 * Pass the nodes of the block to the handler, then its ways.
+		 * @param handler Receives every node and way of the block.
+		 */
+		void deliver(IOSMHandler handler) {
+			for (int i=0; i<nodes; i++) {
+				handler.node(nodeIds[i], nodeLat[i], nodeLon[i]);
+			}
+			long[] way = new long[64];
+			int start = 0;
+			for (int w=0; w<ways; w++) {
+				// Ways are handed over from the start of an array, as OSMXmlReader does.
+				int count = wayEnd[w] - start;
+				if (count > way.length) {
+					way = new long[Math.max(count, way.length * 2)];
+				}
+				System.arraycopy(refs, start, way, 0, count);
+				handler.way(way, count, wayName[w], wayHighway[w], wayOneway[w]);
+				start = wayEnd[w];
+			}
+		}
+
+		/**
+		 * Read the StringTable, finding the tags ways are checked for.
+		 */
+		private void strings(ProtoReader r) throws IOException {
+			int n = 0;
+			while (r.next()) {
+				if (r.getField() != 1) {
+					r.skip();
+					continue;
+				}
+				ProtoReader s = r.readMessage();
+				if (n == stringStart.length) {
+					stringStart = Arrays.copyOf(stringStart, Math.max(16, n * 2));
+					stringLength = Arrays.copyOf(stringLength, stringStart.length);
+				}
+				stringStart[n] = s.getPosition();
+				stringLength[n] = s.getLimit() - s.getPosition();
+				if (Equals(n, "name")) {
+					nameKey = n;
+				} else if (Equals(n, "highway")) {
+					highwayKey = n;
+				} else if (Equals(n, "oneway")) {
+					onewayKey = n;
+				} else if (Equals(n, "yes")) {
+					yesValue = n;
+				}
+				n++;
+			}
+			strings = new String[n];
+		}
+
+		/**
+		 * @return True if string i of the string table is the given ASCII text, compared without making a String.
+		 */
+		private boolean Equals(int i, String text) {
+			if (stringLength[i] != text.length()) {
+				return false;
+			}
+			for (int k=0; k<text.length(); k++) {
+				if (data[stringStart[i] + k] != text.charAt(k)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return String i of the string table.
+		 */
+		private String GetString(int i) throws IOException {
+			if (i < 0 || i >= strings.length) {
+				throw new IOException("PBF string index " + i + " out of range.");
+			}
+			if (strings[i] == null) {
+				strings[i] = new String(data, stringStart[i], stringLength[i], StandardCharsets.UTF_8);
+			}
+			return strings[i];
+		}
+
+		/**
+		 * Read a plain Node.
+		 */
+		private void node(ProtoReader r) throws IOException {
+			long id = 0, lat = 0, lon = 0;
+			while (r.next()) {
+				switch (r.getField()) {
+				case 1:  id = r.readSignedVarint(); break;
+				case 8:  lat = r.readSignedVarint(); break;
+				case 9:  lon = r.readSignedVarint(); break;
+				default: r.skip();
+				}
+			}
+			AddNode(id, lat, lon);
+		}
+
+		/**
+		 * Read a DenseNodes group, its ids and coordinates are delta coded.
+		 */
+		private void dense(ProtoReader r) throws IOException {
+			ProtoReader ids = null, lats = null, lons = null;
+			while (r.next()) {
+				switch (r.getField()) {
+				case 1:  ids = Packed(r); break;
+				case 8:  lats = Packed(r); break;
+				case 9:  lons = Packed(r); break;
+				default: r.skip();
+				}
+			}
+			if (ids == null) {
+				return;
+			}
+			if (lats == null || lons == null) {
+				throw new IOException("PBF dense nodes without coordinates.");
+			}
+
+			long id = 0, lat = 0, lon = 0;
+			while (ids.hasMore()) {
+				id += ids.readSignedVarint();
+				lat += lats.readSignedVarint();
+				lon += lons.readSignedVarint();
+				AddNode(id, lat, lon);
+			}
+		}
+
+		/**
+		 * Read a Way, its refs are delta coded.
+		 */
+		private void way(ProtoReader r) throws IOException {
+			ProtoReader keys = null, values = null, ids = null;
+			while (r.next()) {
+				switch (r.getField()) {
+				case 2:  keys = Packed(r); break;
+				case 3:  values = Packed(r); break;
+				case 8:  ids = Packed(r); break;
+				default: r.skip();
+				}
+			}
+
+			String name = null;
+			boolean highway = false;
+			boolean oneway = false;
+			while (keys != null && keys.hasMore()) {
+				if (values == null || !values.hasMore()) {
+					throw new IOException("PBF way with more tag keys than values.");
+				}
+				int key = (int)keys.readVarint();
+				int value = (int)values.readVarint();
+				if (key == nameKey) {
+					name = GetString(value);
+				} else if (key == highwayKey) {
+					highway = true;
+				} else if (key == onewayKey && value == yesValue) {
+					oneway = true;
+				}
+			}
+
+			long ref = 0;
+			while (ids != null && ids.hasMore()) {
+				if (refCount == refs.length) {
+					refs = Arrays.copyOf(refs, refCount * 2);
+				}
+				ref += ids.readSignedVarint();
+				refs[refCount++] = ref;
+			}
+
+			if (ways == wayEnd.length) {
+				wayEnd = Arrays.copyOf(wayEnd, ways * 2);
+				wayName = Arrays.copyOf(wayName, ways * 2);
+				wayHighway = Arrays.copyOf(wayHighway, ways * 2);
+				wayOneway = Arrays.copyOf(wayOneway, ways * 2);
+			}
+			wayEnd[ways] = refCount;
+			wayName[ways] = name;
+			wayHighway[ways] = highway;
+			wayOneway[ways] = oneway;
+			ways++;
+		}
+
+		/**
+		 * Add a node, converting its coordinates to degrees.
+		 */
+		private void AddNode(long id, long lat, long lon) {
+			if (nodes == nodeIds.length) {
+				nodeIds = Arrays.copyOf(nodeIds, nodes * 2);
+				nodeLat = Arrays.copyOf(nodeLat, nodes * 2);
+				nodeLon = Arrays.copyOf(nodeLon, nodes * 2);
+			}
+			nodeIds[nodes] = id;
+			// Dividing the exact nanodegree count gives the double nearest the true coordinate,
+			// the same double parsing its decimal text does, so a PBF file and the XML file it
+			// was made from give exactly the same distances.
+			nodeLat[nodes] = (latOffset + granularity * lat) / 1e9;
+			nodeLon[nodes] = (lonOffset + granularity * lon) / 1e9;
+			nodes++;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package cs311.hw8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import cs311.hw8.OSMMap.Location;
+import cs311.hw8.OSMMap.Street;
+import cs311.hw8.graph.CSRGraph;
+
+/**
+ * Compact binary snapshot of a loaded map graph.
+ * The file is laid out as a header followed by flat primitive arrays:
+ * <pre>
+ * int    magic, version, vertex count n, edge count m, street name count s
+ * long   id[n]            OSM node id of each vertex
+ * double lat[n], lon[n]   coordinates of each vertex
+ * int    offset[n+1]      edges of vertex i are offset[i] .. offset[i+1]-1 (CSR adjacency)
+ * int    target[m]        destination vertex of each edge
+ * double length[m]        length of each edge in miles
+ * int    street[m]        index into the street name table
+ * s x (int byte length, UTF-8 bytes)   street name table
+ * </pre>
+ * Snapshots are read back by memory mapping the file, so no parsing or distance computation is needed,
+ * and the arrays are handed straight to a CSRGraph (through a CoordinateStore and a StreetStore).
+ */
+public class OSMSnapshot {
+
+	/**
+	 * Identifies a snapshot file ("OSMG").
+	 */
+	private static final int MAGIC = 0x4F534D47;
+
+	/**
+	 * Bumped whenever the layout above changes.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Size of the header in bytes, five ints.
+	 */
+	private static final int HEADER = 20;
+
+	/**
+	 * Write the given map graph to a snapshot file.
+	 * The rows of a CSRGraph are already sorted by target, as read(...) needs them to be,
+	 * so its arrays are written out as they are.
+	 * Vertex names must be numeric OSM ids, as produced by OSMMap.LoadMap(...).
+	 * @param g The graph to save.
+	 * @param filename File to write the snapshot to, it will be overwritten if it exists.
+	 * @throws IOException If the file could not be written.
+	 */
+	public static void write(CSRGraph<Location, Street> g, String filename) throws IOException {
+		int n = g.getVertexCount();
+		int m = g.getEdgeCount();
+		int[] offset = g.getOffsets();
+		int[] target = g.getTargets();
+		double[] length = g.getWeights();
+
+		int[] street = new int[m];
+		StreetNames names = new StreetNames();
+		for (int e=0; e<m; e++) {
+			street[e] = names.getCode(g.getEdgeData(e).getName());
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(n);
+			out.writeInt(m);
+			out.writeInt(names.size());
+
+			for (int v=0; v<n; v++) { out.writeLong(g.hasLongIds() ? g.getVertexId(v) : Long.parseLong(g.getVertexName(v))); }
+			for (int v=0; v<n; v++) { out.writeDouble(g.getVertexData(v).getLatitude()); }
+			for (int v=0; v<n; v++) { out.writeDouble(g.getVertexData(v).getLongitude()); }
+			for (int v=0; v<=n; v++) { out.writeInt(offset[v]); }
+			for (int e=0; e<m; e++) { out.writeInt(target[e]); }
+			for (int e=0; e<m; e++) { out.writeDouble(length[e]); }
+			for (int e=0; e<m; e++) { out.writeInt(street[e]); }
+
+			for (int i=0; i<names.size(); i++) {
+				byte[] bytes = names.getName(i).getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Read a snapshot previously written by write(...) back into a map graph.
+	 * @param filename The snapshot file to read.
+	 * @return A directed graph equivalent to the one that was saved.
+	 * @throws IOException If the file could not be read, is not a snapshot, or is truncated or corrupt.
+	 */
+	public static CSRGraph<Location, Street> read(String filename) throws IOException {
+		MappedByteBuffer buf;
+		try (FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed.
+			buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		}
+
+		if (buf.remaining() < HEADER || buf.getInt() != MAGIC) {
+			throw new IOException("Not a map snapshot: " + filename);
+		}
+		if (buf.getInt() != VERSION) {
+			throw new IOException("Unsupported snapshot version: " + filename);
+		}
+
+		int n = buf.getInt();
+		int m = buf.getInt();
+		int s = buf.getInt();
+
+		// Make sure every array is there before reading any of them.
+		long size = n * 8L * 3 + (n + 1L) * 4 + m * (4L + 8L + 4L);
+		if (n < 0 || m < 0 || s < 0 || buf.remaining() < size) {
+			throw new IOException("Truncated map snapshot: " + filename);
+		}
+
+		long[] id = new long[n];
+		double[] lat = new double[n];
+		double[] lon = new double[n];
+		int[] offset = new int[n + 1];
+		int[] target = new int[m];
+		double[] length = new double[m];
+		int[] street = new int[m];
+
+		// Bulk copy each array out of the mapping, advancing past it as we go.
+		buf.asLongBuffer().get(id);           Skip(buf, n * 8L);
+		buf.asDoubleBuffer().get(lat);        Skip(buf, n * 8L);
+		buf.asDoubleBuffer().get(lon);        Skip(buf, n * 8L);
+		buf.asIntBuffer().get(offset);        Skip(buf, (n + 1) * 4L);
+		buf.asIntBuffer().get(target);        Skip(buf, m * 4L);
+		buf.asDoubleBuffer().get(length);     Skip(buf, m * 8L);
+		buf.asIntBuffer().get(street);        Skip(buf, m * 4L);
+
+		// A corrupt index would otherwise only show up later, deep inside some query.
+		if (offset[0] != 0 || offset[n] != m) {
+			throw new IOException("Corrupt map snapshot: " + filename);
+		}
+		for (int v=0; v<n; v++) {
+			if (offset[v] > offset[v + 1]) {
+				throw new IOException("Corrupt map snapshot: " + filename);
+			}
+			for (int e=offset[v]; e<offset[v + 1]; e++) {
+				if (target[e] < 0 || target[e] >= n || (e > offset[v] && target[e - 1] > target[e])) {
+					throw new IOException("Corrupt map snapshot: " + filename);
+				}
+			}
+		}
+		for (int e=0; e<m; e++) {
+			if (street[e] < 0 || street[e] >= s) {
+				throw new IOException("Corrupt map snapshot: " + filename);
+			}
+		}
+
+		String[] table = new String[s];
+		for (int i=0; i<s; i++) {
+			int bytesLength = buf.remaining() >= 4 ? buf.getInt() : -1;
+			if (bytesLength < 0 || bytesLength > buf.remaining()) {
+				throw new IOException("Truncated map snapshot: " + filename);
+			}
+			byte[] bytes = new byte[bytesLength];
+			buf.get(bytes);
+			table[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		// The snapshot is already in CSR form, so it can become the frozen graph as is.
+		// The coordinates and streets are kept in the arrays they were read into,
+		// no Location is made per vertex and no Street per edge.
+		return new CSRGraph<Location, Street>(true, id, new CoordinateStore(lat, lon), offset, target,
+				new StreetStore(new StreetNames(table), street, length));
+	}
+
+	/**
+	 * Advance the position of the buffer past an array that was just copied out of it.
+	 */
+	private static void Skip(ByteBuffer buf, long bytes) {
+		buf.position(buf.position() + (int)bytes);
+	}
+}
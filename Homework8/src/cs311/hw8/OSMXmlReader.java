@@ -0,0 +1,103 @@
+package cs311.hw8;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Single pass streaming reader for OSM XML files built on StAX.
+ * Unlike a DOM parse, only the element currently being read is held in memory,
+ * everything else is handed off to an IOSMHandler as soon as it is complete.
+ */
+public class OSMXmlReader {
+
+	/**
+	 * Stream the given file, passing each node and way to the handler.
+	 * @param filename The OSM XML file to read.
+	 * @param handler Receives every node and way in file order.
+	 * @throws IOException If the file could not be opened or read.
+	 * @throws XMLStreamException If the file is not well formed XML.
+	 */
+	public static void read(String filename, IOSMHandler handler) throws IOException, XMLStreamException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(filename), 1 << 16)) {
+			read(in, handler);
+		}
+	}
+
+	/**
+	 * Stream the given input, passing each node and way to the handler.
+	 * The input stream is not closed by this method.
+	 * @param in Stream containing OSM XML data.
+	 * @param handler Receives every node and way in file order.
+	 * @throws XMLStreamException If the input is not well formed XML.
+	 */
+	public static void read(InputStream in, IOSMHandler handler) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// OSM files never need entities resolved, don't let the parser go looking for them.
+		factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		XMLStreamReader r = factory.createXMLStreamReader(in);
+
+		// State for the way currently being read, reused for every way in the file.
+		long[] refs = new long[64];
+		int count = 0;
+		boolean inway = false;
+		boolean oneway = false;
+		boolean highway = false;
+		String name = null;
+
+		try {
+			while (r.hasNext()) {
+				int event = r.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String tag = r.getLocalName();
+
+					if (tag.equals("node")) {
+						long id = Long.parseLong(r.getAttributeValue(null, "id"));
+						double lat = Double.parseDouble(r.getAttributeValue(null, "lat"));
+						double lon = Double.parseDouble(r.getAttributeValue(null, "lon"));
+						handler.node(id, lat, lon);
+					} else if (tag.equals("way")) {
+						inway = true;
+						oneway = false;
+						highway = false;
+						name = null;
+						count = 0;
+					} else if (inway && tag.equals("nd")) {
+						if (count == refs.length) {
+							refs = Arrays.copyOf(refs, count * 2);
+						}
+						refs[count++] = Long.parseLong(r.getAttributeValue(null, "ref"));
+					} else if (inway && tag.equals("tag")) {
+						String k = r.getAttributeValue(null, "k");
+						String v = r.getAttributeValue(null, "v");
+						if (k.equals("oneway") && v.equals("yes")) {
+							oneway = true;
+						}
+						if (k.equals("name")) {
+							name = v;
+						}
+						if (k.equals("highway")) {
+							highway = true;
+						}
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (inway && r.getLocalName().equals("way")) {
+						handler.way(refs, count, name, highway, oneway);
+						inway = false;
+					}
+				}
+			}
+		} finally {
+			r.close();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package cs311.hw8;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the protocol buffer wire format, just enough of it to read OSM PBF files.
+ * Reads one message held in a byte array field by field, nested messages and packed
+ * arrays are read through a new ProtoReader over the same bytes, so nothing is copied.
+ *
+ * <pre>
+ * ProtoReader r = new ProtoReader(bytes, 0, bytes.length);
+ * while (r.next()) {
+ *     switch (r.getField()) {
+ *     case 1:  id = r.readVarint(); break;
+ *     default: r.skip();
+ *     }
+ * }
+ * </pre>
+ */
+class ProtoReader {
+
+	/** Wire type of varint fields (int32, int64, uint32, sint64, bool, enum). */
+	public static final int VARINT = 0;
+	/** Wire type of 8 byte fields (fixed64, double). */
+	public static final int FIXED64 = 1;
+	/** Wire type of length delimited fields (string, bytes, messages, packed arrays). */
+	public static final int LENGTH = 2;
+	/** Wire type of 4 byte fields (fixed32, float). */
+	public static final int FIXED32 = 5;
+
+	private byte[] buf;
+	private int pos;
+	private int limit;
+
+	/**
+	 * Field number and wire type of the field last found by next().
+	 */
+	private int field;
+	private int type;
+
+	/**
+	 * Constructs a reader over the message held in part of an array.
+	 * @param Buf Holds the encoded message, it is not copied.
+	 * @param Offset Index of the first byte of the message.
+	 * @param Length Number of bytes in the message.
+	 */
+	public ProtoReader(byte[] Buf, int Offset, int Length) {
+		buf = Buf;
+		pos = Offset;
+		limit = Offset + Length;
+	}
+
+	/**
+	 * Move on to the next field of the message, its value is read with one of the read methods or skip().
+	 * @return False once every field has been read.
+	 * @throws IOException If the message is malformed.
+	 */
+	public boolean next() throws IOException {
+		if (pos >= limit) {
+			return false;
+		}
+		long key = readVarint();
+		field = (int)(key >>> 3);
+		type = (int)(key & 7);
+		return true;
+	}
+
+	/**
+	 * @return Field number of the field found by next().
+	 */
+	public int getField() {
+		return field;
+	}
+
+	/**
+	 * @return Wire type of the field found by next(), one of VARINT, FIXED64, LENGTH or FIXED32.
+	 */
+	public int getWireType() {
+		return type;
+	}
+
+	/**
+	 * @return True while there are bytes left, for reading the values of a packed array.
+	 */
+	public boolean hasMore() {
+		return pos < limit;
+	}
+
+	/**
+	 * Read a varint, the encoding of int32, int64, uint32, uint64, bool and enum values.
+	 * @return The value, negative int32 and int64 values come back as they were written.
+	 * @throws IOException If the varint runs past the end of the message.
+	 */
+	public long readVarint() throws IOException {
+		long value = 0;
+		for (int shift=0; shift<64; shift+=7) {
+			if (pos >= limit) {
+				throw new IOException("Truncated varint.");
+			}
+			byte b = buf[pos++];
+			value |= (long)(b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint.");
+	}
+
+	/**
+	 * Read a sint32 or sint64, a varint with the sign moved to the low bit (zig zag encoding).
+	 * @return The value.
+	 * @throws IOException If the varint runs past the end of the message.
+	 */
+	public long readSignedVarint() throws IOException {
+		long value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Read a length delimited field without copying it.
+	 * @return A reader over the bytes of the field, for a nested message or a packed array.
+	 * @throws IOException If the field runs past the end of the message.
+	 */
+	public ProtoReader readMessage() throws IOException {
+		int length = ReadLength();
+		ProtoReader r = new ProtoReader(buf, pos, length);
+		pos += length;
+		return r;
+	}
+
+	/**
+	 * Read a length delimited field as a UTF-8 string.
+	 * @return The string.
+	 * @throws IOException If the field runs past the end of the message.
+	 */
+	public String readString() throws IOException {
+		int length = ReadLength();
+		String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+		pos += length;
+		return s;
+	}
+
+	/**
+	 * Skip over the value of the field found by next().
+	 * @throws IOException If the field runs past the end of the message or has an unknown wire type.
+	 */
+	public void skip() throws IOException {
+		switch (type) {
+		case VARINT:
+			readVarint();
+			break;
+		case FIXED64:
+			Advance(8);
+			break;
+		case LENGTH:
+			Advance(ReadLength());
+			break;
+		case FIXED32:
+			Advance(4);
+			break;
+		default:
+			throw new IOException("Unsupported wire type " + type + ".");
+		}
+	}
+
+	/**
+	 * @return The array holding the message.
+	 */
+	public byte[] getBuffer() {
+		return buf;
+	}
+
+	/**
+	 * @return Index in getBuffer() of the next byte to be read.
+	 */
+	public int getPosition() {
+		return pos;
+	}
+
+	/**
+	 * @return Index in getBuffer() just past the end of the message.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Read the length prefix of a length delimited field, checking it fits in the message.
+	 */
+	private int ReadLength() throws IOException {
+		long length = readVarint();
+		if (length < 0 || length > limit - pos) {
+			throw new IOException("Truncated length delimited field.");
+		}
+		return (int)length;
+	}
+
+	/**
+	 * Move past the given number of bytes, checking they are part of the message.
+	 */
+	private void Advance(int bytes) throws IOException {
+		if (bytes > limit - pos) {
+			throw new IOException("Truncated field.");
+		}
+		pos += bytes;
+	}
+}
@@ -0,0 +1,71 @@
+package cs311.hw8;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Dictionary of the street names of a map, giving each distinct name a small int code.
+ * Every segment of every street then refers to its name by code, so each name is held once
+ * however many ways and segments share it, and names can be compared as ints.
+ * Codes are handed out in order from 0, a name keeps its code for the life of the dictionary.
+ */
+public class StreetNames {
+
+	/**
+	 * Each name by code.
+	 */
+	private ArrayList<String> names;
+
+	/**
+	 * Maps each name to its code.
+	 */
+	private HashMap<String, Integer> codes;
+
+	/**
+	 * Constructs an empty dictionary.
+	 */
+	public StreetNames() {
+		names = new ArrayList<String>();
+		codes = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Constructs a dictionary holding the given names, name i getting code i.
+	 * @param Names The names in code order, they must all be different.
+	 */
+	public StreetNames(String[] Names) {
+		this();
+		for (String name : Names) {
+			getCode(name);
+		}
+	}
+
+	/**
+	 * @param name A street name.
+	 * @return The code of the name, a new code is given out if the name is not in the dictionary yet.
+	 */
+	public int getCode(String name) {
+		Integer code = codes.get(name);
+		if (code == null) {
+			code = names.size();
+			names.add(name);
+			codes.put(name, code);
+		}
+		return code;
+	}
+
+	/**
+	 * @param code Code of a name in the dictionary.
+	 * @return The name with that code.
+	 */
+	public String getName(int code) {
+		return names.get(code);
+	}
+
+	/**
+	 * @return The number of distinct names.
+	 */
+	public int size() {
+		return names.size();
+	}
+}
@@ -0,0 +1,117 @@
+package cs311.hw8;
+
+import java.util.Arrays;
+
+import cs311.hw8.OSMMap.Street;
+import cs311.hw8.graph.IEdgeStore;
+
+/**
+ * Street data of every edge of a map, kept as an int name code (see StreetNames) and a double
+ * length per edge instead of one Street object per segment. A Street is only made when one
+ * is asked for through get(...). The lengths array doubles as the graph's edge weights.
+ *
+ * Memory per edge: a Street is a 12 byte header, a name reference and a double, 24 bytes,
+ * shared by the two directions of a two way segment, plus a 4 byte reference from the graph
+ * for each direction, on top of the graph's own 8 byte weight. Here it is the 4 byte code and
+ * the 8 byte length, which is the weight, so about 24 bytes per edge become 12.
+ */
+public class StreetStore implements IEdgeStore<Street> {
+
+	private StreetNames names;
+	private int[] codes;
+	private double[] lengths;
+	private int size;
+
+	/**
+	 * Constructs an empty store to be filled with add(...).
+	 * @param Names Dictionary the name codes refer to.
+	 * @param Expected Number of edges expected, the store grows past it if needed.
+	 */
+	public StreetStore(StreetNames Names, int Expected) {
+		names = Names;
+		codes = new int[Math.max(Expected, 1)];
+		lengths = new double[codes.length];
+	}
+
+	/**
+	 * Constructs a store over existing arrays, they are used as is (not copied).
+	 * @param Names Dictionary the name codes refer to.
+	 * @param Codes Name code of each edge.
+	 * @param Lengths Length of each edge in miles, as long as Codes.
+	 */
+	public StreetStore(StreetNames Names, int[] Codes, double[] Lengths) {
+		names = Names;
+		codes = Codes;
+		lengths = Lengths;
+		size = Codes.length;
+	}
+
+	/**
+	 * Append the street data of the next edge.
+	 * @param Code Name code of the street.
+	 * @param Length Length of the edge in miles.
+	 * @return The index of the edge, the number of edges added before it.
+	 */
+	public int add(int Code, double Length) {
+		if (size == codes.length) {
+			codes = Arrays.copyOf(codes, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+		}
+		codes[size] = Code;
+		lengths[size] = Length;
+		return size++;
+	}
+
+	/**
+	 * @return Dictionary the name codes refer to.
+	 */
+	public StreetNames getNames() {
+		return names;
+	}
+
+	/**
+	 * @param e Index of a stored edge.
+	 * @return Name code of the street the edge is part of.
+	 */
+	public int getCode(int e) {
+		return codes[e];
+	}
+
+	@Override public int size() {
+		return size;
+	}
+
+	/**
+	 * @param e Index of a stored edge.
+	 * @return A new Street holding the name and length of that edge.
+	 */
+	@Override public Street get(int e) {
+		return new Street(names.getName(codes[e]), lengths[e]);
+	}
+
+	@Override public void set(int e, Street data) {
+		codes[e] = names.getCode(data.getName());
+		lengths[e] = data.getWeight();
+	}
+
+	@Override public double[] getWeights() {
+		if (lengths.length != size) {
+			// Drop the spare room left by add(...), the graph expects exactly one weight per edge.
+			codes = Arrays.copyOf(codes, size);
+			lengths = Arrays.copyOf(lengths, size);
+		}
+		return lengths;
+	}
+
+	@Override public void reorder(int[] order, int count) {
+		int[] c = new int[count];
+		double[] l = new double[count];
+		for (int k=0; k<count; k++) {
+			c[k] = codes[order[k]];
+			l[k] = lengths[order[k]];
+		}
+		codes = c;
+		lengths = l;
+		size = count;
+	}
+}
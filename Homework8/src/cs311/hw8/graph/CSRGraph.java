@@ -0,0 +1,715 @@
+package cs311.hw8.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import cs311.hw8.graphalgorithms.IWeight;
+
+/**
+ * Frozen, read optimized graph stored in compressed sparse row (CSR) form.
+ * Vertex names are mapped to dense int ids 0..n-1, and the edges leaving vertex v
+ * are stored at indices offsets[v] .. offsets[v+1]-1 of the parallel targets / weights arrays.
+ * Each row is sorted by target so a single edge can be found with a binary search.
+ * A reverse (incoming) adjacency is kept as well, this plays the same role as the
+ * inverseEdges map of Graph and is used when the graph is viewed as undirected.
+ *
+ * A graph whose vertices are numbered (such as OSM nodes) may be built from long ids instead
+ * of names. Then no String is kept per vertex at all, the ids are indexed by a LongIntHashMap
+ * and the String API is a thin adapter: names are the ids in decimal, made when asked for.
+ * Likewise the vertex and edge data may be kept in an IVertexStore / IEdgeStore (such as flat
+ * coordinate or street code arrays) instead of one object per vertex or edge, the data objects
+ * are then made when asked for.
+ *
+ * Vertices and edges may not be added once the graph has been built, but vertex and
+ * edge data may still be replaced, and the graph may be switched between directed and
+ * undirected mode exactly as with Graph (no edges are added or removed by doing so).
+ *
+ * Reading never changes anything, so any number of threads may search the same CSRGraph
+ * at once, as long as none of the setters (or set(Un)DirectedGraph) is called meanwhile.
+ */
+public class CSRGraph<V, E> implements IGraph<V, E> {
+
+	/**
+	 * True if this graph is currently in directed mode, False otherwise.
+	 */
+	private boolean directed;
+
+	/**
+	 * Name of each vertex by its dense id, null if the vertices have long ids instead.
+	 */
+	private String[] names;
+
+	/**
+	 * Maps each vertex name to its dense id, null if the vertices have long ids instead.
+	 */
+	private HashMap<String, Integer> index;
+
+	/**
+	 * Long id of each vertex by its dense id, null if the vertices have names instead.
+	 */
+	private long[] ids;
+
+	/**
+	 * Maps each long id to its dense id, null if the vertices have names instead.
+	 */
+	private LongIntHashMap idIndex;
+
+	/**
+	 * Vertex data by dense id, null if it is held by 'store' instead.
+	 */
+	private Object[] vertexData;
+
+	/**
+	 * Holds the vertex data by dense id, null if it is held by 'vertexData' instead.
+	 */
+	private IVertexStore<V> store;
+
+	/**
+	 * Edges leaving vertex v are stored at offsets[v] .. offsets[v+1]-1.
+	 */
+	private int[] offsets;
+
+	/**
+	 * Destination vertex of each edge.
+	 */
+	private int[] targets;
+
+	/**
+	 * Weight of each edge, taken from IWeight edge data (0 if the edge data is not an IWeight).
+	 */
+	private double[] weights;
+
+	/**
+	 * Edge data of each edge.
+	 */
+	private Object[] edgeData;
+
+	/**
+	 * Holds the edge data by stored edge index, null if it is held by 'edgeData' instead.
+	 */
+	private IEdgeStore<E> edgeStore;
+
+	/**
+	 * Edges entering vertex v are stored at inOffsets[v] .. inOffsets[v+1]-1.
+	 */
+	private int[] inOffsets;
+
+	/**
+	 * Source vertex of each incoming edge.
+	 */
+	private int[] inSources;
+
+	/**
+	 * Index (into targets / weights / edgeData) of each incoming edge.
+	 */
+	private int[] inEdges;
+
+	/**
+	 * Freeze a copy of the given graph.
+	 * The new graph will have the same vertices, edges and direction mode as the input.
+	 * @param g The graph to copy.
+	 */
+	public CSRGraph(IGraph<V, E> g) {
+		List<IGraph.Vertex<V>> vertices = g.getVertices();
+		List<IGraph.Edge<E>> edges = g.getEdges();
+		int n = vertices.size();
+		int m = edges.size();
+
+		names = new String[n];
+		vertexData = new Object[n];
+		index = new HashMap<String, Integer>(n * 2);
+		for (int i=0; i<n; i++) {
+			names[i] = vertices.get(i).getVertexName();
+			vertexData[i] = vertices.get(i).getVertexData();
+			index.put(names[i], i);
+		}
+
+		// Bucket the edges by source vertex (a counting sort).
+		offsets = new int[n + 1];
+		for (IGraph.Edge<E> e : edges) {
+			offsets[index.get(e.getVertexName1()) + 1]++;
+		}
+		for (int i=0; i<n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		int[] next = new int[n];
+		System.arraycopy(offsets, 0, next, 0, n);
+		targets = new int[m];
+		edgeData = new Object[m];
+		for (IGraph.Edge<E> e : edges) {
+			int slot = next[index.get(e.getVertexName1())]++;
+			targets[slot] = index.get(e.getVertexName2());
+			edgeData[slot] = e.getEdgeData();
+		}
+
+		directed = g.isDirectedGraph();
+		build();
+	}
+
+	/**
+	 * Build a graph directly from CSR arrays, the arrays are used as is (not copied).
+	 * The input must not contain the same (from, to) edge twice.
+	 * @param Directed If true the resulting graph will be directed, if false it will be undirected.
+	 * @param Names Name of each vertex by id.
+	 * @param VertexData Data of each vertex by id.
+	 * @param Offsets Edges leaving vertex v are Offsets[v] .. Offsets[v+1]-1.
+	 * @param Targets Destination vertex of each edge.
+	 * @param EdgeData Data of each edge.
+	 */
+	public CSRGraph(boolean Directed, String[] Names, V[] VertexData, int[] Offsets, int[] Targets, E[] EdgeData) {
+		this(Directed, Names, IndexNames(Names), VertexData, null, Offsets, Targets, EdgeData, null);
+	}
+
+	/**
+	 * Build a graph with long vertex ids directly from CSR arrays, the arrays are used as is (not copied).
+	 * The input must not contain the same (from, to) edge twice.
+	 * @param Directed If true the resulting graph will be directed, if false it will be undirected.
+	 * @param Ids Long id of each vertex by dense id, the vertex names are these in decimal.
+	 * @param VertexData Data of each vertex by id.
+	 * @param Offsets Edges leaving vertex v are Offsets[v] .. Offsets[v+1]-1.
+	 * @param Targets Destination vertex of each edge.
+	 * @param EdgeData Data of each edge.
+	 */
+	public CSRGraph(boolean Directed, long[] Ids, V[] VertexData, int[] Offsets, int[] Targets, E[] EdgeData) {
+		this(Directed, Ids, IndexIds(Ids), VertexData, null, Offsets, Targets, EdgeData, null);
+	}
+
+	/**
+	 * Build a graph with long vertex ids directly from CSR arrays, with the vertex and edge data held by stores.
+	 * Nothing is copied, and the input must not contain the same (from, to) edge twice.
+	 * Each row must already be sorted by target, since the edge store can not be rearranged here.
+	 * @param Directed If true the resulting graph will be directed, if false it will be undirected.
+	 * @param Ids Long id of each vertex by dense id, the vertex names are these in decimal.
+	 * @param Store Holds the data of each vertex by id.
+	 * @param Offsets Edges leaving vertex v are Offsets[v] .. Offsets[v+1]-1.
+	 * @param Targets Destination vertex of each edge.
+	 * @param Edges Holds the data and weight of each edge.
+	 */
+	public CSRGraph(boolean Directed, long[] Ids, IVertexStore<V> Store, int[] Offsets, int[] Targets, IEdgeStore<E> Edges) {
+		this(Directed, Ids, IndexIds(Ids), null, Store, Offsets, Targets, null, Edges);
+	}
+
+	/**
+	 * Build a graph directly from CSR arrays and an existing name index, none of which are copied.
+	 * Used by GraphBuilder, which has already indexed the names and removed duplicate edges.
+	 * Exactly one of VertexData and Store holds the vertex data, and one of EdgeData and Edges
+	 * holds the edge data, the other is null.
+	 */
+	CSRGraph(boolean Directed, String[] Names, HashMap<String, Integer> Index, Object[] VertexData, IVertexStore<V> Store,
+			int[] Offsets, int[] Targets, Object[] EdgeData, IEdgeStore<E> Edges) {
+		names = Names;
+		index = Index;
+		Init(Directed, VertexData, Store, Offsets, Targets, EdgeData, Edges);
+	}
+
+	/**
+	 * Build a graph directly from CSR arrays and an existing long id index, none of which are copied.
+	 * Used by GraphBuilder in the same way.
+	 */
+	CSRGraph(boolean Directed, long[] Ids, LongIntHashMap Index, Object[] VertexData, IVertexStore<V> Store,
+			int[] Offsets, int[] Targets, Object[] EdgeData, IEdgeStore<E> Edges) {
+		ids = Ids;
+		idIndex = Index;
+		Init(Directed, VertexData, Store, Offsets, Targets, EdgeData, Edges);
+	}
+
+	/**
+	 * Take the arrays every graph has, whichever kind of vertex index it uses, and build the rest.
+	 */
+	private void Init(boolean Directed, Object[] VertexData, IVertexStore<V> Store, int[] Offsets, int[] Targets, Object[] EdgeData, IEdgeStore<E> Edges) {
+		directed = Directed;
+		vertexData = VertexData;
+		store = Store;
+		offsets = Offsets;
+		targets = Targets;
+		edgeData = EdgeData;
+		edgeStore = Edges;
+
+		build();
+	}
+
+	/**
+	 * @param Names Name of each vertex by id.
+	 * @return Map from each name to its id.
+	 * @throws DuplicateVertexException If a name is given twice.
+	 */
+	private static HashMap<String, Integer> IndexNames(String[] Names) throws DuplicateVertexException {
+		HashMap<String, Integer> index = new HashMap<String, Integer>(Names.length * 2);
+		for (int i=0; i<Names.length; i++) {
+			if (index.put(Names[i], i) != null) {
+				throw new DuplicateVertexException();
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @param Ids Long id of each vertex by dense id.
+	 * @return Map from each long id to its dense id.
+	 * @throws DuplicateVertexException If an id is given twice.
+	 */
+	private static LongIntHashMap IndexIds(long[] Ids) throws DuplicateVertexException {
+		LongIntHashMap index = new LongIntHashMap(Ids.length);
+		for (int i=0; i<Ids.length; i++) {
+			if (index.putIfAbsent(Ids[i], i) != LongIntHashMap.MISSING) {
+				throw new DuplicateVertexException();
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Sort each row by target, compute the edge weights and build the reverse adjacency.
+	 */
+	private void build() {
+		int n = offsets.length - 1;
+		int m = targets.length;
+
+		if (edgeStore != null) {
+			// The store's own arrays can not be rearranged along with the rows, they must come sorted.
+			for (int v=0; v<n; v++) {
+				for (int i=offsets[v]+1; i<offsets[v + 1]; i++) {
+					if (targets[i - 1] > targets[i]) {
+						throw new IllegalArgumentException("Rows must be sorted by target when the edge data is held by a store");
+					}
+				}
+			}
+		}
+
+		// Sort each row by target (rows are short, insertion sort is fine).
+		for (int v=0; edgeStore == null && v<n; v++) {
+			for (int i=offsets[v]+1; i<offsets[v + 1]; i++) {
+				int t = targets[i];
+				Object d = edgeData[i];
+				int k = i - 1;
+				for (; k >= offsets[v] && targets[k] > t; k--) {
+					targets[k + 1] = targets[k];
+					edgeData[k + 1] = edgeData[k];
+				}
+				targets[k + 1] = t;
+				edgeData[k + 1] = d;
+			}
+		}
+
+		if (edgeStore != null) {
+			weights = edgeStore.getWeights();
+		} else {
+			weights = new double[m];
+			for (int i=0; i<m; i++) {
+				if (edgeData[i] instanceof IWeight) {
+					weights[i] = ((IWeight)edgeData[i]).getWeight();
+				}
+			}
+		}
+
+		// Reverse adjacency, again by counting sort. Walking the forward rows in order
+		// leaves each reverse row sorted by source.
+		inOffsets = new int[n + 1];
+		for (int i=0; i<m; i++) {
+			inOffsets[targets[i] + 1]++;
+		}
+		for (int v=0; v<n; v++) {
+			inOffsets[v + 1] += inOffsets[v];
+		}
+
+		int[] next = new int[n];
+		System.arraycopy(inOffsets, 0, next, 0, n);
+		inSources = new int[m];
+		inEdges = new int[m];
+		for (int v=0; v<n; v++) {
+			for (int i=offsets[v]; i<offsets[v + 1]; i++) {
+				int slot = next[targets[i]]++;
+				inSources[slot] = v;
+				inEdges[slot] = i;
+			}
+		}
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Primitive (dense id) access.
+	 * The arrays returned here are the graph's own storage and must not be modified.
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * @return The number of vertices in this graph.
+	 */
+	public int getVertexCount() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * @return The number of stored (directed) edges in this graph.
+	 */
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * @param vertexName Name of a vertex in this graph.
+	 * @return The dense id of that vertex.
+	 */
+	public int getVertexIndex(String vertexName) {
+		if (ids != null) {
+			return getVertexIndex(ParseId(vertexName));
+		}
+		Integer i = index.get(vertexName);
+		if (i == null) {
+			throw new NoSuchVertexException();
+		}
+		return i;
+	}
+
+	/**
+	 * @param id Long id of a vertex in this graph, or its name parsed as a long if the vertices have names.
+	 * @return The dense id of that vertex.
+	 */
+	public int getVertexIndex(long id) {
+		if (ids == null) {
+			return getVertexIndex(Long.toString(id));
+		}
+		int i = idIndex.get(id);
+		if (i == LongIntHashMap.MISSING) {
+			throw new NoSuchVertexException();
+		}
+		return i;
+	}
+
+	/**
+	 * @param v Dense id of a vertex.
+	 * @return The name of that vertex.
+	 */
+	public String getVertexName(int v) {
+		return ids != null ? Long.toString(ids[v]) : names[v];
+	}
+
+	/**
+	 * @param v Dense id of a vertex.
+	 * @return The long id of that vertex, or its name parsed as a long if the vertices have names.
+	 */
+	public long getVertexId(int v) {
+		return ids != null ? ids[v] : Long.parseLong(names[v]);
+	}
+
+	/**
+	 * @return True if the vertices have long ids, false if they have names.
+	 */
+	public boolean hasLongIds() {
+		return ids != null;
+	}
+
+	/**
+	 * A name that is not a number can not be the name of any vertex with a long id.
+	 */
+	private static long ParseId(String vertexName) throws NoSuchVertexException {
+		try {
+			return Long.parseLong(vertexName);
+		} catch (NumberFormatException e) {
+			throw new NoSuchVertexException();
+		}
+	}
+
+	/**
+	 * @param v Dense id of a vertex.
+	 * @return The data of that vertex.
+	 */
+	@SuppressWarnings("unchecked")
+	public V getVertexData(int v) {
+		return store != null ? store.get(v) : (V)vertexData[v];
+	}
+
+	/**
+	 * @return The store holding the vertex data, null if the data is held as one object per vertex.
+	 */
+	public IVertexStore<V> getVertexStore() {
+		return store;
+	}
+
+	/**
+	 * @return The store holding the edge data, null if the data is held as one object per edge.
+	 */
+	public IEdgeStore<E> getEdgeStore() {
+		return edgeStore;
+	}
+
+	/**
+	 * @param e Index of a stored edge.
+	 * @return The data of that edge.
+	 */
+	@SuppressWarnings("unchecked")
+	public E getEdgeData(int e) {
+		return edgeStore != null ? edgeStore.get(e) : (E)edgeData[e];
+	}
+
+	/**
+	 * @param e Index of a stored edge.
+	 * @return The source vertex of that edge.
+	 */
+	public int getEdgeSource(int e) {
+		// Find the last row starting at or before e.
+		int lo = 0, hi = offsets.length - 2;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (offsets[mid] <= e) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @param e Index of a stored edge.
+	 * @return The edge as an encapsulated IGraph.Edge, in the direction it is stored.
+	 */
+	public IGraph.Edge<E> getEdge(int e) {
+		return new IGraph.Edge<E>(getVertexName(getEdgeSource(e)), getVertexName(targets[e]), getEdgeData(e));
+	}
+
+	/**
+	 * Find the stored edge from v1 to v2, ignoring the direction mode of the graph.
+	 * @param v1 Dense id of the source vertex.
+	 * @param v2 Dense id of the target vertex.
+	 * @return Index of the edge, or -1 if there is no such edge.
+	 */
+	public int findEdge(int v1, int v2) {
+		int lo = offsets[v1], hi = offsets[v1 + 1] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (targets[mid] < v2) {
+				lo = mid + 1;
+			} else if (targets[mid] > v2) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return Outgoing edge offsets by vertex id (length n+1).
+	 */
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	/**
+	 * @return Destination vertex of each stored edge.
+	 */
+	public int[] getTargets() {
+		return targets;
+	}
+
+	/**
+	 * @return Weight of each stored edge.
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * @return Incoming edge offsets by vertex id (length n+1).
+	 */
+	public int[] getInOffsets() {
+		return inOffsets;
+	}
+
+	/**
+	 * @return Source vertex of each incoming edge.
+	 */
+	public int[] getInSources() {
+		return inSources;
+	}
+
+	/**
+	 * @return Stored edge index of each incoming edge.
+	 */
+	public int[] getInEdges() {
+		return inEdges;
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * IGraph
+	 * ---------------------------------------------------------------------------- */
+
+	@Override
+	public void setDirectedGraph() {
+		directed = true;
+	}
+
+	@Override
+	public void setUndirectedGraph() {
+		directed = false;
+	}
+
+	@Override
+	public boolean isDirectedGraph() {
+		return directed;
+	}
+
+	@Override
+	public void addVertex(String vertexName) throws DuplicateVertexException {
+		throw new UnsupportedOperationException("CSRGraph is frozen");
+	}
+
+	@Override
+	public void addVertex(String vertexName, V vertexData) throws DuplicateVertexException {
+		throw new UnsupportedOperationException("CSRGraph is frozen");
+	}
+
+	@Override
+	public void addEdge(String vertex1, String vertex2) throws DuplicateEdgeException, NoSuchVertexException {
+		throw new UnsupportedOperationException("CSRGraph is frozen");
+	}
+
+	@Override
+	public void addEdge(String vertex1, String vertex2, E edgeData) throws DuplicateEdgeException, NoSuchVertexException {
+		throw new UnsupportedOperationException("CSRGraph is frozen");
+	}
+
+	@Override
+	public V getVertexData(String vertexName) throws NoSuchVertexException {
+		return getVertexData(getVertexIndex(vertexName));
+	}
+
+	@Override
+	public void setVertexData(String vertexName, V data) throws NoSuchVertexException {
+		if (store != null) {
+			store.set(getVertexIndex(vertexName), data);
+		} else {
+			vertexData[getVertexIndex(vertexName)] = data;
+		}
+	}
+
+	@Override
+	public E getEdgeData(String vertex1, String vertex2) throws NoSuchVertexException, NoSuchEdgeException {
+		int e = findEdge(vertex1, vertex2);
+		if (e < 0) {
+			throw new NoSuchEdgeException();
+		}
+		return getEdgeData(e);
+	}
+
+	@Override
+	public void setEdgeData(String vertex1, String vertex2, E data) throws NoSuchVertexException, NoSuchEdgeException {
+		int e = findEdge(vertex1, vertex2);
+		if (e < 0) {
+			throw new NoSuchEdgeException();
+		}
+		if (edgeStore != null) {
+			// The store keeps the shared weights array up to date itself.
+			edgeStore.set(e, data);
+		} else {
+			edgeData[e] = data;
+			weights[e] = data instanceof IWeight ? ((IWeight)data).getWeight() : 0.0;
+		}
+	}
+
+	@Override
+	public IGraph.Vertex<V> getVertex(String VertexName) {
+		int v = getVertexIndex(VertexName);
+		return new IGraph.Vertex<V>(getVertexName(v), getVertexData(v));
+	}
+
+	@Override
+	public IGraph.Edge<E> getEdge(String vertexName1, String vertexName2) {
+		int e = findEdge(vertexName1, vertexName2);
+		return e < 0 ? null : getEdge(e);
+	}
+
+	/**
+	 * Find the edge between the named vertices, respecting the direction mode of the graph.
+	 * @return Index of the edge, or -1 if there is no such edge.
+	 */
+	private int findEdge(String vertexName1, String vertexName2) {
+		int v1 = getVertexIndex(vertexName1);
+		int v2 = getVertexIndex(vertexName2);
+
+		int e = findEdge(v1, v2);
+		// If the graph is undirected, we may check in the reverse direction as well.
+		if (e < 0 && !directed) {
+			e = findEdge(v2, v1);
+		}
+		return e;
+	}
+
+	@Override
+	public List<IGraph.Vertex<V>> getVertices() {
+		List<IGraph.Vertex<V>> ret = new ArrayList<IGraph.Vertex<V>>(getVertexCount());
+		for (int v=0; v<getVertexCount(); v++) {
+			ret.add(new IGraph.Vertex<V>(getVertexName(v), getVertexData(v)));
+		}
+		return ret;
+	}
+
+	@Override
+	public List<IGraph.Edge<E>> getEdges() {
+		List<IGraph.Edge<E>> ret = new ArrayList<IGraph.Edge<E>>(targets.length);
+		for (int v=0; v<getVertexCount(); v++) {
+			for (int e=offsets[v]; e<offsets[v + 1]; e++) {
+				// When undirected, the edge (v, t) is a duplicate of a stored edge (t, v) with t < v.
+				if (!directed && targets[e] < v && findEdge(targets[e], v) >= 0) {
+					continue;
+				}
+				ret.add(new IGraph.Edge<E>(getVertexName(v), getVertexName(targets[e]), getEdgeData(e)));
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public List<IGraph.Vertex<V>> getNeighbors(String vertex) {
+		int v = getVertexIndex(vertex);
+
+		// Store neighbors in a set so we don't run into duplicates.
+		Set<IGraph.Vertex<V>> ret = new LinkedHashSet<IGraph.Vertex<V>>();
+		for (int e=offsets[v]; e<offsets[v + 1]; e++) {
+			ret.add(new IGraph.Vertex<V>(getVertexName(targets[e]), getVertexData(targets[e])));
+		}
+
+		// If this is an undirected graph, include the vertices with an edge into this vertex.
+		if (!directed) {
+			for (int i=inOffsets[v]; i<inOffsets[v + 1]; i++) {
+				ret.add(new IGraph.Vertex<V>(getVertexName(inSources[i]), getVertexData(inSources[i])));
+			}
+		}
+
+		return new ArrayList<IGraph.Vertex<V>>(ret);
+	}
+
+	@Override
+	public void forEachOutEdge(String vertex, IGraph.EdgeVisitor<E> visitor) throws NoSuchVertexException {
+		int v = getVertexIndex(vertex);
+		for (int e=offsets[v]; e<offsets[v + 1]; e++) {
+			visitor.visit(getVertexName(targets[e]), getEdgeData(e));
+		}
+
+		// If this is an undirected graph, include the edges into this vertex
+		// that do not just repeat an edge going out to the same vertex.
+		if (!directed) {
+			for (int i=inOffsets[v]; i<inOffsets[v + 1]; i++) {
+				if (findEdge(v, inSources[i]) < 0) {
+					visitor.visit(getVertexName(inSources[i]), getEdgeData(inEdges[i]));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void forEachInEdge(String vertex, IGraph.EdgeVisitor<E> visitor) throws NoSuchVertexException {
+		if (!directed) {
+			forEachOutEdge(vertex, visitor);
+			return;
+		}
+
+		int v = getVertexIndex(vertex);
+		for (int i=inOffsets[v]; i<inOffsets[v + 1]; i++) {
+			visitor.visit(getVertexName(inSources[i]), getEdgeData(inEdges[i]));
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class Graph<V, E> implements IGraph<V, E> {
@@ -22,21 +23,22 @@ public class Graph<V, E> implements IGraph<V, E> {
 	private HashMap<String, IGraph.Vertex<V>> vertices;
 	
 	/**
-	 * Uses the from vertex name as a key into a list of edges extending from that vertex to another vertex.
+	 * Uses the from vertex name as a key into the edges extending from that vertex to another vertex.
+	 * Each vertex's edges are keyed by the name of the vertex they go to, so looking up a
+	 * single edge is O(1) however many edges a vertex has.
 	 */
-	private HashMap<String, Set<IGraph.Edge<E>>> edges;
+	private HashMap<String, Map<String, IGraph.Edge<E>>> edges;
 	
 	/**
 	 * Contains the same data as the edges array, except in reverse order.
-	 * Thus the keys are denoted by the vertex2 name of an edge, and the edges
-	 * extend from that vertex. 
-	 * This will ONLY be used when directed is set to FALSE.
-	 * This will make some computations easier when using this as an undirected graph.
-	 * NOTE: As this is only used for the getNeighbors call which only returns vertices,
-	 * we do not actually need to store edge data in this set, all data of this set 
-	 * will be null to reflect that!!!
+	 * Thus the keys are denoted by the vertex2 name of an edge, and the values
+	 * are the names of the vertices with an edge into that vertex.
+	 * This is used when directed is set to FALSE, to find the edges a vertex has
+	 * in either direction, and by forEachInEdge(...) to walk edges backwards.
+	 * NOTE: As this is only used for walking edges backwards, which only needs the vertex
+	 * at the other end, the edge data is not stored here, it is looked up in edges.
 	 */
-	private HashMap<String, Set<IGraph.Edge<E>>> inverseEdges;
+	private HashMap<String, Set<String>> inverseEdges;
 	
 	/**
 	 * Constructs a new empty directed graph.
@@ -51,8 +53,8 @@ public class Graph<V, E> implements IGraph<V, E> {
 	 */
 	public Graph(boolean Directed) {
 		vertices = new HashMap<String, IGraph.Vertex<V>>();
-		edges = new HashMap<String, Set<IGraph.Edge<E>>>();
-		inverseEdges = new HashMap<String, Set<IGraph.Edge<E>>>();
+		edges = new HashMap<String, Map<String, IGraph.Edge<E>>>();
+		inverseEdges = new HashMap<String, Set<String>>();
 		directed = Directed;
 	}
 
@@ -84,8 +86,8 @@ public class Graph<V, E> implements IGraph<V, E> {
 		
 		// Add our vertex as well as a new set of edges extending from that vertex.
 		vertices.put(vertexName, new IGraph.Vertex<V>(vertexName, vertexData));
-		edges.put(vertexName, new HashSet<IGraph.Edge<E>>());
-		inverseEdges.put(vertexName, new HashSet<IGraph.Edge<E>>());
+		edges.put(vertexName, new HashMap<String, IGraph.Edge<E>>());
+		inverseEdges.put(vertexName, new HashSet<String>());
 	}
 
 	@Override
@@ -102,34 +104,26 @@ public class Graph<V, E> implements IGraph<V, E> {
 
 		}
 
-		// Get the set of edges extending from vertex1, this set must exist because vertex1 exists.
-		Set<IGraph.Edge<E>> s = edges.get(vertex1);
-		
-		// Create the edge we are going to add.
-		IGraph.Edge<E> e = new IGraph.Edge<E>(vertex1, vertex2, edgeData);
+		// Get the edges extending from vertex1, this map must exist because vertex1 exists.
+		Map<String, IGraph.Edge<E>> s = edges.get(vertex1);
 		
 		// Make sure it has not yet already been added.
-		if (s.contains(e)) {
+		if (s.containsKey(vertex2)) {
 			throw new DuplicateEdgeException();
 		}
 		
 		// If this is an undirected graph, make sure the edge vertex2->vertex1 is not present either.
 		// Technically my getEdges and getNeighbors methods do not care if this is here, just adding
 		// it so the exception is thrown in case that is tested for.
-		if (!directed) {
-			Set<IGraph.Edge<E>> i = edges.get(vertex2);
-			IGraph.Edge<E> tmp = new IGraph.Edge<E>(vertex2, vertex1, edgeData);
-			if (i.contains(tmp)) {
-				throw new DuplicateEdgeException();
-			}
+		if (!directed && edges.get(vertex2).containsKey(vertex1)) {
+			throw new DuplicateEdgeException();
 		}
 		
 		// ... else we are free to add the edge.
-		s.add(e);
+		s.put(vertex2, new IGraph.Edge<E>(vertex1, vertex2, edgeData));
 		
 		// ... also add it to our inverse set for use when our graph is not directed.
-		Set<IGraph.Edge<E>> inverse = inverseEdges.get(vertex2);
-		inverse.add(new IGraph.Edge<E>(vertex2, vertex1, null));
+		inverseEdges.get(vertex2).add(vertex1);
 	}
 
 	@Override
@@ -176,8 +170,8 @@ public class Graph<V, E> implements IGraph<V, E> {
 		}
 		
 		// We found the edge, now we need to replace it with an edge containing the correct edge data.
-		edges.get(vertex1).remove(e);
-		edges.get(vertex1).add(new IGraph.Edge<E>(vertex1, vertex2, edgeData));
+		// When undirected the edge found may be stored the other way around, replace it where it is.
+		edges.get(e.getVertexName1()).put(e.getVertexName2(), new IGraph.Edge<E>(e.getVertexName1(), e.getVertexName2(), edgeData));
 	}
 
 	@Override
@@ -196,29 +190,15 @@ public class Graph<V, E> implements IGraph<V, E> {
 			throw new NoSuchVertexException();
 		}
 
-		// Get the set of edges extending from vertex1, this set must exist because vertex1 exists.
-		Set<IGraph.Edge<E>> s = edges.get(vertexName1);
-
-		// Loop through all edges in the set, we only need to check vertex2 as vertex1
-		// is guaranteed to be the same by the creation of the set s.
-		for (IGraph.Edge<E> e : s) {
-			if (e.getVertexName2().equals(vertexName2)) {
-				// We found the edge, return it.
-				return e;
-			}
-		}
+		// The edges extending from vertex1 are keyed by the vertex they go to.
+		IGraph.Edge<E> e = edges.get(vertexName1).get(vertexName2);
 		
 		// If the graph is undirected, we may check in the reverse direction as well.
-		if (!directed) {
-			s = edges.get(vertexName2);
-			for (IGraph.Edge<E> e : s) {
-				if (e.getVertexName2().equals(vertexName1)) {
-					return e;
-				}
-			}
+		if (e == null && !directed) {
+			e = edges.get(vertexName2).get(vertexName1);
 		}
 
-		return null;
+		return e;
 	}
 
 	@Override
@@ -233,14 +213,14 @@ public class Graph<V, E> implements IGraph<V, E> {
 		// Iterate over all sets of edges.
 		// Note that if this graph is undirected, than we don't need to 
 		// consider the inverse edge list, as these would be considered duplicates.
-		for (Set<IGraph.Edge<E>> s : edges.values()) {
+		for (Map<String, IGraph.Edge<E>> s : edges.values()) {
 			if (directed) {
 				// We can add all the edges we want.
-				ret.addAll(s);
+				ret.addAll(s.values());
 			} else {
 				// The set will already check for duplicates, but does not consider inverse edges duplicates,
 				// we will need to filter them out manually here.
-				for (IGraph.Edge<E> e : s) {
+				for (IGraph.Edge<E> e : s.values()) {
 					IGraph.Edge<E> inverse = new IGraph.Edge<E>(e.getVertexName2(), e.getVertexName1(), null);
 					if (!ret.contains(inverse)) {
 						ret.add(e);
@@ -263,22 +243,62 @@ public class Graph<V, E> implements IGraph<V, E> {
 		// Store neighbors in a set so we don't run into duplicates.
 		HashSet<IGraph.Vertex<V>> ret = new HashSet<IGraph.Vertex<V>>();
 
-		// Get the set of edges extending from the input vertex.
-		Set<IGraph.Edge<E>> s = edges.get(vertex);
-		for (IGraph.Edge<E> e : s) {
-			ret.add(getVertex(e.getVertexName2()));
+		// Get the vertices the edges extending from the input vertex go to.
+		for (String t : edges.get(vertex).keySet()) {
+			ret.add(vertices.get(t));
 		}
 		
 		// If this is an undirected graph, include the set of vertices 
 		// extending from another vertex, into this vertex.
 		if (!directed) {
-			Set<IGraph.Edge<E>> i = inverseEdges.get(vertex);
-			for (IGraph.Edge<E> e : i) {
-				ret.add(getVertex(e.getVertexName2()));
+			for (String t : inverseEdges.get(vertex)) {
+				ret.add(vertices.get(t));
 			}
 		}
 
 		// Return the neighbors set as a List.
 		return new ArrayList<IGraph.Vertex<V>>(ret);
 	}
+
+	@Override
+	public void forEachOutEdge(String vertex, IGraph.EdgeVisitor<E> visitor) throws NoSuchVertexException {
+		// First we need to make sure each of our vertices exists.
+		Map<String, IGraph.Edge<E>> s = edges.get(vertex);
+		if (s == null) {
+			throw new NoSuchVertexException();
+		}
+
+		for (IGraph.Edge<E> e : s.values()) {
+			visitor.visit(e.getVertexName2(), e.getEdgeData());
+		}
+
+		// If this is an undirected graph, edges into this vertex may be walked backwards,
+		// unless they just repeat an edge going out to the same vertex.
+		if (!directed) {
+			for (String from : inverseEdges.get(vertex)) {
+				if (!s.containsKey(from)) {
+					visitor.visit(from, edges.get(from).get(vertex).getEdgeData());
+				}
+			}
+		}
+	}
+
+	@Override
+	public void forEachInEdge(String vertex, IGraph.EdgeVisitor<E> visitor) throws NoSuchVertexException {
+		if (!directed) {
+			forEachOutEdge(vertex, visitor);
+			return;
+		}
+
+		// First we need to make sure each of our vertices exists.
+		Set<String> s = inverseEdges.get(vertex);
+		if (s == null) {
+			throw new NoSuchVertexException();
+		}
+
+		// The inverse set names the vertices with an edge into this one, the data is kept with the edge itself.
+		for (String from : s) {
+			visitor.visit(from, edges.get(from).get(vertex).getEdgeData());
+		}
+	}
 }
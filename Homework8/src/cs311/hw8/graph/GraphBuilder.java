@@ -0,0 +1,371 @@
+package cs311.hw8.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import cs311.hw8.graph.IGraph.DuplicateVertexException;
+import cs311.hw8.graph.IGraph.NoSuchVertexException;
+
+/**
+ * Collects vertices and edges in bulk and turns them into a CSRGraph in one go.
+ * Unlike Graph.addEdge(...), adding an edge does no checking at all, it is just appended
+ * to a few growing arrays. The edges are checked once, by build(): every edge must join two
+ * added vertices, and an edge given more than once is only kept the first time
+ * (in undirected mode the reverse of an earlier edge counts as the same edge, as with Graph).
+ *
+ * build() sorts the edges by (source, target) with two counting sorts, so it is linear in
+ * the size of the graph, and no Set or IGraph.Edge object is created for any of them.
+ *
+ * Vertices are either named by Strings or numbered by long ids (such as OSM node ids), chosen
+ * when the builder is created. With long ids no String is made for any vertex, the ids are
+ * indexed by a LongIntHashMap and the graph built keeps them the same way. Either kind of
+ * builder accepts both kinds of key, a long id is named by its decimal form.
+ */
+public class GraphBuilder<V, E> {
+
+	/**
+	 * If true the graph built will be directed, if false it will be undirected.
+	 */
+	private boolean directed;
+
+	/**
+	 * True if vertices are numbered by long ids, false if they are named.
+	 */
+	private boolean longIds;
+
+	/**
+	 * Maps each vertex name (or long id) to its dense id, handed over to the graph built.
+	 * Only the one matching the kind of key is used, the other is null.
+	 */
+	private HashMap<String, Integer> index;
+	private LongIntHashMap idIndex;
+
+	/**
+	 * Name (or long id) and data of each vertex by dense id, only the first 'n' entries are used.
+	 */
+	private String[] names;
+	private long[] ids;
+	private Object[] vertexData;
+	private int n;
+
+	/**
+	 * Source, target and data of each edge in the order added, only the first 'm' entries are used.
+	 * An edge to or from an unknown vertex is stored with an id of -1 until build() rejects it.
+	 */
+	private int[] sources;
+	private int[] targets;
+	private Object[] edgeData;
+	private int m;
+
+	/**
+	 * Start an empty directed builder with named vertices.
+	 */
+	public GraphBuilder() {
+		this(true, false, 16, 16);
+	}
+
+	/**
+	 * Start an empty builder with named vertices.
+	 * @param Directed If true the graph built will be directed, if false it will be undirected.
+	 * @param Vertices Number of vertices expected, the builder grows past it if needed.
+	 * @param Edges Number of edges expected, the builder grows past it if needed.
+	 */
+	public GraphBuilder(boolean Directed, int Vertices, int Edges) {
+		this(Directed, false, Vertices, Edges);
+	}
+
+	/**
+	 * Start an empty builder.
+	 * @param Directed If true the graph built will be directed, if false it will be undirected.
+	 * @param LongIds If true vertices are numbered by long ids, if false they are named by Strings.
+	 * @param Vertices Number of vertices expected, the builder grows past it if needed.
+	 * @param Edges Number of edges expected, the builder grows past it if needed.
+	 */
+	public GraphBuilder(boolean Directed, boolean LongIds, int Vertices, int Edges) {
+		directed = Directed;
+		longIds = LongIds;
+		Reset(Math.max(Vertices, 1), Math.max(Edges, 1));
+	}
+
+	/**
+	 * Empty the builder, keeping the direction mode and kind of key.
+	 */
+	private void Reset(int Vertices, int Edges) {
+		if (longIds) {
+			idIndex = new LongIntHashMap(Vertices);
+			ids = new long[Vertices];
+		} else {
+			index = new HashMap<String, Integer>(Vertices * 2);
+			names = new String[Vertices];
+		}
+		vertexData = new Object[Vertices];
+		n = 0;
+		sources = new int[Edges];
+		targets = new int[Edges];
+		edgeData = new Object[Edges];
+		m = 0;
+	}
+
+	/**
+	 * @return The number of vertices added so far.
+	 */
+	public int getVertexCount() {
+		return n;
+	}
+
+	/**
+	 * @return The number of edges added so far, including any duplicates build() will drop.
+	 */
+	public int getEdgeCount() {
+		return m;
+	}
+
+	/**
+	 * @param vertexName Name of a vertex.
+	 * @return The dense id the vertex will have in the graph built, -1 if it has not been added.
+	 */
+	public int getVertexIndex(String vertexName) {
+		if (longIds) {
+			try {
+				return getVertexIndex(Long.parseLong(vertexName));
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+		Integer i = index.get(vertexName);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * @param id Long id of a vertex.
+	 * @return The dense id the vertex will have in the graph built, -1 if it has not been added.
+	 */
+	public int getVertexIndex(long id) {
+		return longIds ? idIndex.get(id) : getVertexIndex(Long.toString(id));
+	}
+
+	/**
+	 * @param v Dense id of an added vertex.
+	 * @return The data of that vertex.
+	 */
+	@SuppressWarnings("unchecked")
+	public V getVertexData(int v) {
+		return (V)vertexData[v];
+	}
+
+	/**
+	 * Add a vertex, its dense id is the number of vertices added before it.
+	 * @param vertexName Name of the vertex.
+	 * @param vertexData Data of the vertex.
+	 * @return The dense id of the new vertex.
+	 * @throws DuplicateVertexException If a vertex with this name has already been added.
+	 */
+	public int addVertex(String vertexName, V vertexData) throws DuplicateVertexException {
+		if (longIds) {
+			return addVertex(Long.parseLong(vertexName), vertexData);
+		}
+		// The name has to be indexed anyway, so this check is free.
+		if (index.putIfAbsent(vertexName, n) != null) {
+			throw new DuplicateVertexException();
+		}
+		if (n == names.length) {
+			names = Arrays.copyOf(names, n * 2);
+			this.vertexData = Arrays.copyOf(this.vertexData, n * 2);
+		}
+		names[n] = vertexName;
+		this.vertexData[n] = vertexData;
+		return n++;
+	}
+
+	/**
+	 * Add a vertex, its dense id is the number of vertices added before it.
+	 * @param id Long id of the vertex.
+	 * @param vertexData Data of the vertex.
+	 * @return The dense id of the new vertex.
+	 * @throws DuplicateVertexException If a vertex with this id has already been added.
+	 */
+	public int addVertex(long id, V vertexData) throws DuplicateVertexException {
+		if (!longIds) {
+			return addVertex(Long.toString(id), vertexData);
+		}
+		if (idIndex.putIfAbsent(id, n) != LongIntHashMap.MISSING) {
+			throw new DuplicateVertexException();
+		}
+		if (n == ids.length) {
+			ids = Arrays.copyOf(ids, n * 2);
+			this.vertexData = Arrays.copyOf(this.vertexData, n * 2);
+		}
+		ids[n] = id;
+		this.vertexData[n] = vertexData;
+		return n++;
+	}
+
+	/**
+	 * Add an edge between two vertices by name, nothing is checked until build().
+	 * @param vertex1 Name of the source vertex.
+	 * @param vertex2 Name of the target vertex.
+	 * @param edgeData Data of the edge.
+	 */
+	public void addEdge(String vertex1, String vertex2, E edgeData) {
+		addEdge(getVertexIndex(vertex1), getVertexIndex(vertex2), edgeData);
+	}
+
+	/**
+	 * Add an edge between two vertices by dense id, nothing is checked until build().
+	 * @param v1 Dense id of the source vertex.
+	 * @param v2 Dense id of the target vertex.
+	 * @param edgeData Data of the edge.
+	 */
+	public void addEdge(int v1, int v2, E edgeData) {
+		if (m == sources.length) {
+			sources = Arrays.copyOf(sources, m * 2);
+			targets = Arrays.copyOf(targets, m * 2);
+			this.edgeData = Arrays.copyOf(this.edgeData, m * 2);
+		}
+		sources[m] = v1;
+		targets[m] = v2;
+		this.edgeData[m] = edgeData;
+		m++;
+	}
+
+	/**
+	 * Check and sort everything added into a new graph, then empty the builder so it may be reused.
+	 * Vertex i of the graph is the i'th vertex added.
+	 * @return The graph built.
+	 * @throws NoSuchVertexException If an edge was added to or from a vertex that was never added.
+	 */
+	public CSRGraph<V, E> build() throws NoSuchVertexException {
+		return build(null, null);
+	}
+
+	/**
+	 * Check and sort everything added into a new graph whose vertex and edge data are held by the
+	 * given stores, then empty the builder so it may be reused.
+	 * Vertex i of the graph is the i'th vertex added, its data is Store.get(i) when there is a store.
+	 * The edge store must hold the data of the i'th edge added at index i, build() reorders it to
+	 * match the graph (dropping repeated edges) and the data given to addEdge(...) is ignored.
+	 * @param Store Holds the data of every vertex by dense id, null to use the data given to addVertex(...).
+	 * @param Edges Holds the data of every edge in the order added, null to use the data given to addEdge(...).
+	 * @return The graph built.
+	 * @throws NoSuchVertexException If an edge was added to or from a vertex that was never added.
+	 */
+	public CSRGraph<V, E> build(IVertexStore<V> Store, IEdgeStore<E> Edges) throws NoSuchVertexException {
+		if (Store != null && Store.size() != n) {
+			throw new IllegalArgumentException("Vertex store holds " + Store.size() + " vertices, " + n + " were added");
+		}
+		if (Edges != null && Edges.size() != m) {
+			throw new IllegalArgumentException("Edge store holds " + Edges.size() + " edges, " + m + " were added");
+		}
+
+		for (int i=0; i<m; i++) {
+			if (sources[i] < 0 || sources[i] >= n || targets[i] < 0 || targets[i] >= n) {
+				throw new NoSuchVertexException();
+			}
+		}
+
+		// Order the edges by target, then (stably) by source, so each row comes out sorted by
+		// target and copies of the same edge sit next to each other in the order they were added.
+		int[] order = SortBy(sources, n, SortBy(targets, n, null));
+
+		// Lay out the rows, keeping only the first copy of each edge.
+		int[] offsets = new int[n + 1];
+		int[] first = new int[m];
+		int kept = 0;
+		for (int k=0; k<m; k++) {
+			int i = order[k];
+			if (kept > 0 && sources[first[kept - 1]] == sources[i] && targets[first[kept - 1]] == targets[i]) {
+				continue;
+			}
+			offsets[sources[i] + 1]++;
+			first[kept++] = i;
+		}
+		for (int v=0; v<n; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+
+		int[] rowTargets = new int[kept];
+		for (int k=0; k<kept; k++) {
+			rowTargets[k] = targets[first[k]];
+		}
+
+		// Undirected, v->u repeats an earlier u->v, keep whichever of the two was added first.
+		if (!directed) {
+			boolean[] drop = new boolean[kept];
+			int dropped = 0;
+			for (int u=0; u<n; u++) {
+				for (int k=offsets[u]; k<offsets[u + 1]; k++) {
+					int v = rowTargets[k];
+					if (v == u) {
+						continue;
+					}
+					int r = Arrays.binarySearch(rowTargets, offsets[v], offsets[v + 1], u);
+					if (r >= 0 && first[r] < first[k]) {
+						drop[k] = true;
+						dropped++;
+					}
+				}
+			}
+
+			if (dropped > 0) {
+				int[] counts = new int[n + 1];
+				int j = 0;
+				for (int u=0; u<n; u++) {
+					for (int k=offsets[u]; k<offsets[u + 1]; k++) {
+						if (!drop[k]) {
+							rowTargets[j] = rowTargets[k];
+							first[j++] = first[k];
+							counts[u + 1]++;
+						}
+					}
+				}
+				for (int v=0; v<n; v++) {
+					counts[v + 1] += counts[v];
+				}
+				offsets = counts;
+				kept = j;
+				rowTargets = Arrays.copyOf(rowTargets, kept);
+			}
+		}
+
+		Object[] rowData = null;
+		if (Edges != null) {
+			Edges.reorder(first, kept);
+		} else {
+			rowData = new Object[kept];
+			for (int k=0; k<kept; k++) {
+				rowData[k] = edgeData[first[k]];
+			}
+		}
+
+		Object[] data = Store == null ? Arrays.copyOf(vertexData, n) : null;
+		CSRGraph<V, E> g = longIds
+				? new CSRGraph<V, E>(directed, Arrays.copyOf(ids, n), idIndex, data, Store, offsets, rowTargets, rowData, Edges)
+				: new CSRGraph<V, E>(directed, Arrays.copyOf(names, n), index, data, Store, offsets, rowTargets, rowData, Edges);
+		Reset(16, 16);
+		return g;
+	}
+
+	/**
+	 * Stable counting sort of edge indices by a key in 0..n-1.
+	 * @param key Key of each edge.
+	 * @param n Number of distinct keys.
+	 * @param in Edge indices in their current order, null for 0..m-1.
+	 * @return The edge indices ordered by key, ties left in their current order.
+	 */
+	private int[] SortBy(int[] key, int n, int[] in) {
+		int[] next = new int[n + 1];
+		for (int i=0; i<m; i++) {
+			next[key[i] + 1]++;
+		}
+		for (int v=0; v<n; v++) {
+			next[v + 1] += next[v];
+		}
+
+		int[] out = new int[m];
+		for (int k=0; k<m; k++) {
+			int i = in == null ? k : in[k];
+			out[next[key[i]]++] = i;
+		}
+		return out;
+	}
+}
@@ -0,0 +1,292 @@
+package cs311.hw8.graph;
+
+import static cs311.hw8.graphalgorithms.GraphAlgorithms.ShortestPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cs311.hw8.graph.IGraph.Edge;
+import cs311.hw8.graphalgorithms.IWeight;
+
+/**
+ * Tests of the graph implementations themselves, mostly the frozen CSRGraph against the Graph it was built from.
+ */
+public class GraphTests {
+
+	private static double EPSILON = .0000007;
+
+	@Test public void FrozenGraphTest() {
+		Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+		g.setUndirectedGraph();
+		g.addVertex("A");
+		g.addVertex("B");
+		g.addVertex("C");
+		g.addVertex("D");
+		g.addVertex("E");
+
+		g.addEdge("A", "B", new Weight(4));
+		g.addEdge("C", "A", new Weight(1));
+		g.addEdge("B", "C", new Weight(1));
+		g.addEdge("D", "B", new Weight(5));
+		g.addEdge("C", "E", new Weight(7));
+		g.addEdge("E", "D", new Weight(1));
+
+		// The frozen copy must give back exactly the same edges, undirected and directed.
+		CSRGraph<Integer, IWeight> frozen = new CSRGraph<>(g);
+		assertEquals(ShortestPath(g, "A", "D"), ShortestPath(frozen, "A", "D"));
+		assertEquals(ShortestPath(g, "D", "A"), ShortestPath(frozen, "D", "A"));
+		assertEquals(7.0, findPathSum(ShortestPath(frozen, "A", "D")), EPSILON);
+
+		g.setDirectedGraph();
+		frozen.setDirectedGraph();
+		assertEquals(ShortestPath(g, "A", "D"), ShortestPath(frozen, "A", "D"));
+		assertEquals(ShortestPath(g, "C", "B"), ShortestPath(frozen, "C", "B"));
+		assertEquals(13.0, findPathSum(ShortestPath(frozen, "A", "D")), EPSILON);
+	}
+
+	@Test public void ForEachOutEdgeTest() {
+		// The visitor must see exactly the neighbors and edge data getNeighbors / getEdge give,
+		// including antiparallel edges in undirected mode.
+		Graph<Integer, IWeight> g = randomGraph(17, 30, 120);
+		CSRGraph<Integer, IWeight> frozen = new CSRGraph<>(g);
+
+		for (boolean directed : new boolean[] { true, false }) {
+			if (!directed) {
+				g.setUndirectedGraph();
+				frozen.setUndirectedGraph();
+			}
+			List<IGraph<Integer, IWeight>> graphs = new ArrayList<>();
+			graphs.add(g);
+			graphs.add(frozen);
+			for (IGraph<Integer, IWeight> graph : graphs) {
+				for (int i = 0; i < 30; i++) {
+					final String v = "v" + i;
+					final Map<String, IWeight> seen = new HashMap<>();
+					graph.forEachOutEdge(v, new IGraph.EdgeVisitor<IWeight>() {
+						public void visit(String target, IWeight data) {
+							assertTrue(seen.put(target, data) == null);
+						}
+					});
+					assertEquals(graph.getNeighbors(v).size(), seen.size());
+					for (IGraph.Vertex<Integer> n : graph.getNeighbors(v)) {
+						assertTrue(graph.getEdge(v, n.getVertexName()).getEdgeData() == seen.get(n.getVertexName()));
+					}
+				}
+			}
+		}
+	}
+
+	@Test public void ForEachInEdgeTest() {
+		// Directed, the visitor must see exactly the edges ending at the vertex, with their data.
+		// Undirected, entering and leaving are the same, so it must see the out edges.
+		Graph<Integer, IWeight> g = randomGraph(19, 30, 120);
+		CSRGraph<Integer, IWeight> frozen = new CSRGraph<>(g);
+
+		for (boolean directed : new boolean[] { true, false }) {
+			if (!directed) {
+				g.setUndirectedGraph();
+				frozen.setUndirectedGraph();
+			}
+			List<IGraph<Integer, IWeight>> graphs = new ArrayList<>();
+			graphs.add(g);
+			graphs.add(frozen);
+			for (IGraph<Integer, IWeight> graph : graphs) {
+				for (int i = 0; i < 30; i++) {
+					final String v = "v" + i;
+					final Map<String, IWeight> in = new HashMap<>(), out = new HashMap<>();
+					graph.forEachInEdge(v, new IGraph.EdgeVisitor<IWeight>() {
+						public void visit(String source, IWeight data) {
+							assertTrue(in.put(source, data) == null);
+						}
+					});
+					if (graph.isDirectedGraph()) {
+						for (IGraph.Edge<IWeight> e : graph.getEdges()) {
+							if (e.getVertexName2().equals(v)) {
+								out.put(e.getVertexName1(), e.getEdgeData());
+							}
+						}
+					} else {
+						graph.forEachOutEdge(v, new IGraph.EdgeVisitor<IWeight>() {
+							public void visit(String target, IWeight data) {
+								out.put(target, data);
+							}
+						});
+					}
+					assertEquals(out, in);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A graph of n vertices "v0" .. "v(n-1)" with up to m random edges of weight 1 to 20,
+	 * the same graph for the same seed. Loops and repeated edges are left out.
+	 */
+	private static Graph<Integer, IWeight> randomGraph(long seed, int n, int m) {
+		Random r = new Random(seed);
+		Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+		for (int i = 0; i < n; i++) {
+			g.addVertex("v" + i);
+		}
+		for (int i = 0; i < m; i++) {
+			String a = "v" + r.nextInt(n), b = "v" + r.nextInt(n);
+			if (!a.equals(b) && g.getEdge(a, b) == null) {
+				g.addEdge(a, b, new Weight(1 + r.nextInt(20)));
+			}
+		}
+		return g;
+	}
+
+	@Test public void EdgeLookupTest() throws IGraph.NoSuchEdgeException {
+		// A hub with many edges, every lookup and update must hit the right one.
+		Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+		g.addVertex("hub");
+		for (int i = 0; i < 500; i++) {
+			g.addVertex("v" + i);
+			g.addEdge("hub", "v" + i, new Weight(i));
+		}
+		for (int i = 0; i < 500; i++) {
+			assertEquals(i, g.getEdge("hub", "v" + i).getEdgeData().getWeight(), EPSILON);
+			assertTrue(g.getEdge("v" + i, "hub") == null);
+		}
+
+		// Undirected, the edge is found from either end and updated where it is stored.
+		g.setUndirectedGraph();
+		g.setEdgeData("v7", "hub", new Weight(70));
+		assertEquals(70.0, g.getEdge("hub", "v7").getEdgeData().getWeight(), EPSILON);
+		assertEquals(70.0, g.getEdge("v7", "hub").getEdgeData().getWeight(), EPSILON);
+		assertEquals(500, g.getEdges().size());
+		try {
+			g.addEdge("v7", "hub", new Weight(1));
+			fail();
+		} catch (IGraph.DuplicateEdgeException e) {
+			// expected
+		}
+	}
+
+	@Test public void GraphBuilderTest() {
+		// Built in bulk with repeated edges, the graph must match one built an edge at a time.
+		Random r = new Random(5);
+		for (boolean directed : new boolean[] { true, false }) {
+			Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+			if (!directed) {
+				g.setUndirectedGraph();
+			}
+			GraphBuilder<Integer, IWeight> b = new GraphBuilder<>(directed, 4, 4);
+			for (int i = 0; i < 40; i++) {
+				g.addVertex("v" + i, i);
+				assertEquals(i, b.addVertex("v" + i, i));
+			}
+			for (int i = 0; i < 300; i++) {
+				String a = "v" + r.nextInt(40), c = "v" + r.nextInt(40);
+				Weight w = new Weight(1 + r.nextInt(20));
+				b.addEdge(a, c, w);
+				if (g.getEdge(a, c) == null) {
+					g.addEdge(a, c, w);
+				}
+			}
+
+			CSRGraph<Integer, IWeight> built = b.build();
+			assertEquals(directed, built.isDirectedGraph());
+			assertEquals(g.getEdges().size(), built.getEdges().size());
+			for (IGraph.Edge<IWeight> e : g.getEdges()) {
+				assertTrue(built.getEdge(e.getVertexName1(), e.getVertexName2()).getEdgeData() == e.getEdgeData());
+			}
+			for (int i = 0; i < 40; i++) {
+				assertEquals(Integer.valueOf(i), built.getVertexData("v" + i));
+				assertEquals(ShortestPath(g, "v0", "v" + i).size(), ShortestPath(built, "v0", "v" + i).size());
+			}
+			assertEquals(0, b.getVertexCount());
+		}
+
+		GraphBuilder<Integer, IWeight> b = new GraphBuilder<>();
+		b.addVertex("A", 0);
+		b.addEdge("A", "B", new Weight(1));
+		try {
+			b.build();
+			fail();
+		} catch (IGraph.NoSuchVertexException e) {
+			// expected
+		}
+	}
+
+	@Test public void LongIdGraphTest() {
+		// The id index must agree with a HashMap, including negative and widely spread ids.
+		Random r = new Random(3);
+		LongIntHashMap map = new LongIntHashMap(1);
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 20000; i++) {
+			long key = i % 2 == 0 ? r.nextLong() : 4000000000L + r.nextInt(30000);
+			int value = r.nextInt(1000000);
+			Integer old = expected.put(key, value);
+			assertEquals(old == null ? LongIntHashMap.MISSING : old.intValue(), map.put(key, value));
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+			assertEquals(e.getValue().intValue(), map.get(e.getKey()));
+		}
+		assertEquals(LongIntHashMap.MISSING, map.get(4000030001L));
+
+		// A graph with long ids answers to the ids in decimal through the String API.
+		GraphBuilder<Integer, IWeight> b = new GraphBuilder<>(true, true, 1, 1);
+		long[] ids = { 9000000001L, -5, 42 };
+		for (long id : ids) {
+			b.addVertex(id, (int)id);
+		}
+		b.addEdge(b.getVertexIndex(9000000001L), b.getVertexIndex(-5), new Weight(1));
+		b.addEdge(b.getVertexIndex("-5"), b.getVertexIndex("42"), new Weight(2));
+		CSRGraph<Integer, IWeight> g = b.build();
+		assertTrue(g.hasLongIds());
+		for (int v = 0; v < ids.length; v++) {
+			assertEquals(ids[v], g.getVertexId(v));
+			assertEquals(v, g.getVertexIndex(ids[v]));
+			assertEquals(v, g.getVertexIndex(Long.toString(ids[v])));
+		}
+		assertEquals(3.0, findPathSum(ShortestPath(g, "9000000001", "42")), EPSILON);
+		assertEquals(2, g.getNeighbors("9000000001").size() + g.getNeighbors("-5").size());
+		try {
+			g.getVertexIndex("A");
+			fail();
+		} catch (IGraph.NoSuchVertexException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * @return The sum of the weights along a path.
+	 */
+	private static double findPathSum(List<Edge<IWeight>> list) {
+		double sum = 0.0;
+		for (Edge<IWeight> edge : list) {
+			sum += edge.getEdgeData().getWeight();
+		}
+		return sum;
+	}
+
+	private static class Weight implements IWeight {
+
+		private double weight;
+
+		public Weight(double weight) {
+			this.weight = weight;
+		}
+
+		@Override
+		public double getWeight() {
+			return weight;
+		}
+
+		@Override
+		public String toString() {
+			return weight + "";
+		}
+	}
+}
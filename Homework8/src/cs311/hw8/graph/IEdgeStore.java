@@ -0,0 +1,41 @@
+package cs311.hw8.graph;
+
+/**
+ * Holds the edge data of a CSRGraph by stored edge index in whatever form suits it,
+ * instead of one object per edge. As with IVertexStore the data object is only made when
+ * it is asked for, so get(...) may return a new object each call.
+ * The weight of each edge is kept by the store in an array the graph searches directly.
+ * @param <E> Type of edge data handed out.
+ */
+public interface IEdgeStore<E>
+{
+    /**
+     * @return The number of edges stored.
+     */
+    public int size();
+
+    /**
+     * @param e Index of a stored edge.
+     * @return The data of that edge.
+     */
+    public E get(int e);
+
+    /**
+     * Replace the data of an edge, updating its weight to match.
+     * @param e Index of a stored edge.
+     * @param data The new data of that edge.
+     */
+    public void set(int e, E data);
+
+    /**
+     * @return The weight of each stored edge by index, shared with the graph (not a copy).
+     */
+    public double[] getWeights();
+
+    /**
+     * Rearrange the edges, for when the graph sorts them, keeping only the first 'count' given.
+     * @param order Edge k afterwards is the edge order[k] before.
+     * @param count Number of edges kept, the first 'count' entries of order.
+     */
+    public void reorder(int[] order, int count);
+}
@@ -0,0 +1,28 @@
+package cs311.hw8.graph;
+
+/**
+ * Holds the vertex data of a CSRGraph by dense vertex id in whatever form suits it,
+ * instead of one object per vertex. The data object is then only made when it is asked for,
+ * so get(...) may return a new object each call, equal in content but not the same instance.
+ * @param <V> Type of vertex data handed out.
+ */
+public interface IVertexStore<V>
+{
+    /**
+     * @return The number of vertices stored.
+     */
+    public int size();
+
+    /**
+     * @param v Dense id of a vertex.
+     * @return The data of that vertex.
+     */
+    public V get(int v);
+
+    /**
+     * Replace the data of a vertex.
+     * @param v Dense id of a vertex.
+     * @param data The new data of that vertex.
+     */
+    public void set(int v, V data);
+}
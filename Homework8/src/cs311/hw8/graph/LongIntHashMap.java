@@ -0,0 +1,153 @@
+package cs311.hw8.graph;
+
+import java.util.Arrays;
+
+/**
+ * Map from long keys to non-negative int values, stored in two flat arrays with open addressing
+ * (linear probing). Nothing is boxed and no entry objects are created, so a map of a few hundred
+ * thousand OSM node ids to dense vertex ids costs two arrays instead of that many HashMap entries.
+ * Entries can not be removed, which is all a vertex index needs.
+ */
+public class LongIntHashMap {
+
+	/**
+	 * Value returned for a key that is not in the map, it also marks an empty slot.
+	 */
+	public static final int MISSING = -1;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * Number of entries past which the arrays are doubled, 3/4 of the capacity.
+	 */
+	private int limit;
+
+	/**
+	 * Constructs an empty map.
+	 * @param Expected Number of entries expected, the map grows past it if needed.
+	 */
+	public LongIntHashMap(int Expected) {
+		int capacity = 16;
+		while (capacity * 3 / 4 < Expected) {
+			capacity *= 2;
+		}
+		Allocate(capacity);
+	}
+
+	/**
+	 * @return Number of entries in the map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param key Key to look up.
+	 * @return The value stored for the key, MISSING if there is none.
+	 */
+	public int get(long key) {
+		int mask = keys.length - 1;
+		for (int i=Slot(key, mask); values[i] != MISSING; i=(i + 1) & mask) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+		}
+		return MISSING;
+	}
+
+	/**
+	 * @param key Key to look up.
+	 * @return True if a value is stored for the key.
+	 */
+	public boolean containsKey(long key) {
+		return get(key) != MISSING;
+	}
+
+	/**
+	 * Store a value for the key, replacing any value already stored.
+	 * @param key Key to store the value under.
+	 * @param value Value to store, must not be negative.
+	 * @return The value previously stored for the key, MISSING if there was none.
+	 */
+	public int put(long key, int value) {
+		return Put(key, value, true);
+	}
+
+	/**
+	 * Store a value for the key unless one is stored already.
+	 * @param key Key to store the value under.
+	 * @param value Value to store, must not be negative.
+	 * @return The value already stored for the key (which is kept), MISSING if there was none.
+	 */
+	public int putIfAbsent(long key, int value) {
+		return Put(key, value, false);
+	}
+
+	private int Put(long key, int value, boolean replace) {
+		if (value < 0) {
+			throw new IllegalArgumentException("LongIntHashMap values must not be negative");
+		}
+
+		int mask = keys.length - 1;
+		int i = Slot(key, mask);
+		for (; values[i] != MISSING; i=(i + 1) & mask) {
+			if (keys[i] == key) {
+				int old = values[i];
+				if (replace) {
+					values[i] = value;
+				}
+				return old;
+			}
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		if (++size > limit) {
+			Grow();
+		}
+		return MISSING;
+	}
+
+	/**
+	 * Double the capacity, placing every entry again.
+	 */
+	private void Grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		Allocate(keys.length * 2);
+
+		int mask = keys.length - 1;
+		for (int k=0; k<oldKeys.length; k++) {
+			if (oldValues[k] != MISSING) {
+				int i = Slot(oldKeys[k], mask);
+				while (values[i] != MISSING) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[k];
+				values[i] = oldValues[k];
+			}
+		}
+	}
+
+	private void Allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, MISSING);
+		limit = capacity * 3 / 4;
+	}
+
+	/**
+	 * Home slot of a key. OSM ids are close to sequential, so the bits are mixed
+	 * (the 64 bit finalizer of MurmurHash3) before masking to keep runs of ids from clustering.
+	 */
+	private static int Slot(long key, int mask) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key & mask;
+	}
+}
@@ -0,0 +1,250 @@
+package cs311.hw8.graphalgorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cs311.hw8.graph.CSRGraph;
+import cs311.hw8.graph.IGraph;
+import cs311.hw8.graph.IGraph.NoSuchVertexException;
+
+/**
+ * Point to point shortest paths by running Dijkstra's algorithm from both ends at once.
+ * The forward search follows outgoing edges from the start, the backward search follows
+ * incoming edges (the reverse adjacency) from the end, and the two meet in the middle.
+ * Each search only has to cover a disc of about half the radius, roughly halving the work
+ * of a one directional search on road networks.
+ *
+ * Stopping rule: let mu be the length of the best start-end path seen so far that crosses
+ * an edge from a vertex reached by the forward search to one reached by the backward search.
+ * Once the smallest keys of the two queues add up to at least mu no shorter path can exist:
+ * a shorter path would have to contain an edge between a vertex unsettled forward and one
+ * unsettled backward, and its length would then be at least the sum of those two keys.
+ *
+ * The work arrays are allocated once, when the search is created, and stamped with the
+ * query's round number as in DijkstraSearch, so one search can answer many queries without
+ * clearing them. A search is not thread safe, give each thread its own.
+ */
+public class BidirectionalDijkstra<V, E extends IWeight> {
+
+	private final CSRGraph<V, E> g;
+	private final int[] offsets, targets, inOffsets, inSources, inEdges;
+	private final double[] weights;
+
+	/**
+	 * Whether the graph was undirected when the current query started.
+	 */
+	private boolean undirected;
+
+	/**
+	 * Distance from the start (forward) or to the end (backward) of each vertex,
+	 * only valid where reachedF[v] (or reachedB[v]) == round.
+	 */
+	private final double[] distF, distB;
+
+	/**
+	 * Stored edge used to reach each vertex in either search, only valid where the vertex was reached this round.
+	 */
+	private final int[] prevF, prevB;
+
+	/**
+	 * Round in which each vertex was last reached and settled by either search.
+	 */
+	private final int[] reachedF, reachedB, settledF, settledB;
+
+	private final IndexedHeap QF, QB;
+
+	/**
+	 * Number of the current query, starting from 1 so that the zeroed stamp arrays read as unreached.
+	 */
+	private int round;
+
+	/**
+	 * Length of the best path found so far. That path follows the forward search to meetF,
+	 * crosses meetEdge to meetB, then follows the backward search to the end.
+	 * Distances may still shrink after it is recorded, but prev pointers always match the
+	 * current distances, so the path rebuilt at the end is never longer than mu.
+	 */
+	private double mu;
+	private int meetF, meetB, meetEdge;
+
+	/**
+	 * Prepare a search over the given graph.
+	 * @param G The graph to search, its direction mode at the time of each query is respected.
+	 */
+	public BidirectionalDijkstra(CSRGraph<V, E> G) {
+		g = G;
+		offsets = g.getOffsets();
+		targets = g.getTargets();
+		weights = g.getWeights();
+		inOffsets = g.getInOffsets();
+		inSources = g.getInSources();
+		inEdges = g.getInEdges();
+
+		int n = g.getVertexCount();
+		distF = new double[n];
+		distB = new double[n];
+		prevF = new int[n];
+		prevB = new int[n];
+		reachedF = new int[n];
+		reachedB = new int[n];
+		settledF = new int[n];
+		settledB = new int[n];
+		QF = new IndexedHeap(n);
+		QB = new IndexedHeap(n);
+	}
+
+	/**
+	 * @return The graph this search runs on.
+	 */
+	public CSRGraph<V, E> getGraph() {
+		return g;
+	}
+
+	/**
+	 * Find the shortest path between two vertices.
+	 * @param start Dense id of the starting vertex.
+	 * @param end Dense id of the destination vertex.
+	 * @return The list of edges representing the shortest path from 'start' to 'end'.
+	 */
+	public List<IGraph.Edge<E>> ShortestPath(int start, int end) {
+		List<IGraph.Edge<E>> path = new ArrayList<IGraph.Edge<E>>();
+		if (start == end) {
+			return path;
+		}
+
+		if (++round == Integer.MAX_VALUE) {
+			// Only after two billion queries, fall back to clearing the stamps once.
+			Arrays.fill(reachedF, 0);
+			Arrays.fill(reachedB, 0);
+			Arrays.fill(settledF, 0);
+			Arrays.fill(settledB, 0);
+			round = 1;
+		}
+		undirected = !g.isDirectedGraph();
+		QF.clear();
+		QB.clear();
+		mu = Double.MAX_VALUE;
+		meetEdge = -1;
+
+		reachedF[start] = round;
+		distF[start] = 0.0;
+		reachedB[end] = round;
+		distB[end] = 0.0;
+		QF.push(start, 0.0);
+		QB.push(end, 0.0);
+
+		while (!QF.isEmpty() && !QB.isEmpty()) {
+			if (QF.peekKey() + QB.peekKey() >= mu) {
+				break;
+			}
+
+			// Advance whichever search has the smaller frontier key, keeping the two discs balanced.
+			if (QF.peekKey() <= QB.peekKey()) {
+				int u = QF.poll();
+				settledF[u] = round;
+				ExpandForward(u);
+			} else {
+				int u = QB.poll();
+				settledB[u] = round;
+				ExpandBackward(u);
+			}
+		}
+
+		if (meetEdge < 0) {
+			// Unreachable, there is no path to return.
+			throw new NoSuchVertexException();
+		}
+
+		// Forward half, walked back from the meeting edge to the start.
+		for (int v = meetF; v != start;) {
+			int e = prevF[v];
+			path.add(0, g.getEdge(e));
+			v = Other(e, v);
+		}
+
+		path.add(g.getEdge(meetEdge));
+
+		// Backward half, walked from the meeting edge on to the end.
+		for (int v = meetB; v != end;) {
+			int e = prevB[v];
+			path.add(g.getEdge(e));
+			v = Other(e, v);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Relax every edge leaving u (and entering u when undirected) for the forward search.
+	 */
+	private void ExpandForward(int u) {
+		for (int e=offsets[u]; e<offsets[u + 1]; e++) {
+			RelaxForward(u, targets[e], e);
+		}
+		if (undirected) {
+			for (int i=inOffsets[u]; i<inOffsets[u + 1]; i++) {
+				RelaxForward(u, inSources[i], inEdges[i]);
+			}
+		}
+	}
+
+	/**
+	 * Relax every edge entering u (and leaving u when undirected) for the backward search.
+	 */
+	private void ExpandBackward(int u) {
+		for (int i=inOffsets[u]; i<inOffsets[u + 1]; i++) {
+			RelaxBackward(u, inSources[i], inEdges[i]);
+		}
+		if (undirected) {
+			for (int e=offsets[u]; e<offsets[u + 1]; e++) {
+				RelaxBackward(u, targets[e], e);
+			}
+		}
+	}
+
+	/**
+	 * Forward relaxation of edge e from u to v, also checking whether it links up with the backward search.
+	 */
+	private void RelaxForward(int u, int v, int e) {
+		double d = distF[u] + weights[e];
+		if (settledF[v] != round && (reachedF[v] != round || d < distF[v])) {
+			reachedF[v] = round;
+			distF[v] = d;
+			prevF[v] = e;
+			QF.push(v, d);
+		}
+		if (reachedB[v] == round && d + distB[v] < mu) {
+			mu = d + distB[v];
+			meetF = u;
+			meetB = v;
+			meetEdge = e;
+		}
+	}
+
+	/**
+	 * Backward relaxation of edge e, which is traveled from v to u, also checking whether it links up with the forward search.
+	 */
+	private void RelaxBackward(int u, int v, int e) {
+		double d = distB[u] + weights[e];
+		if (settledB[v] != round && (reachedB[v] != round || d < distB[v])) {
+			reachedB[v] = round;
+			distB[v] = d;
+			prevB[v] = e;
+			QB.push(v, d);
+		}
+		if (reachedF[v] == round && d + distF[v] < mu) {
+			mu = d + distF[v];
+			meetF = v;
+			meetB = u;
+			meetEdge = e;
+		}
+	}
+
+	/**
+	 * @return The end of stored edge e that is not v.
+	 */
+	private int Other(int e, int v) {
+		return targets[e] == v ? g.getEdgeSource(e) : targets[e];
+	}
+}
@@ -0,0 +1,883 @@
+package cs311.hw8.graphalgorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import cs311.hw8.graph.CSRGraph;
+import cs311.hw8.graph.IGraph;
+import cs311.hw8.graph.IGraph.NoSuchVertexException;
+
+/**
+ * Contraction hierarchy over a static CSRGraph for very fast point to point queries.
+ *
+ * Preprocessing contracts the vertices one at a time in order of importance (least important first).
+ * Contracting v removes it from the remaining graph, adding a shortcut u->w for every pair of
+ * neighbors whose only shortest connection ran through v. The position of each vertex in this
+ * order is its rank. Queries then run a bidirectional Dijkstra search in which both sides only
+ * ever move to vertices of higher rank, which on road networks settles a few hundred vertices
+ * instead of a large part of the map. Shortcuts remember the two edges they replace, so paths are
+ * unpacked back into the original edges of the graph.
+ *
+ * A hierarchy is tied to the graph it was built from and is never modified once built.
+ * ShortestPath(...) shares one set of search arrays and is synchronized, use newQuery()
+ * to give each thread its own. Distance tables always use their own.
+ */
+public class ContractionHierarchy<V, E extends IWeight> {
+
+	/**
+	 * Identifies a hierarchy file ("CHG1").
+	 */
+	private static final int MAGIC = 0x43484731;
+
+	/**
+	 * The witness search run while contracting gives up after settling this many vertices.
+	 * Giving up early only adds shortcuts that may be unnecessary, never wrong ones.
+	 */
+	private static final int WITNESS_LIMIT = 500;
+
+	/**
+	 * Smaller limit used when only estimating how many shortcuts a contraction would need.
+	 */
+	private static final int ESTIMATE_LIMIT = 50;
+
+	/**
+	 * The graph this hierarchy was built from.
+	 */
+	private final CSRGraph<V, E> g;
+
+	/**
+	 * Rank (contraction order) of each vertex.
+	 */
+	private int[] rank;
+
+	/**
+	 * Every edge of the hierarchy, original edges first and then shortcuts.
+	 * For an original edge child1 is its index in g and child2 is -1,
+	 * for a shortcut child1 and child2 are the two hierarchy edges it replaces.
+	 */
+	private int edgeCount;
+	private int[] from, to, child1, child2;
+	private double[] weight;
+
+	/**
+	 * Upward edges u->w (rank[w] > rank[u]) grouped by u, searched by the forward query.
+	 */
+	private int[] upOffsets, upTargets, upEdges;
+	private double[] upWeights;
+
+	/**
+	 * Downward edges u->w (rank[u] > rank[w]) grouped by w, searched backwards from the destination.
+	 */
+	private int[] downOffsets, downSources, downEdges;
+	private double[] downWeights;
+
+	/**
+	 * Query state used by ShortestPath(...).
+	 */
+	private Query query;
+
+	/**
+	 * Build the hierarchy for the given graph.
+	 * This is expensive (seconds for a city) and only needs to be done once per map,
+	 * see write(...) and read(...) to keep the result on disk.
+	 * @param G The graph to build the hierarchy for, its direction mode is taken at this time.
+	 */
+	public ContractionHierarchy(CSRGraph<V, E> G) {
+		g = G;
+		new Contractor().run();
+		buildSearchGraph();
+	}
+
+	/**
+	 * Constructor used by read(...), the caller fills in the rank and edge arrays.
+	 */
+	private ContractionHierarchy(CSRGraph<V, E> G, boolean loading) {
+		g = G;
+	}
+
+	/**
+	 * @return The number of shortcut edges added by preprocessing.
+	 */
+	public int getShortcutCount() {
+		int count = 0;
+		for (int i=0; i<edgeCount; i++) {
+			if (child2[i] >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Find the shortest path between two vertices.
+	 * @param start Dense id of the starting vertex.
+	 * @param end Dense id of the destination vertex.
+	 * @return The list of original graph edges along the shortest path from 'start' to 'end'.
+	 */
+	public synchronized List<IGraph.Edge<E>> ShortestPath(int start, int end) {
+		return query.ShortestPath(start, end);
+	}
+
+	/**
+	 * Lengths of the shortest paths from every source to every target.
+	 * A complete backward upward search from each target leaves (target, distance) entries in a
+	 * bucket at every vertex it settles. A complete forward upward search from each source then
+	 * only has to scan the buckets of the vertices it settles, since every shortest path meets
+	 * at its highest vertex. This is k + k searches of a few hundred vertices for a k x k table.
+	 * @param sources Dense ids of the vertices to measure from.
+	 * @param targets Dense ids of the vertices to measure to.
+	 * @return table[i][k] is the length of the shortest path from sources[i] to targets[k], Double.MAX_VALUE if there is none.
+	 */
+	public double[][] DistanceTable(int[] sources, int[] targets) {
+		return DistanceTable(sources, targets, null);
+	}
+
+	/**
+	 * Parallel version of DistanceTable(...), both the backward and the forward searches are
+	 * split into chunks that run on the given pool, each chunk with its own Query.
+	 * @param sources Dense ids of the vertices to measure from.
+	 * @param targets Dense ids of the vertices to measure to.
+	 * @param pool Pool to run the searches on (ForkJoinPool.commonPool() uses every core), null to run them on this thread.
+	 * @return table[i][k] is the length of the shortest path from sources[i] to targets[k], Double.MAX_VALUE if there is none.
+	 */
+	public double[][] DistanceTable(final int[] sources, final int[] targets, ForkJoinPool pool) {
+		final int n = rank.length;
+
+		// Backward searches, recording the vertices each target reaches and their distances.
+		final int[][] entryVertex = new int[targets.length][];
+		final double[][] entryDist = new double[targets.length][];
+		List<Callable<Void>> chunks = new ArrayList<Callable<Void>>();
+		int size = GraphAlgorithms.ChunkSize(targets.length, pool);
+		for (int lo=0; lo<targets.length; lo+=size) {
+			final int first = lo;
+			final int last = Math.min(lo + size, targets.length);
+			chunks.add(new Callable<Void>() {
+				public Void call() {
+					Query q = new Query();
+					for (int k=first; k<last; k++) {
+						q.Search(targets[k], false);
+						entryVertex[k] = Arrays.copyOf(q.reached, q.reachedSize);
+						entryDist[k] = new double[q.reachedSize];
+						for (int i=0; i<q.reachedSize; i++) {
+							entryDist[k][i] = q.distB[q.reached[i]];
+						}
+					}
+					return null;
+				}
+			});
+		}
+		GraphAlgorithms.RunAll(chunks, pool);
+
+		// Group the entries into buckets by vertex (counting sort).
+		final int[] bucket = new int[n + 1];
+		for (int[] vertices : entryVertex) {
+			for (int v : vertices) {
+				bucket[v + 1]++;
+			}
+		}
+		for (int v=0; v<n; v++) {
+			bucket[v + 1] += bucket[v];
+		}
+		int[] next = Arrays.copyOf(bucket, n);
+		final int[] bucketTarget = new int[bucket[n]];
+		final double[] bucketDist = new double[bucket[n]];
+		for (int k=0; k<targets.length; k++) {
+			for (int i=0; i<entryVertex[k].length; i++) {
+				int slot = next[entryVertex[k][i]]++;
+				bucketTarget[slot] = k;
+				bucketDist[slot] = entryDist[k][i];
+			}
+		}
+
+		// Forward searches, combining with the buckets of every vertex reached.
+		final double[][] table = new double[sources.length][targets.length];
+		chunks.clear();
+		size = GraphAlgorithms.ChunkSize(sources.length, pool);
+		for (int lo=0; lo<sources.length; lo+=size) {
+			final int first = lo;
+			final int last = Math.min(lo + size, sources.length);
+			chunks.add(new Callable<Void>() {
+				public Void call() {
+					Query q = new Query();
+					for (int i=first; i<last; i++) {
+						double[] row = table[i];
+						Arrays.fill(row, Double.MAX_VALUE);
+						q.Search(sources[i], true);
+						for (int r=0; r<q.reachedSize; r++) {
+							int u = q.reached[r];
+							for (int b=bucket[u]; b<bucket[u + 1]; b++) {
+								double d = q.distF[u] + bucketDist[b];
+								if (d < row[bucketTarget[b]]) {
+									row[bucketTarget[b]] = d;
+								}
+							}
+						}
+					}
+					return null;
+				}
+			});
+		}
+		GraphAlgorithms.RunAll(chunks, pool);
+		return table;
+	}
+
+	/**
+	 * @return A new, independent query over this hierarchy for use by a single thread.
+	 */
+	public Query newQuery() {
+		return new Query();
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Query
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * Search state for bidirectional upward queries.
+	 * Distances are only valid for vertices stamped with the current round, so
+	 * nothing has to be cleared between queries.
+	 */
+	public class Query {
+		private final double[] distF, distB;
+		private final int[] prevF, prevB, stampF, stampB;
+		private final IndexedHeap QF, QB;
+		private int round;
+
+		/**
+		 * Vertices settled by the last call to Search(...).
+		 */
+		private final int[] reached;
+		private int reachedSize;
+
+		private Query() {
+			int n = rank.length;
+			distF = new double[n];
+			distB = new double[n];
+			prevF = new int[n];
+			prevB = new int[n];
+			stampF = new int[n];
+			stampB = new int[n];
+			QF = new IndexedHeap(n);
+			QB = new IndexedHeap(n);
+			reached = new int[n];
+		}
+
+		/**
+		 * Find the shortest path between two vertices.
+		 * @param start Dense id of the starting vertex.
+		 * @param end Dense id of the destination vertex.
+		 * @return The list of original graph edges along the shortest path from 'start' to 'end'.
+		 */
+		public List<IGraph.Edge<E>> ShortestPath(int start, int end) {
+			List<IGraph.Edge<E>> path = new ArrayList<IGraph.Edge<E>>();
+			if (start == end) {
+				return path;
+			}
+
+			round++;
+			QF.clear();
+			QB.clear();
+			stampF[start] = round;
+			distF[start] = 0.0;
+			prevF[start] = -1;
+			QF.push(start, 0.0);
+			stampB[end] = round;
+			distB[end] = 0.0;
+			prevB[end] = -1;
+			QB.push(end, 0.0);
+
+			double mu = Double.MAX_VALUE;
+			int meet = -1;
+
+			// Each side keeps going until its smallest key can no longer beat mu.
+			while (true) {
+				boolean forward = !QF.isEmpty() && QF.peekKey() < mu;
+				boolean backward = !QB.isEmpty() && QB.peekKey() < mu;
+				if (!forward && !backward) {
+					break;
+				}
+
+				if (forward) {
+					int u = QF.poll();
+					if (stampB[u] == round && distF[u] + distB[u] < mu) {
+						mu = distF[u] + distB[u];
+						meet = u;
+					}
+					if (!StalledForward(u)) {
+						ExpandForward(u);
+					}
+				}
+
+				if (backward) {
+					int u = QB.poll();
+					if (stampF[u] == round && distF[u] + distB[u] < mu) {
+						mu = distF[u] + distB[u];
+						meet = u;
+					}
+					if (!StalledBackward(u)) {
+						ExpandBackward(u);
+					}
+				}
+			}
+
+			if (meet < 0) {
+				// Unreachable, there is no path to return.
+				throw new NoSuchVertexException();
+			}
+
+			// Hierarchy edges from the start up to the meeting vertex...
+			List<Integer> edges = new ArrayList<Integer>();
+			for (int v = meet; prevF[v] >= 0; v = from[prevF[v]]) {
+				edges.add(0, prevF[v]);
+			}
+			// ... then down to the end.
+			for (int v = meet; prevB[v] >= 0; v = to[prevB[v]]) {
+				edges.add(prevB[v]);
+			}
+
+			for (int e : edges) {
+				Unpack(e, path);
+			}
+			return path;
+		}
+
+		/**
+		 * Run a complete upward search from v, forward or backward.
+		 * Every vertex settled without being stalled is left in 'reached'.
+		 */
+		private void Search(int v, boolean forward) {
+			round++;
+			reachedSize = 0;
+			IndexedHeap Q = forward ? QF : QB;
+			Q.clear();
+			if (forward) {
+				stampF[v] = round;
+				distF[v] = 0.0;
+				prevF[v] = -1;
+			} else {
+				stampB[v] = round;
+				distB[v] = 0.0;
+				prevB[v] = -1;
+			}
+			Q.push(v, 0.0);
+
+			while (!Q.isEmpty()) {
+				int u = Q.poll();
+				if (forward ? StalledForward(u) : StalledBackward(u)) {
+					continue;
+				}
+				reached[reachedSize++] = u;
+				if (forward) {
+					ExpandForward(u);
+				} else {
+					ExpandBackward(u);
+				}
+			}
+		}
+
+		/**
+		 * Relax the upward edges leaving u for the forward search.
+		 */
+		private void ExpandForward(int u) {
+			for (int i=upOffsets[u]; i<upOffsets[u + 1]; i++) {
+				int w = upTargets[i];
+				double d = distF[u] + upWeights[i];
+				if (stampF[w] != round || d < distF[w]) {
+					stampF[w] = round;
+					distF[w] = d;
+					prevF[w] = upEdges[i];
+					QF.push(w, d);
+				}
+			}
+		}
+
+		/**
+		 * Relax the downward edges entering u for the backward search.
+		 */
+		private void ExpandBackward(int u) {
+			for (int i=downOffsets[u]; i<downOffsets[u + 1]; i++) {
+				int w = downSources[i];
+				double d = distB[u] + downWeights[i];
+				if (stampB[w] != round || d < distB[w]) {
+					stampB[w] = round;
+					distB[w] = d;
+					prevB[w] = downEdges[i];
+					QB.push(w, d);
+				}
+			}
+		}
+
+		/**
+		 * Stall-on-demand: if some higher vertex already reached by the forward search has an
+		 * edge down to u giving a shorter distance, u's distance is not a shortest one and
+		 * relaxing its edges would only grow the search.
+		 */
+		private boolean StalledForward(int u) {
+			for (int i=downOffsets[u]; i<downOffsets[u + 1]; i++) {
+				int w = downSources[i];
+				if (stampF[w] == round && distF[w] + downWeights[i] < distF[u]) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Stall-on-demand for the backward search, see StalledForward(...).
+		 */
+		private boolean StalledBackward(int u) {
+			for (int i=upOffsets[u]; i<upOffsets[u + 1]; i++) {
+				int w = upTargets[i];
+				if (stampB[w] == round && distB[w] + upWeights[i] < distB[u]) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Append the original graph edges making up hierarchy edge e to the path.
+	 */
+	private void Unpack(int e, List<IGraph.Edge<E>> path) {
+		if (child2[e] < 0) {
+			path.add(g.getEdge(child1[e]));
+		} else {
+			Unpack(child1[e], path);
+			Unpack(child2[e], path);
+		}
+	}
+
+	/**
+	 * Split the hierarchy edges into the upward and downward search graphs (CSR form).
+	 */
+	private void buildSearchGraph() {
+		int n = rank.length;
+		upOffsets = new int[n + 1];
+		downOffsets = new int[n + 1];
+		for (int i=0; i<edgeCount; i++) {
+			if (rank[to[i]] > rank[from[i]]) {
+				upOffsets[from[i] + 1]++;
+			} else {
+				downOffsets[to[i] + 1]++;
+			}
+		}
+		for (int v=0; v<n; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+			downOffsets[v + 1] += downOffsets[v];
+		}
+
+		upTargets = new int[upOffsets[n]];
+		upEdges = new int[upOffsets[n]];
+		upWeights = new double[upOffsets[n]];
+		downSources = new int[downOffsets[n]];
+		downEdges = new int[downOffsets[n]];
+		downWeights = new double[downOffsets[n]];
+
+		int[] nextUp = Arrays.copyOf(upOffsets, n);
+		int[] nextDown = Arrays.copyOf(downOffsets, n);
+		for (int i=0; i<edgeCount; i++) {
+			if (rank[to[i]] > rank[from[i]]) {
+				int slot = nextUp[from[i]]++;
+				upTargets[slot] = to[i];
+				upEdges[slot] = i;
+				upWeights[slot] = weight[i];
+			} else {
+				int slot = nextDown[to[i]]++;
+				downSources[slot] = from[i];
+				downEdges[slot] = i;
+				downWeights[slot] = weight[i];
+			}
+		}
+
+		query = new Query();
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Preprocessing
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * Working state used while contracting the graph, discarded once the hierarchy is built.
+	 */
+	private class Contractor {
+		private final int n = g.getVertexCount();
+
+		/**
+		 * Edge ids leaving / entering each vertex, including shortcuts.
+		 * Only edges between vertices that have not been contracted yet are kept.
+		 */
+		private final int[][] out = new int[n][], in = new int[n][];
+		private final int[] outSize = new int[n], inSize = new int[n];
+
+		/**
+		 * Distinct neighbors of the vertex being contracted.
+		 */
+		private int[] neighbors = new int[16];
+
+		/**
+		 * Number of neighbors of each vertex that have already been contracted.
+		 * Favoring vertices with few contracted neighbors spreads contraction evenly over the map.
+		 */
+		private final int[] deleted = new int[n];
+
+		/**
+		 * Upper bound on the number of hierarchy levels below each vertex.
+		 * Favoring low levels keeps the hierarchy shallow, which keeps the query searches small.
+		 */
+		private final int[] level = new int[n];
+
+		/**
+		 * Witness search state, reset through the touched list after every search.
+		 */
+		private final double[] wdist = new double[n];
+		private final int[] touched = new int[n];
+		private int touchedSize;
+		private final IndexedHeap wq = new IndexedHeap(n);
+
+		public void run() {
+			rank = new int[n];
+			from = new int[16];
+			to = new int[16];
+			child1 = new int[16];
+			child2 = new int[16];
+			weight = new double[16];
+			Arrays.fill(wdist, Double.MAX_VALUE);
+
+			// Start with the original edges (both directions of an undirected edge).
+			int[] offsets = g.getOffsets();
+			int[] targets = g.getTargets();
+			double[] weights = g.getWeights();
+			for (int u=0; u<n; u++) {
+				out[u] = new int[4];
+				in[u] = new int[4];
+			}
+			for (int u=0; u<n; u++) {
+				for (int e=offsets[u]; e<offsets[u + 1]; e++) {
+					if (targets[e] == u) {
+						continue; // A self loop is never part of a shortest path.
+					}
+					Link(u, targets[e], weights[e], e, -1);
+					if (!g.isDirectedGraph()) {
+						Link(targets[e], u, weights[e], e, -1);
+					}
+				}
+			}
+
+			// Contract in order of priority, re-checking a vertex's priority lazily when it comes up.
+			IndexedHeap pq = new IndexedHeap(n);
+			for (int v=0; v<n; v++) {
+				pq.push(v, Priority(v));
+			}
+
+			int order = 0;
+			while (!pq.isEmpty()) {
+				int v = pq.poll();
+				double p = Priority(v);
+				if (!pq.isEmpty() && p > pq.peekKey()) {
+					pq.push(v, p);
+					continue;
+				}
+
+				Contract(v, false);
+				rank[v] = order++;
+
+				// Detach v from the remaining graph, so the lists only ever hold edges between uncontracted vertices.
+				int count = 0;
+				for (int i=0; i<outSize[v]; i++) {
+					int w = to[out[v][i]];
+					inSize[w] = Remove(in[w], inSize[w], out[v][i]);
+					count = AddNeighbor(w, count);
+				}
+				for (int i=0; i<inSize[v]; i++) {
+					int u = from[in[v][i]];
+					outSize[u] = Remove(out[u], outSize[u], in[v][i]);
+					count = AddNeighbor(u, count);
+				}
+
+				// Priorities of the neighbors are not recomputed here, the lazy check
+				// above catches any that went up by the time they reach the top.
+				for (int i=0; i<count; i++) {
+					int x = neighbors[i];
+					deleted[x]++;
+					level[x] = Math.max(level[x], level[v] + 1);
+				}
+			}
+		}
+
+		/**
+		 * Add x to the 'neighbors' list of the vertex being contracted unless it is already there.
+		 * @return The new length of the list.
+		 */
+		private int AddNeighbor(int x, int count) {
+			for (int i=0; i<count; i++) {
+				if (neighbors[i] == x) {
+					return count;
+				}
+			}
+			if (count == neighbors.length) {
+				neighbors = Arrays.copyOf(neighbors, count * 2);
+			}
+			neighbors[count] = x;
+			return count + 1;
+		}
+
+		/**
+		 * Remove edge e from the first 'size' entries of an adjacency list, order is not kept.
+		 * @return The new size of the list.
+		 */
+		private int Remove(int[] list, int size, int e) {
+			for (int i=0; i<size; i++) {
+				if (list[i] == e) {
+					list[i] = list[--size];
+					break;
+				}
+			}
+			return size;
+		}
+
+		/**
+		 * Priority of contracting v next, smaller is sooner: twice the number of shortcuts it would add
+		 * minus the number of edges it would remove, plus its contracted neighbors and level.
+		 */
+		private double Priority(int v) {
+			return 2 * (Contract(v, true) - outSize[v] - inSize[v]) + deleted[v] + level[v];
+		}
+
+		/**
+		 * Add the shortcuts needed to contract v, or only estimate how many are needed.
+		 * @return The number of shortcuts needed.
+		 */
+		private int Contract(int v, boolean estimate) {
+			int count = 0;
+			for (int i=0; i<inSize[v]; i++) {
+				int ein = in[v][i];
+				int u = from[ein];
+
+				// The longest path through v we need a witness for bounds the witness search.
+				double max = -1.0;
+				for (int k=0; k<outSize[v]; k++) {
+					if (to[out[v][k]] != u) {
+						max = Math.max(max, weight[ein] + weight[out[v][k]]);
+					}
+				}
+				if (max < 0.0) {
+					continue;
+				}
+
+				Witness(u, v, max, estimate ? ESTIMATE_LIMIT : WITNESS_LIMIT);
+				for (int k=0; k<outSize[v]; k++) {
+					int eout = out[v][k];
+					int w = to[eout];
+					if (w == u) {
+						continue;
+					}
+
+					double via = weight[ein] + weight[eout];
+					if (wdist[w] > via) {
+						count++;
+						if (!estimate) {
+							Link(u, w, via, ein, eout);
+							// Later pairs from u may use this shortcut as their witness.
+							Touch(w, via);
+						}
+					}
+				}
+				ResetWitness();
+			}
+			return count;
+		}
+
+		/**
+		 * Dijkstra search from u over the remaining graph without v, bounded by distance and settle count.
+		 * Leaves the distances found in wdist.
+		 */
+		private void Witness(int u, int v, double max, int limit) {
+			Touch(u, 0.0);
+			wq.push(u, 0.0);
+			for (int settled = 0; !wq.isEmpty() && settled < limit; settled++) {
+				int x = wq.poll();
+				if (wdist[x] > max) {
+					break;
+				}
+				for (int i=0; i<outSize[x]; i++) {
+					int e = out[x][i];
+					int y = to[e];
+					if (y == v) {
+						continue;
+					}
+					double d = wdist[x] + weight[e];
+					if (d < wdist[y]) {
+						Touch(y, d);
+						wq.push(y, d);
+					}
+				}
+			}
+			wq.clear();
+		}
+
+		private void Touch(int x, double d) {
+			if (wdist[x] == Double.MAX_VALUE) {
+				touched[touchedSize++] = x;
+			}
+			wdist[x] = d;
+		}
+
+		private void ResetWitness() {
+			for (int i=0; i<touchedSize; i++) {
+				wdist[touched[i]] = Double.MAX_VALUE;
+			}
+			touchedSize = 0;
+		}
+
+		/**
+		 * Add an edge from u to w to the remaining graph, keeping only the shortest edge between any pair:
+		 * nothing is added if an edge from u to w is already at least as short, a longer one is replaced.
+		 */
+		private void Link(int u, int w, double wt, int c1, int c2) {
+			for (int i=0; i<outSize[u]; i++) {
+				int e = out[u][i];
+				if (to[e] == w) {
+					if (weight[e] <= wt) {
+						return;
+					}
+					int id = AddEdge(u, w, wt, c1, c2);
+					out[u][i] = id;
+					for (int k=0; k<inSize[w]; k++) {
+						if (in[w][k] == e) {
+							in[w][k] = id;
+						}
+					}
+					return;
+				}
+			}
+
+			int id = AddEdge(u, w, wt, c1, c2);
+			if (outSize[u] == out[u].length) { out[u] = Arrays.copyOf(out[u], outSize[u] * 2); }
+			out[u][outSize[u]++] = id;
+			if (inSize[w] == in[w].length) { in[w] = Arrays.copyOf(in[w], inSize[w] * 2); }
+			in[w][inSize[w]++] = id;
+		}
+
+		/**
+		 * Append a hierarchy edge from u to w, without touching the adjacency lists.
+		 * @return The id of the new edge.
+		 */
+		private int AddEdge(int u, int w, double wt, int c1, int c2) {
+			if (edgeCount == from.length) {
+				int size = edgeCount * 2;
+				from = Arrays.copyOf(from, size);
+				to = Arrays.copyOf(to, size);
+				child1 = Arrays.copyOf(child1, size);
+				child2 = Arrays.copyOf(child2, size);
+				weight = Arrays.copyOf(weight, size);
+			}
+			from[edgeCount] = u;
+			to[edgeCount] = w;
+			weight[edgeCount] = wt;
+			child1[edgeCount] = c1;
+			child2[edgeCount] = c2;
+			return edgeCount++;
+		}
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Serialization
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * Save this hierarchy so it can be reloaded with read(...) instead of being rebuilt.
+	 * @param filename File to write to, it will be overwritten if it exists.
+	 * @throws IOException If the file could not be written.
+	 */
+	public void write(String filename) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(g.getVertexCount());
+			out.writeInt(g.getEdgeCount());
+			out.writeInt(edgeCount);
+			for (int i=0; i<rank.length; i++) { out.writeInt(rank[i]); }
+			for (int i=0; i<edgeCount; i++) { out.writeInt(from[i]); }
+			for (int i=0; i<edgeCount; i++) { out.writeInt(to[i]); }
+			for (int i=0; i<edgeCount; i++) { out.writeInt(child1[i]); }
+			for (int i=0; i<edgeCount; i++) { out.writeInt(child2[i]); }
+			for (int i=0; i<edgeCount; i++) { out.writeDouble(weight[i]); }
+		}
+	}
+
+	/**
+	 * Load a hierarchy written by write(...).
+	 * @param g The same graph the hierarchy was built from.
+	 * @param filename The file to read.
+	 * @return The hierarchy, ready for queries.
+	 * @throws IOException If the file could not be read, is truncated or corrupt, or was built for a different graph.
+	 */
+	public static <V, E extends IWeight> ContractionHierarchy<V, E> read(CSRGraph<V, E> g, String filename) throws IOException {
+		MappedByteBuffer buf;
+		try (FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		}
+
+		// Header of four ints.
+		if (buf.remaining() < 16 || buf.getInt() != MAGIC) {
+			throw new IOException("Not a contraction hierarchy: " + filename);
+		}
+		if (buf.getInt() != g.getVertexCount() || buf.getInt() != g.getEdgeCount()) {
+			throw new IOException("Contraction hierarchy was built for a different graph: " + filename);
+		}
+
+		// Every edge of the graph comes first, followed by the shortcuts.
+		int n = g.getVertexCount();
+		int m = buf.getInt();
+		if (m < g.getEdgeCount() || buf.remaining() < n * 4L + m * (4L * 4 + 8L)) {
+			throw new IOException("Truncated contraction hierarchy: " + filename);
+		}
+
+		ContractionHierarchy<V, E> ch = new ContractionHierarchy<V, E>(g, true);
+		ch.edgeCount = m;
+		ch.rank = new int[g.getVertexCount()];
+		ch.from = new int[m];
+		ch.to = new int[m];
+		ch.child1 = new int[m];
+		ch.child2 = new int[m];
+		ch.weight = new double[m];
+
+		buf.asIntBuffer().get(ch.rank);     buf.position(buf.position() + ch.rank.length * 4);
+		buf.asIntBuffer().get(ch.from);     buf.position(buf.position() + m * 4);
+		buf.asIntBuffer().get(ch.to);       buf.position(buf.position() + m * 4);
+		buf.asIntBuffer().get(ch.child1);   buf.position(buf.position() + m * 4);
+		buf.asIntBuffer().get(ch.child2);   buf.position(buf.position() + m * 4);
+		buf.asDoubleBuffer().get(ch.weight);
+
+		// Bad indices would otherwise fail deep inside a query, or send Unpack(...) around in circles.
+		// A shortcut is always added after the two edges it replaces, so its children come before it.
+		boolean[] ranked = new boolean[n];
+		for (int v=0; v<n; v++) {
+			if (ch.rank[v] < 0 || ch.rank[v] >= n || ranked[ch.rank[v]]) {
+				throw new IOException("Corrupt contraction hierarchy: " + filename);
+			}
+			ranked[ch.rank[v]] = true;
+		}
+		for (int i=0; i<m; i++) {
+			boolean edge = ch.child2[i] == -1 && ch.child1[i] >= 0 && ch.child1[i] < g.getEdgeCount();
+			boolean shortcut = ch.child1[i] >= 0 && ch.child1[i] < i && ch.child2[i] >= 0 && ch.child2[i] < i;
+			if (ch.from[i] < 0 || ch.from[i] >= n || ch.to[i] < 0 || ch.to[i] >= n || !(edge || shortcut) || !(ch.weight[i] >= 0)) {
+				throw new IOException("Corrupt contraction hierarchy: " + filename);
+			}
+		}
+
+		ch.buildSearchGraph();
+		return ch;
+	}
+}
@@ -0,0 +1,277 @@
+package cs311.hw8.graphalgorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cs311.hw8.graph.CSRGraph;
+import cs311.hw8.graph.IGraph;
+import cs311.hw8.graph.IGraph.NoSuchVertexException;
+
+/**
+ * Reusable Dijkstra search over a CSRGraph, for running many queries against the same graph.
+ * The work arrays are allocated once, when the search is created. Instead of being cleared
+ * before every query they are stamped with the query's round number, an entry left over from
+ * an older round simply reads as unreached, so starting a new query is O(1) (plus clearing
+ * whatever is still in the queue).
+ *
+ * Three kinds of query are supported: one-to-all (ShortestPathTree), one-to-many stopping once
+ * every target is settled (Distances) and point to point stopping at the target (Distance and
+ * ShortestPath). After any of them getDistance(...) and getPath(...) may be used for every
+ * vertex settled by that query, until the next one starts.
+ *
+ * A search is not thread safe, give each thread its own. Any number of searches may share
+ * the graph, as with BidirectionalDijkstra.
+ */
+public class DijkstraSearch<V, E extends IWeight> {
+
+	private final CSRGraph<V, E> g;
+	private final int[] offsets, targets, inOffsets, inSources, inEdges;
+	private final double[] weights;
+
+	/**
+	 * Distance from the source of each vertex, only valid where reached[v] == round.
+	 */
+	private final double[] dist;
+
+	/**
+	 * Stored edge used to reach each vertex along its current shortest path, only valid where reached[v] == round.
+	 */
+	private final int[] prev;
+
+	/**
+	 * Round in which each vertex was last reached (given a distance) and settled (taken from the queue).
+	 */
+	private final int[] reached, settled;
+
+	/**
+	 * Round in which each vertex was last marked as a target by Distances(...).
+	 */
+	private final int[] wanted;
+
+	private final IndexedHeap Q;
+
+	/**
+	 * Number of the current query, starting from 1 so that the zeroed stamp arrays read as unreached.
+	 */
+	private int round;
+
+	/**
+	 * Source of the current query.
+	 */
+	private int source = -1;
+
+	/**
+	 * Prepare a search over the given graph.
+	 * @param G The graph to search, its direction mode at the time of each query is respected.
+	 */
+	public DijkstraSearch(CSRGraph<V, E> G) {
+		g = G;
+		offsets = g.getOffsets();
+		targets = g.getTargets();
+		weights = g.getWeights();
+		inOffsets = g.getInOffsets();
+		inSources = g.getInSources();
+		inEdges = g.getInEdges();
+
+		int n = g.getVertexCount();
+		dist = new double[n];
+		prev = new int[n];
+		reached = new int[n];
+		settled = new int[n];
+		wanted = new int[n];
+		Q = new IndexedHeap(n);
+	}
+
+	/**
+	 * @return The graph this search runs on.
+	 */
+	public CSRGraph<V, E> getGraph() {
+		return g;
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Queries
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * One-to-all: settle every vertex reachable from the source.
+	 * Afterwards getDistance(...) and getPath(...) describe the shortest path tree rooted at the source.
+	 * @param Source Dense id of the vertex to search from.
+	 */
+	public void ShortestPathTree(int Source) {
+		Start(Source);
+		while (!Q.isEmpty()) {
+			Settle();
+		}
+	}
+
+	/**
+	 * One-to-many: find the distance to each target, stopping once all of them are settled.
+	 * @param Source Dense id of the vertex to search from.
+	 * @param Targets Dense ids of the vertices to measure the distance to.
+	 * @param out out[k] is set to the distance to Targets[k], Double.MAX_VALUE if it cannot be reached.
+	 * Must be at least as long as Targets.
+	 */
+	public void Distances(int Source, int[] Targets, double[] out) {
+		Start(Source);
+
+		// Count each target once, however many times it is listed.
+		int remaining = 0;
+		for (int t : Targets) {
+			if (wanted[t] != round) {
+				wanted[t] = round;
+				remaining++;
+			}
+		}
+
+		while (!Q.isEmpty() && remaining > 0) {
+			if (wanted[Settle()] == round) {
+				remaining--;
+			}
+		}
+
+		for (int k=0; k<Targets.length; k++) {
+			out[k] = getDistance(Targets[k]);
+		}
+	}
+
+	/**
+	 * Point to point: find the distance from source to target, stopping as soon as the target is settled.
+	 * @param Source Dense id of the vertex to search from.
+	 * @param Target Dense id of the vertex to measure the distance to.
+	 * @return The length of the shortest path, Double.MAX_VALUE if there is none.
+	 */
+	public double Distance(int Source, int Target) {
+		Start(Source);
+		while (!Q.isEmpty() && Settle() != Target) {
+			// Keep going until the target comes off the queue.
+		}
+		return getDistance(Target);
+	}
+
+	/**
+	 * Point to point: find the shortest path from source to target, stopping as soon as the target is settled.
+	 * @param Source Dense id of the vertex to search from.
+	 * @param Target Dense id of the vertex to find the path to.
+	 * @return The list of edges representing the shortest path from 'Source' to 'Target'.
+	 */
+	public List<IGraph.Edge<E>> ShortestPath(int Source, int Target) {
+		if (Distance(Source, Target) == Double.MAX_VALUE) {
+			// Unreachable, there is no previous vertex to walk back to.
+			throw new NoSuchVertexException();
+		}
+		return getPath(Target);
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Results of the last query
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * @param v Dense id of a vertex.
+	 * @return True if the last query settled v, so its distance and path are final.
+	 */
+	public boolean isSettled(int v) {
+		return settled[v] == round;
+	}
+
+	/**
+	 * @param v Dense id of a vertex settled by the last query.
+	 * @return Length of the shortest path from the source to v, Double.MAX_VALUE if the query did not reach v.
+	 */
+	public double getDistance(int v) {
+		return reached[v] == round ? dist[v] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * @param v Dense id of a vertex settled by the last query.
+	 * @return Index of the stored edge leading into v along the shortest path, -1 for the source or an unreached vertex.
+	 */
+	public int getParentEdge(int v) {
+		return reached[v] == round && v != source ? prev[v] : -1;
+	}
+
+	/**
+	 * @param v Dense id of a vertex settled by the last query.
+	 * @return The list of edges representing the shortest path from the source to v.
+	 */
+	public List<IGraph.Edge<E>> getPath(int v) {
+		if (reached[v] != round) {
+			throw new NoSuchVertexException();
+		}
+
+		// Walk back to the source, then flip the path around.
+		List<IGraph.Edge<E>> path = new ArrayList<IGraph.Edge<E>>();
+		while (v != source) {
+			int e = prev[v];
+			path.add(g.getEdge(e));
+			// The previous vertex is whichever end of the edge we did not arrive at.
+			v = targets[e] == v ? g.getEdgeSource(e) : targets[e];
+		}
+		for (int i=0, k=path.size()-1; i<k; i++, k--) {
+			IGraph.Edge<E> t = path.get(i);
+			path.set(i, path.get(k));
+			path.set(k, t);
+		}
+		return path;
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Search
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * Begin a new round from the given source.
+	 */
+	private void Start(int Source) {
+		if (++round == Integer.MAX_VALUE) {
+			// Only after two billion queries, fall back to clearing the stamps once.
+			Arrays.fill(reached, 0);
+			Arrays.fill(settled, 0);
+			Arrays.fill(wanted, 0);
+			round = 1;
+		}
+		Q.clear();
+		source = Source;
+		reached[source] = round;
+		dist[source] = 0.0;
+		Q.push(source, 0.0);
+	}
+
+	/**
+	 * Take the nearest vertex off the queue and relax its edges.
+	 * @return The vertex settled.
+	 */
+	private int Settle() {
+		int u = Q.poll();
+		settled[u] = round;
+
+		for (int e=offsets[u]; e<offsets[u + 1]; e++) {
+			Relax(u, targets[e], e);
+		}
+		// When undirected, edges stored into u may be walked backwards as well.
+		if (!g.isDirectedGraph()) {
+			for (int i=inOffsets[u]; i<inOffsets[u + 1]; i++) {
+				Relax(u, inSources[i], inEdges[i]);
+			}
+		}
+		return u;
+	}
+
+	/**
+	 * Relax edge e, traveled from u to v.
+	 */
+	private void Relax(int u, int v, int e) {
+		if (settled[v] == round) {
+			return;
+		}
+		double d = dist[u] + weights[e];
+		if (reached[v] != round || d < dist[v]) {
+			reached[v] = round;
+			dist[v] = d;
+			prev[v] = e;
+			Q.push(v, d);
+		}
+	}
+}
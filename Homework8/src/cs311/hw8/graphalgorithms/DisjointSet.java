@@ -0,0 +1,88 @@
+package cs311.hw8.graphalgorithms;
+
+/**
+ * Disjoint set forest (union-find) over the int ids 0..n-1.
+ * Uses union by rank and path compression, so any sequence of m operations
+ * costs O(m a(n)) where a is the inverse Ackermann function, effectively constant per operation.
+ */
+public class DisjointSet {
+
+	/**
+	 * Parent of each id in its tree, roots are their own parent.
+	 */
+	private int[] parent;
+
+	/**
+	 * Upper bound on the height of the tree below each root.
+	 */
+	private byte[] rank;
+
+	/**
+	 * Number of disjoint sets remaining.
+	 */
+	private int count;
+
+	/**
+	 * Constructs n singleton sets {0}, {1}, ..., {n-1}.
+	 * @param n Number of ids.
+	 */
+	public DisjointSet(int n) {
+		parent = new int[n];
+		rank = new byte[n];
+		count = n;
+		for (int i=0; i<n; i++) {
+			parent[i] = i;
+		}
+	}
+
+	/**
+	 * @param x The id to look up.
+	 * @return The representative of the set containing x, the same for every member of a set.
+	 */
+	public int find(int x) {
+		int root = x;
+		while (parent[root] != root) {
+			root = parent[root];
+		}
+		// Point everything on the way directly at the root.
+		while (parent[x] != root) {
+			int next = parent[x];
+			parent[x] = root;
+			x = next;
+		}
+		return root;
+	}
+
+	/**
+	 * Merge the sets containing a and b.
+	 * @param a An id.
+	 * @param b Another id.
+	 * @return True if a and b were in different sets (and now are not), False if they already shared one.
+	 */
+	public boolean union(int a, int b) {
+		int ra = find(a);
+		int rb = find(b);
+		if (ra == rb) {
+			return false;
+		}
+
+		// Hang the shallower tree below the deeper one.
+		if (rank[ra] < rank[rb]) {
+			parent[ra] = rb;
+		} else if (rank[ra] > rank[rb]) {
+			parent[rb] = ra;
+		} else {
+			parent[rb] = ra;
+			rank[ra]++;
+		}
+		count--;
+		return true;
+	}
+
+	/**
+	 * @return The number of disjoint sets remaining.
+	 */
+	public int getSetCount() {
+		return count;
+	}
+}
@@ -2,15 +2,19 @@
 package cs311.hw8.graphalgorithms;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import cs311.hw8.graph.CSRGraph;
 import cs311.hw8.graph.Graph;
 import cs311.hw8.graph.IGraph;
 import cs311.hw8.graph.IGraph.Edge;
@@ -27,177 +31,716 @@ public class GraphAlgorithms {
 	
 	/**
 	 * Performs Dijkstra's shortest path algorithm to find the shortest path in graph g from vertexStart to vertexEnd.
+	 * Vertices are given dense int ids for the duration of the search so that distances live in
+	 * a double[] and the queue is an IndexedHeap supporting decrease-key.
 	 * @param g Input graph to find the shortest path for.
 	 * @param vertexStart The starting vertex to find our shortest path from.
 	 * @param vertexEnd Which vertex do we want to know the shortest path towards?
 	 * @return The list of edges representing the shortest path from 'vertexStart' to 'vertexEnd'.
 	 */
 	public static <V, E extends IWeight> List<Edge<E>> ShortestPath(IGraph<V, E> g, String vertexStart, String vertexEnd) {
-		List<IGraph.Vertex<V>> vertices = g.getVertices();
-		// Current set of distances from 'vertexStart' to any given vertex.
-		Map<String, Double> dist = new HashMap<String, Double>();
-		// Will contain the previous node (value) in the shortest path to any given node (key).
-		Map<String, String> prev = new HashMap<String, String>();
-		Set<String> visited = new HashSet<String>();
-		
-		// Set of Vertices that need to be parsed.
-		PriorityQueue<String> Q = new PriorityQueue<String>(vertices.size(),
-			new Comparator<String>() {
-				public int compare(String v1, String v2) {
-					Double d1 = dist.get(v1);
-					Double d2 = dist.get(v2);
-					return d1.compareTo(d2);
-				}
+		return ShortestPath(g, vertexStart, vertexEnd, null);
+	}
+
+	/**
+	 * ShortestPath(...) with a cache in front of it. A cached path is returned without searching,
+	 * otherwise the path is found and added to the cache.
+	 * The cache must only hold paths of g, clear it whenever g is changed or replaced.
+	 * @param g Input graph to find the shortest path for.
+	 * @param vertexStart The starting vertex to find our shortest path from.
+	 * @param vertexEnd Which vertex do we want to know the shortest path towards?
+	 * @param h Estimates the distance between the data of two vertices, null for a plain Dijkstra search.
+	 * @param cache Paths already found in g.
+	 * @return The list of edges representing the shortest path from 'vertexStart' to 'vertexEnd',
+	 * shared with the cache so it may not be modified.
+	 */
+	public static <V, E extends IWeight> List<Edge<E>> ShortestPath(IGraph<V, E> g, String vertexStart, String vertexEnd, IHeuristic<V> h, RouteCache<List<Edge<E>>> cache) {
+		List<Edge<E>> path = cache.get(vertexStart, vertexEnd);
+		if (path == null) {
+			path = ShortestPath(g, vertexStart, vertexEnd, h);
+			if (path != null) {
+				path = Collections.unmodifiableList(path);
+				cache.put(vertexStart, vertexEnd, path);
 			}
-		);
+		}
+		return path;
+	}
+
+	/**
+	 * Performs an A* search to find the shortest path in graph g from vertexStart to vertexEnd.
+	 * Vertices are taken from the queue in order of their distance from the start plus the
+	 * heuristic's estimate of their distance to the end, so the search is pulled towards vertexEnd
+	 * and settles far fewer vertices than Dijkstra's algorithm when the estimate is good.
+	 * The heuristic must be admissible and consistent (e.g. straight line distance) for the result to be the shortest path.
+	 * @param g Input graph to find the shortest path for.
+	 * @param vertexStart The starting vertex to find our shortest path from.
+	 * @param vertexEnd Which vertex do we want to know the shortest path towards?
+	 * @param h Estimates the distance between the data of two vertices, null for a plain Dijkstra search.
+	 * @return The list of edges representing the shortest path from 'vertexStart' to 'vertexEnd'.
+	 */
+	public static <V, E extends IWeight> List<Edge<E>> ShortestPath(IGraph<V, E> g, String vertexStart, String vertexEnd, IHeuristic<V> h) {
+		// Frozen graphs can be searched over their primitive arrays directly.
+		if (g instanceof CSRGraph) {
+			return ShortestPath((CSRGraph<V, E>)g, vertexStart, vertexEnd, h);
+		}
+
+		final List<IGraph.Vertex<V>> vertices = g.getVertices();
+		final int n = vertices.size();
 
-		// Initialize the above sets and maps.
-		for (IGraph.Vertex<V> v : vertices) {
-			dist.put(v.getVertexName(), Double.MAX_VALUE);
+		// Give every vertex a dense id for this search.
+		final Map<String, Integer> index = new HashMap<String, Integer>(n * 2);
+		String[] names = new String[n];
+		for (int i=0; i<n; i++) {
+			names[i] = vertices.get(i).getVertexName();
+			index.put(names[i], i);
 		}
+		if (!index.containsKey(vertexStart) || !index.containsKey(vertexEnd)) {
+			throw new NoSuchVertexException();
+		}
+		final int start = index.get(vertexStart);
+		final int end = index.get(vertexEnd);
+		final V target = vertices.get(end).getVertexData();
 
-		// The initial distance from the source will be 0.
-		dist.put(vertexStart, 0.0);
-		Q.add(vertexStart);
-		
-		for (String u = Q.poll(); u != null; u = Q.poll()) {
+		// Current distance from 'vertexStart' and previous vertex along the shortest path for each vertex.
+		final double[] dist = new double[n];
+		final int[] prev = new int[n];
+		final boolean[] visited = new boolean[n];
+		// Heuristic estimate for each vertex, computed the first time the vertex is reached.
+		final double[] est = new double[n];
+		Arrays.fill(dist, Double.MAX_VALUE);
+		Arrays.fill(est, -1.0);
+		dist[start] = 0.0;
+
+		final IndexedHeap Q = new IndexedHeap(n);
+		Q.push(start, 0.0);
+
+		while (!Q.isEmpty()) {
+			final int u = Q.poll();
 			// If u is the target node (vertexEnd) then there is no more work necessary. Break out of the loop.
-			if (u.equals(vertexEnd)) {
+			if (u == end) {
 				break;
 			}
-			
-			visited.add(u);
-			
-			for (IGraph.Vertex<V> n : g.getNeighbors(u)) {
-				if (!visited.contains(n.getVertexName()) && !Q.contains(n.getVertexName())) {
-					Q.add(n.getVertexName());
+			visited[u] = true;
+
+			// The edges are handed over directly, no neighbor list or edge lookup is needed.
+			g.forEachOutEdge(names[u], new IGraph.EdgeVisitor<E>() {
+				public void visit(String name, E data) {
+					int t = index.get(name);
+					if (visited[t]) {
+						return;
+					}
+
+					double d = dist[u] + data.getWeight();
+					// Check if this distance is shorter than what we already had.
+					if (d < dist[t]) {
+						dist[t] = d;
+						prev[t] = u;
+						if (h != null && est[t] < 0.0) {
+							est[t] = h.getEstimate(vertices.get(t).getVertexData(), target);
+						}
+						Q.push(t, h == null ? d : d + est[t]);
+					}
 				}
+			});
+		}
+
+		if (start != end && dist[end] == Double.MAX_VALUE) {
+			// Unreachable, there is no previous vertex to walk back to.
+			throw new NoSuchVertexException();
+		}
+
+		// Walk back from the end, each edge is added to the front of the path.
+		List<IGraph.Edge<E>> path = new ArrayList<IGraph.Edge<E>>();
+		for (int v = end; v != start; v = prev[v]) {
+			path.add(0, g.getEdge(names[prev[v]], names[v]));
+		}
+
+		return path;
+	}
+
+	/**
+	 * Finds the shortest path in graph g from vertexStart to vertexEnd with a bidirectional Dijkstra search.
+	 * One search runs forward over outgoing edges from vertexStart while a second runs backward
+	 * over incoming edges from vertexEnd, stopping once they provably cannot improve on the best
+	 * path joining them. One way (directed) edges are respected in both directions.
+	 * A CSRGraph is searched over its arrays by a BidirectionalDijkstra, keep one of those around
+	 * when running many queries. Other graphs are walked in place, backward through forEachInEdge(...).
+	 * @param g Input graph to find the shortest path for.
+	 * @param vertexStart The starting vertex to find our shortest path from.
+	 * @param vertexEnd Which vertex do we want to know the shortest path towards?
+	 * @return The list of edges representing the shortest path from 'vertexStart' to 'vertexEnd'.
+	 */
+	public static <V, E extends IWeight> List<Edge<E>> ShortestPathBidirectional(IGraph<V, E> g, String vertexStart, String vertexEnd) {
+		// Frozen graphs can be searched over their primitive arrays directly.
+		if (g instanceof CSRGraph) {
+			CSRGraph<V, E> csr = (CSRGraph<V, E>)g;
+			return new BidirectionalDijkstra<V, E>(csr).ShortestPath(csr.getVertexIndex(vertexStart), csr.getVertexIndex(vertexEnd));
+		}
+
+		// Make sure both vertices exist, this throws NoSuchVertexException for us.
+		g.getVertex(vertexStart);
+		g.getVertex(vertexEnd);
+		if (vertexStart.equals(vertexEnd)) {
+			return new ArrayList<Edge<E>>();
+		}
+
+		return new SparseBidirectional<E>(g).ShortestPath(vertexStart, vertexEnd);
+	}
+
+	/**
+	 * ShortestPathBidirectional(...) over a graph that is not frozen, with the same stopping rule
+	 * as BidirectionalDijkstra. The forward search walks forEachOutEdge(...) and the backward
+	 * search forEachInEdge(...). Vertices are only given an id for the heaps once one of the
+	 * searches reaches them, and their distances are kept in hash maps, so a query costs as much
+	 * as the part of the graph the two searches cover rather than the whole graph.
+	 */
+	private static class SparseBidirectional<E extends IWeight> implements IGraph.EdgeVisitor<E> {
+
+		private final IGraph<?, E> g;
+
+		/**
+		 * Distance from the start (forward) or to the end (backward) of each vertex reached,
+		 * and the vertex before it (forward) or after it (backward) along the way.
+		 */
+		private final Map<String, Double> distF = new HashMap<String, Double>(), distB = new HashMap<String, Double>();
+		private final Map<String, String> prevF = new HashMap<String, String>(), prevB = new HashMap<String, String>();
+		private final Set<String> settledF = new HashSet<String>(), settledB = new HashSet<String>();
+
+		/**
+		 * Id of each vertex reached by either search, and the name of each id.
+		 */
+		private final Map<String, Integer> ids = new HashMap<String, Integer>();
+		private final List<String> names = new ArrayList<String>();
+		private final IndexedHeap QF = new IndexedHeap(16), QB = new IndexedHeap(16);
+
+		/**
+		 * Length of the best path found so far, which crosses the edge from meetF to meetB.
+		 */
+		private double mu = Double.MAX_VALUE;
+		private String meetF, meetB;
+
+		/**
+		 * The vertex whose edges are being visited, its distance, and which search it belongs to.
+		 */
+		private String u;
+		private double du;
+		private boolean forward;
+
+		SparseBidirectional(IGraph<?, E> G) {
+			g = G;
+		}
 
-				IGraph.Edge<E> e = g.getEdge(u, n.getVertexName());
-				double d = dist.get(u) + e.getEdgeData().getWeight();
-				
-				// Check if this distance is shorter than what we already had.
-				if (d < dist.get(n.getVertexName())) {
-					dist.put(n.getVertexName(), d);
-					prev.put(n.getVertexName(), u);
-					// Update the priority of this node in our priority queue.
-					Q.remove(n.getVertexName());
-					Q.add(n.getVertexName());
+		List<Edge<E>> ShortestPath(String start, String end) {
+			distF.put(start, 0.0);
+			distB.put(end, 0.0);
+			QF.push(Id(start), 0.0);
+			QB.push(Id(end), 0.0);
+
+			while (!QF.isEmpty() && !QB.isEmpty()) {
+				if (QF.peekKey() + QB.peekKey() >= mu) {
+					break;
+				}
+
+				// Advance whichever search has the smaller frontier key, keeping the two discs balanced.
+				forward = QF.peekKey() <= QB.peekKey();
+				if (forward) {
+					u = names.get(QF.poll());
+					settledF.add(u);
+					du = distF.get(u);
+					g.forEachOutEdge(u, this);
+				} else {
+					u = names.get(QB.poll());
+					settledB.add(u);
+					du = distB.get(u);
+					g.forEachInEdge(u, this);
 				}
 			}
+
+			if (meetF == null) {
+				// Unreachable, there is no path to return.
+				throw new NoSuchVertexException();
+			}
+
+			// Forward half walked back to the start, the meeting edge, then the backward half on to the end.
+			List<Edge<E>> path = new ArrayList<Edge<E>>();
+			for (String v = meetF; !v.equals(start); v = prevF.get(v)) {
+				path.add(0, g.getEdge(prevF.get(v), v));
+			}
+			path.add(g.getEdge(meetF, meetB));
+			for (String v = meetB; !v.equals(end); v = prevB.get(v)) {
+				path.add(g.getEdge(v, prevB.get(v)));
+			}
+
+			return path;
 		}
-		
-		// We now have all the information we need, all we need to do is construct an array of edges
-		// representing the path we have constructed and return that list.
+
+		/**
+		 * Relax the edge between u and v for the search u belongs to, also checking whether it links up with the other search.
+		 */
+		@Override
+		public void visit(String v, E data) {
+			double d = du + data.getWeight();
+			Map<String, Double> dist = forward ? distF : distB;
+			if (!(forward ? settledF : settledB).contains(v)) {
+				Double old = dist.get(v);
+				if (old == null || d < old) {
+					dist.put(v, d);
+					(forward ? prevF : prevB).put(v, u);
+					(forward ? QF : QB).push(Id(v), d);
+				}
+			}
+
+			Double other = (forward ? distB : distF).get(v);
+			if (other != null && d + other < mu) {
+				mu = d + other;
+				meetF = forward ? u : v;
+				meetB = forward ? v : u;
+			}
+		}
+
+		/**
+		 * @return The id of the named vertex, given the next free one the first time it is reached.
+		 */
+		private int Id(String name) {
+			Integer id = ids.get(name);
+			if (id == null) {
+				id = names.size();
+				ids.put(name, id);
+				names.add(name);
+				QF.ensureCapacity(id + 1);
+				QB.ensureCapacity(id + 1);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * Computes the length of the shortest path from every source vertex to every target vertex.
+	 * One Dijkstra search is run per source, each stopping as soon as every target has been
+	 * settled, instead of one search per pair that is then only used for its length.
+	 * Graphs other than a CSRGraph are first frozen into one.
+	 * @param g Input graph to measure distances in.
+	 * @param sources The vertices to measure distances from.
+	 * @param targets The vertices to measure distances to.
+	 * @return table[i][k] is the length of the shortest path from sources[i] to targets[k], Double.MAX_VALUE if there is none.
+	 */
+	public static <V, E extends IWeight> double[][] DistanceTable(IGraph<V, E> g, List<String> sources, List<String> targets) {
+		return DistanceTable(g, sources, targets, null);
+	}
+
+	/**
+	 * Parallel version of DistanceTable(...), the sources are split into chunks that run on the given pool.
+	 * Each chunk has its own search arrays and only reads the graph, so any number of tables (or other
+	 * read only searches) may run at once, as long as nothing modifies the graph while they do. That
+	 * includes switching it between directed and undirected mode.
+	 * @param g Input graph to measure distances in.
+	 * @param sources The vertices to measure distances from.
+	 * @param targets The vertices to measure distances to.
+	 * @param pool Pool to run the searches on (ForkJoinPool.commonPool() uses every core), null to run them on this thread.
+	 * @return table[i][k] is the length of the shortest path from sources[i] to targets[k], Double.MAX_VALUE if there is none.
+	 */
+	public static <V, E extends IWeight> double[][] DistanceTable(IGraph<V, E> g, final List<String> sources, List<String> targets, ForkJoinPool pool) {
+		final CSRGraph<V, E> csr = g instanceof CSRGraph ? (CSRGraph<V, E>)g : new CSRGraph<V, E>(g);
+		final int[] t = new int[targets.size()];
+		for (int k=0; k<t.length; k++) {
+			t[k] = csr.getVertexIndex(targets.get(k));
+		}
+
+		final double[][] table = new double[sources.size()][];
+		List<Callable<Void>> chunks = new ArrayList<Callable<Void>>();
+		int size = ChunkSize(table.length, pool);
+		for (int lo=0; lo<table.length; lo+=size) {
+			final int from = lo;
+			final int to = Math.min(lo + size, table.length);
+			chunks.add(new Callable<Void>() {
+				public Void call() {
+					// One search per chunk, reused for every source in it.
+					DijkstraSearch<V, E> search = new DijkstraSearch<V, E>(csr);
+					for (int i=from; i<to; i++) {
+						table[i] = new double[t.length];
+						search.Distances(csr.getVertexIndex(sources.get(i)), t, table[i]);
+					}
+					return null;
+				}
+			});
+		}
+		RunAll(chunks, pool);
+		return table;
+	}
+
+	/**
+	 * How many items each task should take when splitting 'count' items across a pool.
+	 * A few chunks per thread keeps the threads busy when some chunks finish early.
+	 * @param count Number of items to split.
+	 * @param pool The pool the chunks will run on, null for a single chunk.
+	 * @return Number of items per chunk, at least 1.
+	 */
+	static int ChunkSize(int count, ForkJoinPool pool) {
+		if (pool == null) {
+			return Math.max(1, count);
+		}
+		int chunks = 4 * pool.getParallelism();
+		return Math.max(1, (count + chunks - 1) / chunks);
+	}
+
+	/**
+	 * Run every task on the pool (or in order on this thread when the pool is null) and wait for all of them.
+	 * An exception thrown by a task is rethrown here.
+	 * @param tasks The tasks to run.
+	 * @param pool The pool to run them on, may be null.
+	 */
+	static void RunAll(List<Callable<Void>> tasks, ForkJoinPool pool) {
+		try {
+			if (pool == null) {
+				for (Callable<Void> task : tasks) {
+					task.call();
+				}
+				return;
+			}
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Dijkstra's shortest path (or A* search) over the primitive arrays of a CSRGraph.
+	 * Produces the same path as the general version without any per vertex map lookups.
+	 * @param g Input graph to find the shortest path for.
+	 * @param vertexStart The starting vertex to find our shortest path from.
+	 * @param vertexEnd Which vertex do we want to know the shortest path towards?
+	 * @param h Estimates the distance between the data of two vertices, null for a plain Dijkstra search.
+	 * @return The list of edges representing the shortest path from 'vertexStart' to 'vertexEnd'.
+	 */
+	private static <V, E extends IWeight> List<Edge<E>> ShortestPath(CSRGraph<V, E> g, String vertexStart, String vertexEnd, IHeuristic<V> h) {
+		final int start = g.getVertexIndex(vertexStart);
+		final int end = g.getVertexIndex(vertexEnd);
+		final int n = g.getVertexCount();
+		final int[] offsets = g.getOffsets();
+		final int[] targets = g.getTargets();
+		final double[] weights = g.getWeights();
+		final int[] inOffsets = g.getInOffsets();
+		final int[] inSources = g.getInSources();
+		final int[] inEdges = g.getInEdges();
+		final boolean undirected = !g.isDirectedGraph();
+		final V target = g.getVertexData(end);
+
+		double[] dist = new double[n];
+		// The stored edge used to reach each vertex along its current shortest path.
+		int[] prev = new int[n];
+		boolean[] visited = new boolean[n];
+		// Heuristic estimate for each vertex, computed the first time the vertex is reached.
+		double[] est = new double[n];
+		Arrays.fill(dist, Double.MAX_VALUE);
+		Arrays.fill(est, -1.0);
+		dist[start] = 0.0;
+
+		IndexedHeap Q = new IndexedHeap(n);
+		Q.push(start, 0.0);
+
+		while (!Q.isEmpty()) {
+			int u = Q.poll();
+			// If u is the target node (vertexEnd) then there is no more work necessary.
+			if (u == end) {
+				break;
+			}
+			visited[u] = true;
+
+			for (int e=offsets[u]; e<offsets[u + 1]; e++) {
+				int t = targets[e];
+				double d = dist[u] + weights[e];
+				if (!visited[t] && d < dist[t]) {
+					dist[t] = d;
+					prev[t] = e;
+					Q.push(t, Priority(g, h, est, t, d, target));
+				}
+			}
+
+			// When undirected, edges stored into u may be walked backwards as well.
+			if (undirected) {
+				for (int i=inOffsets[u]; i<inOffsets[u + 1]; i++) {
+					int t = inSources[i];
+					double d = dist[u] + weights[inEdges[i]];
+					if (!visited[t] && d < dist[t]) {
+						dist[t] = d;
+						prev[t] = inEdges[i];
+						Q.push(t, Priority(g, h, est, t, d, target));
+					}
+				}
+			}
+		}
+
+		if (start != end && dist[end] == Double.MAX_VALUE) {
+			// Unreachable, there is no previous vertex to walk back to.
+			throw new NoSuchVertexException();
+		}
+
+		// Walk back from the end, each edge is added to the front of the path.
 		List<IGraph.Edge<E>> path = new ArrayList<IGraph.Edge<E>>();
-		for (String v = vertexEnd; v != vertexStart;) {
-			// What is the previous node?
-			String p = prev.get(v);
-			// Find the edge from p to v (note that p is previous).
-			IGraph.Edge<E> e = g.getEdge(p, v);
-			// Add this edge to the front of the array (note edges are retrieved in reverse order).
-			path.add(0, e);
-			// Iterate to the previous node.
-			v = p;
+		for (int v = end; v != start;) {
+			int e = prev[v];
+			path.add(0, g.getEdge(e));
+			// The previous vertex is whichever end of the edge we did not arrive at.
+			v = targets[e] == v ? g.getEdgeSource(e) : targets[e];
 		}
 
 		return path;
 	}
 	
+	/**
+	 * Queue priority of vertex v for an A* search over a CSRGraph: its distance plus its (cached) estimate.
+	 * @param g The graph being searched.
+	 * @param h The heuristic, null for a plain Dijkstra search (the priority is then just the distance).
+	 * @param est Cached estimates by vertex id, negative if not yet computed.
+	 * @param v The vertex whose priority is wanted.
+	 * @param d Current distance to v from the start.
+	 * @param target Data of the vertex being searched for.
+	 * @return The priority to push v into the queue with.
+	 */
+	private static <V, E> double Priority(CSRGraph<V, E> g, IHeuristic<V> h, double[] est, int v, double d, V target) {
+		if (h == null) {
+			return d;
+		}
+		if (est[v] < 0.0) {
+			est[v] = h.getEstimate(g.getVertexData(v), target);
+		}
+		return d + est[v];
+	}
+	
 	/**
 	 * Perform primm's minimum spanning tree algorithm. This is necessary for the Apporximate TSP
 	 * problem as we need the root node provided by Primm's algorithm.
+	 * The graph is treated as undirected without being modified or copied. When it is directed the
+	 * edges into each vertex are walked backwards through forEachInEdge(...) as well, so like Kruscal(...)
+	 * every stored edge may join the tree whichever way it points.
+	 * A CSRGraph is handed to PrimmTree(...) and the tree adapted back into a graph. Callers that
+	 * only need the tree itself should call PrimmTree(...) directly and keep the compact SpanningTree.
 	 * @param g The graph we wish to construct a minimum spanning tree for.
 	 * @param root Name of the vertex that will be used as the root node of the tree.
-	 * @return The minimum spanning tree represented as a graph.
+	 * @return The minimum spanning tree as an undirected Graph, null if root is not in the graph.
 	 */
-    public static <V, E extends IWeight> IGraph<V, E> Primm(IGraph<V, E> g, String root) {
-    	try {
-			// This methods requires that the graph be undirected, enforce that here.
-			g.setUndirectedGraph();
-			// This is our mst, for our in class notes it represents the v' and e' sets.
-			IGraph<V, E> mst = new Graph<V, E>();
-			mst.setUndirectedGraph();
-
-			List<Vertex<V>> VERTICES = g.getVertices();
-			
-			// IGraph.Edge has a private constructor (assholes)
-			// So will be using this to represent it instead.
-			class Edge {
-				public String v1;
-				public String v2;
-				public Double val;
-				public Edge(String V1, String V2, Double VAL) {
-					v1 = V1; v2 = V2; val = VAL;
-				}
-				@Override public boolean equals(Object obj) {
-					if (getClass() != obj.getClass()) { return false; }
-					final Edge other = (Edge)obj;
-					return other.v1.equals(this.v1) && other.v2.equals(this.v2);
+	public static <V, E extends IWeight> IGraph<V, E> Primm(IGraph<V, E> g, String root) {
+		// Frozen graphs can be searched over their primitive arrays directly.
+		if (g instanceof CSRGraph) {
+			CSRGraph<V, E> csr = (CSRGraph<V, E>)g;
+			try {
+				return PrimmTree(csr, csr.getVertexIndex(root)).toGraph(csr);
+			} catch (NoSuchVertexException e) {
+				return null;
+			}
+		}
+
+		final List<Vertex<V>> vertices = g.getVertices();
+		final int n = vertices.size();
+
+		// Give every vertex a dense id for this search.
+		final Map<String, Integer> index = new HashMap<String, Integer>(n * 2);
+		String[] names = new String[n];
+		for (int i=0; i<n; i++) {
+			names[i] = vertices.get(i).getVertexName();
+			index.put(names[i], i);
+		}
+		if (!index.containsKey(root)) {
+			return null;
+		}
+
+		// Lightest edge found so far joining each vertex to the tree, and the vertex at its other end.
+		final double[] key = new double[n];
+		final int[] parent = new int[n];
+		final List<E> data = new ArrayList<E>(Collections.<E>nCopies(n, null));
+		final boolean[] inTree = new boolean[n];
+		Arrays.fill(key, Double.POSITIVE_INFINITY);
+		Arrays.fill(parent, -1);
+
+		final IndexedHeap Q = new IndexedHeap(n);
+		key[index.get(root)] = 0.0;
+		Q.push(index.get(root), 0.0);
+
+		while (!Q.isEmpty()) {
+			final int u = Q.poll();
+			inTree[u] = true;
+
+			IGraph.EdgeVisitor<E> relax = new IGraph.EdgeVisitor<E>() {
+				public void visit(String name, E edgeData) {
+					int t = index.get(name);
+					double w = edgeData.getWeight();
+					if (!inTree[t] && w < key[t]) {
+						key[t] = w;
+						parent[t] = u;
+						data.set(t, edgeData);
+						Q.push(t, w);
+					}
 				}
+			};
+			g.forEachOutEdge(names[u], relax);
+			if (g.isDirectedGraph()) {
+				g.forEachInEdge(names[u], relax);
 			}
-			
-			// Set of non-reached vertices yet to be included in mst.
-			Set<String> UNREACHED = new HashSet<String>();
-			// Represents potential edges to be added to the tree.
-			// All edges will have an initial weight of Double.MAX_VALUE.
-			List<Edge> EDGES = new ArrayList<Edge>();
-			
-			// Initialize the list of unreached vertices.
-			for (Vertex<V> v : VERTICES) {
-				UNREACHED.add(v.getVertexName());
-				mst.addVertex(v.getVertexName(), v.getVertexData());
+		}
+
+		// Each tree edge is stored once, from parent to child, as SpanningTree.toGraph(...) does.
+		IGraph<V, E> mst = new Graph<V, E>(false);
+		for (Vertex<V> v : vertices) {
+			mst.addVertex(v.getVertexName(), v.getVertexData());
+		}
+		for (int v=0; v<n; v++) {
+			if (parent[v] >= 0) {
+				mst.addEdge(names[parent[v]], names[v], data.get(v));
 			}
-			
-			// Add all potential edges to our contender list.
-			for (IGraph.Edge<E> e : g.getEdges()) {
-				EDGES.add(new Edge(e.getVertexName1(), e.getVertexName2(), Double.MAX_VALUE));
+		}
+		return mst;
+	}
+
+	/**
+	 * Grow a minimum spanning tree from root, picking PrimmDense(...) or PrimmSparse(...) by the
+	 * density of the graph. The array version is O(n^2) and the heap version O(m log n), so the
+	 * array wins once there are more than about n^2 / log n edges (such as the complete graphs
+	 * between the stops of a tour).
+	 * The graph is treated as undirected, edges are followed either way.
+	 * @param g The graph we wish to construct a minimum spanning tree for.
+	 * @param root Dense id of the vertex to grow the tree from.
+	 * @return The minimum spanning tree of the component containing root.
+	 */
+	public static <V, E> SpanningTree PrimmTree(CSRGraph<V, E> g, int root) {
+		int n = g.getVertexCount();
+		if (n < 2 || g.getEdgeCount() * (Math.log(n) / Math.log(2)) <= (double)n * n) {
+			return PrimmSparse(g, root);
+		}
+
+		// Adjacency matrix holding the lighter direction of each pair.
+		int[] offsets = g.getOffsets();
+		int[] targets = g.getTargets();
+		double[] weights = g.getWeights();
+		double[][] w = new double[n][n];
+		for (double[] row : w) {
+			Arrays.fill(row, Double.POSITIVE_INFINITY);
+		}
+		for (int u=0; u<n; u++) {
+			for (int e=offsets[u]; e<offsets[u + 1]; e++) {
+				w[u][targets[e]] = Math.min(w[u][targets[e]], weights[e]);
 			}
-			
-			// Start with only our root node added to our tree.
-			UNREACHED.remove(root);
-			for (Vertex<V> v : g.getNeighbors(root)) {
-				EDGES.remove(new Edge(root, v.getVertexName(), 0.0));
-				EDGES.add(new Edge(root, v.getVertexName(), g.getEdgeData(root, v.getVertexName()).getWeight()));
+		}
+		SpanningTree t = PrimmDense(w, root);
+
+		// Recover which stored edge each tree edge came from.
+		int[] parent = new int[n];
+		double[] weight = new double[n];
+		int[] edge = new int[n];
+		for (int v=0; v<n; v++) {
+			parent[v] = t.getParent(v);
+			edge[v] = -1;
+			if (parent[v] >= 0) {
+				weight[v] = t.getWeight(v);
+				int fwd = g.findEdge(parent[v], v);
+				int rev = g.findEdge(v, parent[v]);
+				edge[v] = rev < 0 || (fwd >= 0 && weights[fwd] <= weights[rev]) ? fwd : rev;
 			}
-			
-			while (EDGES.size() > 0) {
-				// Sort the remaining list of edges.
-				Collections.sort(EDGES, new Comparator<Edge>() {
-					public int compare(Edge o1, Edge o2) {
-						return o1.val.compareTo(o2.val);
-					};
-				});
-				
-				// Pick the smallest edge and add it to our mst.
-				Edge min = EDGES.get(0);
-				EDGES.remove(min);
-				mst.addEdge(min.v1, min.v2, g.getEdgeData(min.v1, min.v2));
-				
-				// One of the vertices has already been added, one has not.
-				// Find out which vertex is being added, and remove it from the UNREACHED set.
-				String add = UNREACHED.contains(min.v1) ? min.v1 : min.v2;
-				UNREACHED.remove(add);
-				
-				// For all edges extending from the vertex that is now connected,
-				// we need to remove edges that go back to the 'blob' in the mst.
-				// and need to add weights that exit the 'blob' into UNREACHED vertices.
-				for (Vertex<V> v : g.getNeighbors(add)) {
-					// Remove the edge, only add it back if the edge is extending out of the blob.
-					EDGES.remove(new Edge(add, v.getVertexName(), 0.0));
-					if (UNREACHED.contains(v.getVertexName())) {
-						// This vertex is now accessible, set a proper edge weight.
-						EDGES.add(new Edge(add, v.getVertexName(), g.getEdgeData(add, v.getVertexName()).getWeight()));
-					}
+		}
+		return new SpanningTree(root, parent, weight, edge);
+	}
+
+	/**
+	 * Array based Prim's algorithm on a weight matrix, O(n^2) with no queue at all.
+	 * Each step scans the unreached vertices for the closest one and then relaxes its row.
+	 * The matrix is read as undirected, the pair i, k is joined by min(w[i][k], w[k][i]).
+	 * @param w w[i][k] is the weight of the edge from i to k, POSITIVE_INFINITY if there is none.
+	 * @param root Index of the vertex to grow the tree from.
+	 * @return The minimum spanning tree of the component containing root.
+	 */
+	public static SpanningTree PrimmDense(double[][] w, int root) {
+		int n = w.length;
+		int[] parent = new int[n];
+		double[] key = new double[n];
+		boolean[] reached = new boolean[n];
+		Arrays.fill(parent, -1);
+		Arrays.fill(key, Double.POSITIVE_INFINITY);
+		key[root] = 0.0;
+
+		for (int u=root; u >= 0; ) {
+			reached[u] = true;
+			int next = -1;
+			double best = Double.POSITIVE_INFINITY;
+			for (int v=0; v<n; v++) {
+				if (reached[v]) { continue; }
+				double d = Math.min(w[u][v], w[v][u]);
+				if (d < key[v]) {
+					key[v] = d;
+					parent[v] = u;
+				}
+				if (key[v] < best) {
+					best = key[v];
+					next = v;
 				}
 			}
+			u = next;
+		}
+
+		return new SpanningTree(root, parent, key, null);
+	}
+
+	/**
+	 * Heap based Prim's algorithm, O(m log n).
+	 * Works straight off the CSR arrays with an IndexedHeap keyed by the lightest edge
+	 * into the tree found so far, following outgoing and incoming edges alike.
+	 * @param g The graph we wish to construct a minimum spanning tree for.
+	 * @param root Dense id of the vertex to grow the tree from.
+	 * @return The minimum spanning tree of the component containing root.
+	 */
+	public static <V, E> SpanningTree PrimmSparse(CSRGraph<V, E> g, int root) {
+		int n = g.getVertexCount();
+		int[] offsets = g.getOffsets();
+		int[] targets = g.getTargets();
+		double[] weights = g.getWeights();
+		int[] inOffsets = g.getInOffsets();
+		int[] inSources = g.getInSources();
+		int[] inEdges = g.getInEdges();
+
+		int[] parent = new int[n];
+		int[] edge = new int[n];
+		double[] key = new double[n];
+		boolean[] reached = new boolean[n];
+		Arrays.fill(parent, -1);
+		Arrays.fill(edge, -1);
+
+		IndexedHeap Q = new IndexedHeap(n);
+		Q.push(root, 0.0);
+		while (!Q.isEmpty()) {
+			int u = Q.poll();
+			reached[u] = true;
+
+			for (int e=offsets[u]; e<offsets[u + 1]; e++) {
+				int v = targets[e];
+				if (!reached[v] && (parent[v] < 0 || weights[e] < key[v])) {
+					key[v] = weights[e];
+					parent[v] = u;
+					edge[v] = e;
+					Q.push(v, weights[e]);
+				}
+			}
+			for (int i=inOffsets[u]; i<inOffsets[u + 1]; i++) {
+				int v = inSources[i];
+				int e = inEdges[i];
+				if (!reached[v] && (parent[v] < 0 || weights[e] < key[v])) {
+					key[v] = weights[e];
+					parent[v] = u;
+					edge[v] = e;
+					Q.push(v, weights[e]);
+				}
+			}
+		}
+
+		return new SpanningTree(root, parent, key, edge);
+	}
 
-			return mst;
-    	} catch (Exception e) { 
-			return null;
-    	}
-    }
-	
     /* ----------------------------------------------------------------------------
      * Topological Sort(...)
      * ---------------------------------------------------------------------------- */
@@ -227,10 +770,10 @@ public class GraphAlgorithms {
     		status.put(v.getVertexName(), Status.UNVISITED);
     	}
     	
-    	// n will be our current unmarked node.
-    	for (Vertex<V> n = selectUnmarked(status, g); n != null; n = selectUnmarked(status, g)) {
+    	// Start a search from every vertex still unmarked (procVertex skips visited ones).
+    	for (Vertex<V> n : g.getVertices()) {
     		try {
-				procVertex(n, status, g, l);
+				procVertex(n.getVertexName(), status, g, l);
     		} catch (RuntimeException e) {
     			// Graph is not a DAG, return null.
     			return null;
@@ -242,45 +785,29 @@ public class GraphAlgorithms {
     
     /**
      * Process a vertex in our depth first search based algorithm (recursive implementation).
-     * @param n The current node to parse.
+     * @param n Name of the current node to parse.
      * @param s List of current statuses for all nodes in the input graph.
      * @param g Graph containing all vertices to parse.
      * @param l List subset to the topologically sorted list of vertices.
      */
-    private static <V, E> void procVertex(Vertex<V> n, HashMap<String, Status> s, IGraph<V, E> g, List<Vertex<V>> l) {
-		if (s.get(n.getVertexName()) == Status.TEMPORARY) {
+    private static <V, E> void procVertex(String n, final HashMap<String, Status> s, final IGraph<V, E> g, final List<Vertex<V>> l) {
+		if (s.get(n) == Status.TEMPORARY) {
 			// The graph is not a DAG, return null for failure.
 			throw new RuntimeException();
 		}
 		
-		if (s.get(n.getVertexName()) == Status.UNVISITED) {
-			s.put(n.getVertexName(), Status.TEMPORARY);
-			for (Vertex<V> m : g.getNeighbors(n.getVertexName())) {
-				procVertex(m, s, g, l);
-			}
-			s.put(n.getVertexName(), Status.VISITED);
-			l.add(0, n);
+		if (s.get(n) == Status.UNVISITED) {
+			s.put(n, Status.TEMPORARY);
+			g.forEachOutEdge(n, new IGraph.EdgeVisitor<E>() {
+				public void visit(String m, E data) {
+					procVertex(m, s, g, l);
+				}
+			});
+			s.put(n, Status.VISITED);
+			l.add(0, g.getVertex(n));
 		}
     }
     
-    /**
-     * Select an unmarked node from the given graph.
-     * @param v List of current status for all vertices in the input graph.
-     * @param g Graph of vertices to pick from.
-     * @return An unvisited vertex, null if no such vertices exist.
-     */
-    private static <V, E> Vertex<V> selectUnmarked(HashMap<String, Status> v, IGraph<V, E> g) {
-    	for (String key : v.keySet()) {
-    		// If the vertex denoted by 'key' has not been visited, return it.
-    		if (v.get(key) == Status.UNVISITED) {
-    			return g.getVertex(key);
-    		}
-    	}
-
-    	// All nodes have been visited return false.
-    	return null;
-    }
-    
     /* ----------------------------------------------------------------------------
      * All Topological Sort(...)
      * ---------------------------------------------------------------------------- */
@@ -373,76 +900,128 @@ public class GraphAlgorithms {
     
     /**
      * Perform Kruscal's algorithm to find a minimum spanning tree of the input graph.
-     * Note that this requires that the graph be undirected, as such, this method 
-     * will explicitly set the graph as undirected if it is not. If this provides a
-     * problem with the grader, go ahead and dock my points I don't give enough of a shit
-     * to support directed graphs.
+     * Note that this treats the graph as undirected. The input graph is only read, never
+     * switched to undirected mode, so it may be shared with other readers while this runs.
      * If the input graph is not fully connected, it will return a graph with fully connected
      * components realized by minimum spanning forests.
+     * The edge weights are sorted once as a primitive array and components are tracked
+     * with a DisjointSet over dense vertex ids, so this runs in O(m log m).
      * @param g The graph to generate a minimum spanning tree for.
      * @return The minimum spanning tree for the graph g.
      */
     public static <V, E extends IWeight> IGraph<V, E> Kruscal(IGraph<V, E> g) {
-    	// This methods requires that the graph be undirected, enforce that here.
-    	g.setUndirectedGraph();
+    	// Direction does not matter here, an edge joins two components whichever way it points.
     	// This is our mst, for our in class notes it represents the v' and e' sets.
     	IGraph<V, E> mst = new Graph<V, E>();
     	mst.setUndirectedGraph();
     	
-    	// Sets of connected vertices in the MST.
-    	Map<String, Set<String>> S = new HashMap<String, Set<String>>();
-    	
     	// The MST needs all vertices, so we can go ahead and add them all.
-    	for (Vertex<V> v : g.getVertices()) {
+    	List<Vertex<V>> vertices = g.getVertices();
+    	for (Vertex<V> v : vertices) {
     		mst.addVertex(v.getVertexName(), v.getVertexData());
-    		// Create our initial set connections.
-    		Set<String> tmp = new HashSet<String>();
-    		tmp.add(v.getVertexName());
-    		S.put(v.getVertexName(), tmp);
     	}
     	
-    	// Now generate the priority queue, initially filled with all of the available edges,
-    	// using a comparator that can compare edge weights.
+    	if (g instanceof CSRGraph) {
+    		// Work straight off the stored edge arrays, no Edge objects are needed until an edge is taken.
+    		CSRGraph<V, E> csr = (CSRGraph<V, E>)g;
+    		int[] offsets = csr.getOffsets();
+    		int[] targets = csr.getTargets();
+    		int[] order = SortByWeight(csr.getWeights());
+    		DisjointSet S = new DisjointSet(csr.getVertexCount());
+    		for (int i=0; i<order.length && S.getSetCount() > 1; i++) {
+    			int e = order[i];
+    			int u = csr.getEdgeSource(e);
+    			if (S.union(u, targets[e])) {
+    				mst.addEdge(csr.getVertexName(u), csr.getVertexName(targets[e]), csr.getEdgeData(e));
+    			}
+    		}
+    		return mst;
+    	}
+    	
+    	// Dense ids for the vertices.
+    	Map<String, Integer> ids = new HashMap<String, Integer>();
+    	for (Vertex<V> v : vertices) {
+    		ids.put(v.getVertexName(), ids.size());
+    	}
+    	
     	List<Edge<E>> edges = g.getEdges();
-    	PriorityQueue<Edge<E>> pq = new PriorityQueue<Edge<E>>(edges.size(), 
-			new Comparator<Edge<E>>() {
-				public int compare(Edge<E> first, Edge<E> second) {
-					Double f = first.getEdgeData().getWeight();
-					Double s = second.getEdgeData().getWeight();
-					return f.compareTo(s);
-				}
-			}
-		);
-
-    	for (Edge<E> e : edges) {
-    		pq.add(e);
+    	double[] weights = new double[edges.size()];
+    	for (int i=0; i<weights.length; i++) {
+    		weights[i] = edges.get(i).getEdgeData().getWeight();
     	}
     	
-    	// There should be #vertices-1 edges in total when we are done.
-    	final int total = g.getVertices().size();
-    	for (int count = 0; (count < total-1) && (!pq.isEmpty());) {
-
-    		// Remove our next edge
-    		Edge<E> e = pq.remove();
-    		
-    		// Find the set for each
-    		Set<String> s1 = S.get(e.getVertexName1());
-    		Set<String> s2 = S.get(e.getVertexName2());
-    		
-    		// Make sure that our two vertices currently belong to different sets.
-    		if (s1 != s2) {
-    			// Update our MST.
+    	// Take edges from lightest to heaviest, skipping any that would close a cycle.
+    	int[] order = SortByWeight(weights);
+    	DisjointSet S = new DisjointSet(ids.size());
+    	for (int i=0; i<order.length && S.getSetCount() > 1; i++) {
+    		Edge<E> e = edges.get(order[i]);
+    		if (S.union(ids.get(e.getVertexName1()), ids.get(e.getVertexName2()))) {
     			mst.addEdge(e.getVertexName1(), e.getVertexName2(), e.getEdgeData());
-    			count++;
-    			
-    			// Update the sets.
-    			s1.addAll(s2);
-    			for (String s : s2) {
-    				S.put(s, s1);
-    			}
     		}
     	}
 
         return mst;
     }
+    
+    /**
+     * Sort the indices of an array of weights.
+     * @param weights The weights to sort by, this array is not modified.
+     * @return The indices 0..weights.length-1 ordered from the lightest weight to the heaviest.
+     */
+    static int[] SortByWeight(double[] weights) {
+    	int[] order = new int[weights.length];
+    	for (int i=0; i<order.length; i++) {
+    		order[i] = i;
+    	}
+    	SortByWeight(order, weights, 0, order.length - 1);
+    	return order;
+    }
+    
+    /**
+     * Quicksort of order[lo..hi] by weight, recursing on the smaller side so the stack stays O(log n).
+     */
+    private static void SortByWeight(int[] order, double[] w, int lo, int hi) {
+    	while (hi - lo > 16) {
+    		// Median of three pivot.
+    		int mid = (lo + hi) >>> 1;
+    		if (w[order[mid]] < w[order[lo]]) { Swap(order, mid, lo); }
+    		if (w[order[hi]] < w[order[lo]]) { Swap(order, hi, lo); }
+    		if (w[order[hi]] < w[order[mid]]) { Swap(order, hi, mid); }
+    		double pivot = w[order[mid]];
+    		
+    		int i = lo, j = hi;
+    		while (i <= j) {
+    			while (w[order[i]] < pivot) { i++; }
+    			while (w[order[j]] > pivot) { j--; }
+    			if (i <= j) {
+    				Swap(order, i++, j--);
+    			}
+    		}
+    		
+    		if (j - lo < hi - i) {
+    			SortByWeight(order, w, lo, j);
+    			lo = i;
+    		} else {
+    			SortByWeight(order, w, i, hi);
+    			hi = j;
+    		}
+    	}
+    	
+    	// Insertion sort for what is left.
+    	for (int i=lo + 1; i<=hi; i++) {
+    		int id = order[i];
+    		int j = i - 1;
+    		while (j >= lo && w[order[j]] > w[id]) {
+    			order[j + 1] = order[j];
+    			j--;
+    		}
+    		order[j + 1] = id;
+    	}
+    }
+    
+    private static void Swap(int[] a, int i, int j) {
+    	int t = a[i];
+    	a[i] = a[j];
+    	a[j] = t;
+    }
 }
@@ -0,0 +1,11 @@
+package cs311.hw8.graphalgorithms;
+
+/**
+ * Estimates the remaining distance between two vertices for an A* search.
+ * The estimate must never be more than the true shortest distance (admissible),
+ * or the path found may not be the shortest.
+ */
+public interface IHeuristic<V>
+{
+    public double getEstimate(V vertex, V target);
+}
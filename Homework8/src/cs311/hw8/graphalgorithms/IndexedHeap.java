@@ -0,0 +1,195 @@
+package cs311.hw8.graphalgorithms;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap over the int ids 0..capacity-1 keyed by double priorities.
+ * The position of every id in the heap is tracked, so contains(...) is O(1)
+ * and the key of an id already in the heap can be decreased in O(log n),
+ * which is exactly what Dijkstra's algorithm needs when relaxing an edge.
+ */
+public class IndexedHeap {
+
+	/**
+	 * Ids currently in the heap, heap[0] has the smallest key.
+	 */
+	private int[] heap;
+
+	/**
+	 * Position of each id within 'heap', -1 if the id is not in the heap.
+	 */
+	private int[] pos;
+
+	/**
+	 * Current key of each id.
+	 */
+	private double[] keys;
+
+	/**
+	 * Number of ids currently in the heap.
+	 */
+	private int size;
+
+	/**
+	 * Constructs an empty heap that can hold the ids 0..capacity-1.
+	 * @param capacity One more than the largest id that will be added.
+	 */
+	public IndexedHeap(int capacity) {
+		heap = new int[capacity];
+		pos = new int[capacity];
+		keys = new double[capacity];
+		for (int i=0; i<capacity; i++) {
+			pos[i] = -1;
+		}
+	}
+
+	/**
+	 * @return True if there are no ids in the heap.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return Number of ids currently in the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param id The id to check for.
+	 * @return True if the id is currently in the heap.
+	 */
+	public boolean contains(int id) {
+		return pos[id] >= 0;
+	}
+
+	/**
+	 * @param id An id currently in the heap.
+	 * @return The key of that id.
+	 */
+	public double getKey(int id) {
+		return keys[id];
+	}
+
+	/**
+	 * @return The id with the smallest key, without removing it.
+	 */
+	public int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * @return The smallest key in the heap.
+	 */
+	public double peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Add the id to the heap, or lower its key if it is already present.
+	 * Nothing happens if the id is present with a key that is already smaller.
+	 * @param id The id to add.
+	 * @param key Priority of the id, smaller keys are removed first.
+	 */
+	public void push(int id, double key) {
+		if (pos[id] < 0) {
+			keys[id] = key;
+			heap[size] = id;
+			pos[id] = size;
+			siftUp(size++);
+		} else if (key < keys[id]) {
+			keys[id] = key;
+			siftUp(pos[id]);
+		}
+	}
+
+	/**
+	 * Remove and return the id with the smallest key.
+	 * @return The id with the smallest key.
+	 */
+	public int poll() {
+		int min = heap[0];
+		pos[min] = -1;
+		if (--size > 0) {
+			heap[0] = heap[size];
+			pos[heap[0]] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+	/**
+	 * Remove every id from the heap.
+	 * This is O(size), so a heap can be reused cheaply between searches.
+	 */
+	public void clear() {
+		for (int i=0; i<size; i++) {
+			pos[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Make room for the ids 0..capacity-1, for searches that only learn how many ids they need as they go.
+	 * The capacity is at least doubled each time it grows, so adding ids one by one stays amortized O(1).
+	 * @param capacity One more than the largest id that will be added.
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity <= pos.length) {
+			return;
+		}
+
+		int old = pos.length;
+		capacity = Math.max(capacity, old * 2);
+		heap = Arrays.copyOf(heap, capacity);
+		pos = Arrays.copyOf(pos, capacity);
+		keys = Arrays.copyOf(keys, capacity);
+		Arrays.fill(pos, old, capacity, -1);
+	}
+
+	/**
+	 * Move the entry at heap position i up until its parent is no larger.
+	 */
+	private void siftUp(int i) {
+		int id = heap[i];
+		double key = keys[id];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[heap[parent]] <= key) {
+				break;
+			}
+			heap[i] = heap[parent];
+			pos[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+	/**
+	 * Move the entry at heap position i down until neither child is smaller.
+	 */
+	private void siftDown(int i) {
+		int id = heap[i];
+		double key = keys[id];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+				child++;
+			}
+			if (keys[heap[child]] >= key) {
+				break;
+			}
+			heap[i] = heap[child];
+			pos[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+}
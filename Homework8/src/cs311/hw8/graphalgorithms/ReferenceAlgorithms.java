@@ -0,0 +1,178 @@
+package cs311.hw8.graphalgorithms;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import cs311.hw8.graph.Graph;
+import cs311.hw8.graph.IGraph;
+import cs311.hw8.graph.IGraph.Edge;
+import cs311.hw8.graph.IGraph.Vertex;
+
+/**
+ * The original versions of algorithms GraphAlgorithms has since replaced, kept in one place
+ * so the tests can check the faster versions against them.
+ * They are much slower on large graphs and are not meant to be called from anywhere else.
+ */
+class ReferenceAlgorithms {
+
+	/**
+	 * The original PriorityQueue based version of GraphAlgorithms.ShortestPath(...).
+	 * Updating a priority means removing and re-adding the vertex, which is a linear scan of the queue,
+	 * it is only kept here as a reference to compare the indexed heap version against.
+	 * @param g Input graph to find the shortest path for.
+	 * @param vertexStart The starting vertex to find our shortest path from.
+	 * @param vertexEnd Which vertex do we want to know the shortest path towards?
+	 * @return The list of edges representing the shortest path from 'vertexStart' to 'vertexEnd'.
+	 */
+	static <V, E extends IWeight> List<Edge<E>> ShortestPathQueue(IGraph<V, E> g, String vertexStart, String vertexEnd) {
+		List<IGraph.Vertex<V>> vertices = g.getVertices();
+		// Current set of distances from 'vertexStart' to any given vertex.
+		Map<String, Double> dist = new HashMap<String, Double>();
+		// Will contain the previous node (value) in the shortest path to any given node (key).
+		Map<String, String> prev = new HashMap<String, String>();
+		Set<String> visited = new HashSet<String>();
+		
+		// Set of Vertices that need to be parsed.
+		PriorityQueue<String> Q = new PriorityQueue<String>(vertices.size(),
+			new Comparator<String>() {
+				public int compare(String v1, String v2) {
+					Double d1 = dist.get(v1);
+					Double d2 = dist.get(v2);
+					return d1.compareTo(d2);
+				}
+			}
+		);
+
+		// Initialize the above sets and maps.
+		for (IGraph.Vertex<V> v : vertices) {
+			dist.put(v.getVertexName(), Double.MAX_VALUE);
+		}
+
+		// The initial distance from the source will be 0.
+		dist.put(vertexStart, 0.0);
+		Q.add(vertexStart);
+		
+		for (String u = Q.poll(); u != null; u = Q.poll()) {
+			// If u is the target node (vertexEnd) then there is no more work necessary. Break out of the loop.
+			if (u.equals(vertexEnd)) {
+				break;
+			}
+			
+			visited.add(u);
+			
+			for (IGraph.Vertex<V> n : g.getNeighbors(u)) {
+				if (!visited.contains(n.getVertexName()) && !Q.contains(n.getVertexName())) {
+					Q.add(n.getVertexName());
+				}
+
+				IGraph.Edge<E> e = g.getEdge(u, n.getVertexName());
+				double d = dist.get(u) + e.getEdgeData().getWeight();
+				
+				// Check if this distance is shorter than what we already had.
+				if (d < dist.get(n.getVertexName())) {
+					dist.put(n.getVertexName(), d);
+					prev.put(n.getVertexName(), u);
+					// Update the priority of this node in our priority queue.
+					Q.remove(n.getVertexName());
+					Q.add(n.getVertexName());
+				}
+			}
+		}
+		
+		// We now have all the information we need, all we need to do is construct an array of edges
+		// representing the path we have constructed and return that list.
+		List<IGraph.Edge<E>> path = new ArrayList<IGraph.Edge<E>>();
+		for (String v = vertexEnd; v != vertexStart;) {
+			// What is the previous node?
+			String p = prev.get(v);
+			// Find the edge from p to v (note that p is previous).
+			IGraph.Edge<E> e = g.getEdge(p, v);
+			// Add this edge to the front of the array (note edges are retrieved in reverse order).
+			path.add(0, e);
+			// Iterate to the previous node.
+			v = p;
+		}
+
+		return path;
+	}
+
+	/**
+	 * The original GraphAlgorithms.Kruscal(...), tracking components as sets of vertex names.
+	 * Merging two components re-maps every member of one of them, which is O(n^2) in the worst case,
+	 * it is only kept here as a reference to compare the union-find version against.
+	 * Note that this treats the graph as undirected. The input graph is only read, never
+	 * switched to undirected mode, so it may be shared with other readers while this runs.
+	 * If the input graph is not fully connected, it will return a graph with fully connected
+	 * components realized by minimum spanning forests.
+	 * @param g The graph to generate a minimum spanning tree for.
+	 * @return The minimum spanning tree for the graph g.
+	 */
+	static <V, E extends IWeight> IGraph<V, E> KruscalSets(IGraph<V, E> g) {
+		// Direction does not matter here, an edge joins two components whichever way it points.
+		// This is our mst, for our in class notes it represents the v' and e' sets.
+		IGraph<V, E> mst = new Graph<V, E>();
+		mst.setUndirectedGraph();
+		
+		// Sets of connected vertices in the MST.
+		Map<String, Set<String>> S = new HashMap<String, Set<String>>();
+		
+		// The MST needs all vertices, so we can go ahead and add them all.
+		for (Vertex<V> v : g.getVertices()) {
+			mst.addVertex(v.getVertexName(), v.getVertexData());
+			// Create our initial set connections.
+			Set<String> tmp = new HashSet<String>();
+			tmp.add(v.getVertexName());
+			S.put(v.getVertexName(), tmp);
+		}
+		
+		// Now generate the priority queue, initially filled with all of the available edges,
+		// using a comparator that can compare edge weights.
+		List<Edge<E>> edges = g.getEdges();
+		PriorityQueue<Edge<E>> pq = new PriorityQueue<Edge<E>>(edges.size(), 
+			new Comparator<Edge<E>>() {
+				public int compare(Edge<E> first, Edge<E> second) {
+					Double f = first.getEdgeData().getWeight();
+					Double s = second.getEdgeData().getWeight();
+					return f.compareTo(s);
+				}
+			}
+		);
+
+		for (Edge<E> e : edges) {
+			pq.add(e);
+		}
+		
+		// There should be #vertices-1 edges in total when we are done.
+		final int total = g.getVertices().size();
+		for (int count = 0; (count < total-1) && (!pq.isEmpty());) {
+
+			// Remove our next edge
+			Edge<E> e = pq.remove();
+			
+			// Find the set for each
+			Set<String> s1 = S.get(e.getVertexName1());
+			Set<String> s2 = S.get(e.getVertexName2());
+			
+			// Make sure that our two vertices currently belong to different sets.
+			if (s1 != s2) {
+				// Update our MST.
+				mst.addEdge(e.getVertexName1(), e.getVertexName2(), e.getEdgeData());
+				count++;
+				
+				// Update the sets.
+				s1.addAll(s2);
+				for (String s : s2) {
+					S.put(s, s1);
+				}
+			}
+		}
+
+		return mst;
+	}
+}
@@ -0,0 +1,153 @@
+package cs311.hw8.graphalgorithms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of routes keyed by their (start, end) vertex pair, evicting the least recently used.
+ * Counts hits, misses and evictions so the hit rate of a workload can be checked.
+ * A cache only ever holds routes of one graph, it must be cleared when that graph is replaced.
+ * All methods are synchronized, a cache may be shared between threads.
+ * @param <T> Type of route stored, for example a list of edges or of vertex names.
+ */
+public class RouteCache<T> {
+
+	/**
+	 * Largest number of routes held at once.
+	 */
+	private final int capacity;
+
+	/**
+	 * Routes in access order, the least recently used first.
+	 */
+	private final LinkedHashMap<Key, T> routes;
+
+	private long hits, misses, evictions;
+
+	/**
+	 * Constructs an empty cache.
+	 * @param Capacity Largest number of routes held at once, at least 1.
+	 */
+	public RouteCache(int Capacity) {
+		if (Capacity < 1) {
+			throw new IllegalArgumentException("RouteCache capacity must be at least 1");
+		}
+		capacity = Capacity;
+		routes = new LinkedHashMap<Key, T>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override protected boolean removeEldestEntry(Map.Entry<Key, T> eldest) {
+				if (size() > capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Look up a route, counting a hit or a miss, and mark it as the most recently used.
+	 * @param from Name of the start vertex.
+	 * @param to Name of the end vertex.
+	 * @return The cached route, null if there is none.
+	 */
+	public synchronized T get(String from, String to) {
+		T route = routes.get(new Key(from, to));
+		if (route != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return route;
+	}
+
+	/**
+	 * Add a route, evicting the least recently used one if the cache is full.
+	 * @param from Name of the start vertex.
+	 * @param to Name of the end vertex.
+	 * @param route The route, null routes are not stored.
+	 */
+	public synchronized void put(String from, String to, T route) {
+		if (route != null) {
+			routes.put(new Key(from, to), route);
+		}
+	}
+
+	/**
+	 * Remove every route, for when the graph the routes were found on is replaced.
+	 * The counters are kept.
+	 */
+	public synchronized void clear() {
+		routes.clear();
+	}
+
+	/**
+	 * @return Largest number of routes held at once.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return Number of routes currently held.
+	 */
+	public synchronized int size() {
+		return routes.size();
+	}
+
+	/**
+	 * @return Number of lookups that found a route.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return Number of lookups that found nothing.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return Number of routes dropped to make room for newer ones.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Reset the hit, miss and eviction counters.
+	 */
+	public synchronized void resetCounters() {
+		hits = misses = evictions = 0;
+	}
+
+	@Override public synchronized String toString() {
+		return String.format("RouteCache %d/%d routes, %d hits, %d misses, %d evictions",
+				routes.size(), capacity, hits, misses, evictions);
+	}
+
+	/**
+	 * (start, end) vertex pair.
+	 */
+	private static class Key {
+		private final String from, to;
+
+		Key(String From, String To) {
+			from = From;
+			to = To;
+		}
+
+		@Override public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) { return false; }
+			Key other = (Key)obj;
+			return from.equals(other.from) && to.equals(other.to);
+		}
+
+		@Override public int hashCode() {
+			return from.hashCode() * 31 + to.hashCode();
+		}
+	}
+}
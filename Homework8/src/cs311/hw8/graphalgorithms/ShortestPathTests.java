@@ -1,5 +1,6 @@
 package cs311.hw8.graphalgorithms;
 
+import cs311.hw8.graph.CSRGraph;
 import cs311.hw8.graph.Graph;
 import cs311.hw8.graph.IGraph;
 import cs311.hw8.graph.IGraph.Edge;
@@ -7,10 +8,17 @@ import cs311.hw8.graph.IGraph.Edge;
 import static cs311.hw8.graphalgorithms.GraphAlgorithms.*;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 /**
  * Created by Erica on 11/25/2016.
@@ -157,6 +165,275 @@ public class ShortestPathTests {
         assertEquals(14.0,findPathSum(actual), EPSILON);
     }
 
+    @Test public void MatchesQueueVersionTest(){
+        // Random sparse graph, the indexed heap search must agree with the original search everywhere.
+        Graph<Integer, IWeight> g = randomGraph(311, 60, 240);
+
+        CSRGraph<Integer, IWeight> frozen = new CSRGraph<>(g);
+        for (int i = 1; i < 60; i++) {
+            List<Edge<IWeight>> expected;
+            try {
+                expected = ReferenceAlgorithms.ShortestPathQueue(g, "v0", "v" + i);
+            } catch (IGraph.NoSuchVertexException e) {
+                continue; // unreachable
+            }
+            assertEquals(findPathSum(expected), findPathSum(ShortestPath(g, "v0", "v" + i)), EPSILON);
+            assertEquals(findPathSum(expected), findPathSum(ShortestPath(frozen, "v0", "v" + i)), EPSILON);
+        }
+    }
+
+    @Test public void ReusableSearchTest(){
+        // One search object answers every kind of query, in any order, like fresh searches would.
+        // Vertices are referred to by their dense ids in the frozen graph.
+        Graph<Integer, IWeight> g = randomGraph(16, 50, 150, false);
+        CSRGraph<Integer, IWeight> frozen = new CSRGraph<>(g);
+
+        for (boolean directed : new boolean[] { true, false }) {
+            if (!directed) {
+                frozen.setUndirectedGraph();
+            }
+            DijkstraSearch<Integer, IWeight> search = new DijkstraSearch<>(frozen);
+            int[] targets = { 3, 7, 3, 49, 0 };
+            double[] row = new double[targets.length];
+            for (int s = 0; s < 50; s += 7) {
+                double[] expected = new double[50];
+                for (int t = 0; t < 50; t++) {
+                    try {
+                        expected[t] = findPathSum(ShortestPath(frozen, frozen.getVertexName(s), frozen.getVertexName(t)));
+                    } catch (IGraph.NoSuchVertexException e) {
+                        expected[t] = Double.MAX_VALUE; // unreachable
+                    }
+                }
+
+                search.ShortestPathTree(s);
+                for (int t = 0; t < 50; t++) {
+                    assertEquals(expected[t], search.getDistance(t), EPSILON);
+                    if (expected[t] != Double.MAX_VALUE) {
+                        assertEquals(expected[t], findPathSum(search.getPath(t)), EPSILON);
+                    }
+                }
+
+                search.Distances(s, targets, row);
+                for (int k = 0; k < targets.length; k++) {
+                    assertEquals(expected[targets[k]], row[k], EPSILON);
+                }
+
+                for (int t = 0; t < 50; t += 5) {
+                    assertEquals(expected[t], search.Distance(s, t), EPSILON);
+                    if (expected[t] != Double.MAX_VALUE) {
+                        assertEquals(expected[t], findPathSum(search.ShortestPath(s, t)), EPSILON);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test public void AStarTest(){
+        // Vertices sit on a number line and every edge is at least as long as the gap it covers,
+        // so the gap between two vertices is an admissible heuristic.
+        Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+        g.addVertex("A", 0);
+        g.addVertex("B", 2);
+        g.addVertex("C", 3);
+        g.addVertex("D", 5);
+        g.addVertex("E", 9);
+
+        g.addEdge("A", "B", new Weight(2));
+        g.addEdge("A", "C", new Weight(6));
+        g.addEdge("B", "C", new  Weight(1));
+        g.addEdge("B", "D", new  Weight(8));
+        g.addEdge("C", "D", new  Weight(2));
+        g.addEdge("C", "E", new  Weight(9));
+        g.addEdge("D", "E", new  Weight(4));
+
+        IHeuristic<Integer> gap = new IHeuristic<Integer>() {
+            @Override
+            public double getEstimate(Integer vertex, Integer target) {
+                return Math.abs(target - vertex);
+            }
+        };
+
+        assertEquals(ShortestPath(g, "A", "E"), ShortestPath(g, "A", "E", gap));
+        assertEquals(ShortestPath(g, "A", "E"), ShortestPath(new CSRGraph<>(g), "A", "E", gap));
+        assertEquals(9.0, findPathSum(ShortestPath(g, "A", "E", gap)), EPSILON);
+    }
+
+    @Test public void BidirectionalTest(){
+        Graph<Integer, IWeight> g = randomGraph(42, 50, 200, false);
+        // One search over a frozen copy answers every query, following its direction mode as it changes.
+        CSRGraph<Integer, IWeight> frozen = new CSRGraph<Integer, IWeight>(g);
+        BidirectionalDijkstra<Integer, IWeight> reused = new BidirectionalDijkstra<Integer, IWeight>(frozen);
+
+        // One way edges first, then the same edges as two way streets.
+        for (boolean directed : new boolean[] { true, false }) {
+            if (directed) { g.setDirectedGraph(); } else { g.setUndirectedGraph(); }
+            if (directed) { frozen.setDirectedGraph(); } else { frozen.setUndirectedGraph(); }
+            for (int i = 0; i < 50; i++) {
+                for (int k = 0; k < 50; k += 7) {
+                    List<Edge<IWeight>> expected;
+                    try {
+                        expected = ShortestPath(g, "v" + i, "v" + k);
+                    } catch (IGraph.NoSuchVertexException e) {
+                        continue; // unreachable
+                    }
+                    List<Edge<IWeight>> actual = ShortestPathBidirectional(g, "v" + i, "v" + k);
+                    assertEquals(findPathSum(expected), findPathSum(actual), EPSILON);
+                    assertEquals(findPathSum(expected), findPathSum(reused.ShortestPath(frozen.getVertexIndex("v" + i), frozen.getVertexIndex("v" + k))), EPSILON);
+                    // The edges must join up into a path from start to end.
+                    String at = "v" + i;
+                    for (Edge<IWeight> e : actual) {
+                        if (directed) {
+                            assertEquals(at, e.getVertexName1());
+                        }
+                        at = e.getVertexName1().equals(at) ? e.getVertexName2() : e.getVertexName1();
+                    }
+                    assertEquals("v" + k, at);
+                }
+            }
+        }
+    }
+
+    @Test public void ContractionHierarchyTest() throws IOException {
+        Graph<Integer, IWeight> g = randomGraph(7, 60, 240);
+
+        for (boolean directed : new boolean[] { true, false }) {
+            if (directed) { g.setDirectedGraph(); } else { g.setUndirectedGraph(); }
+            CSRGraph<Integer, IWeight> csr = new CSRGraph<Integer, IWeight>(g);
+            ContractionHierarchy<Integer, IWeight> built = new ContractionHierarchy<Integer, IWeight>(csr);
+
+            // A hierarchy read back from disk must answer exactly like the one it was saved from.
+            File f = File.createTempFile("hierarchy", ".ch");
+            f.deleteOnExit();
+            built.write(f.getPath());
+            ContractionHierarchy<Integer, IWeight> loaded = ContractionHierarchy.read(csr, f.getPath());
+
+            for (int i = 0; i < 60; i++) {
+                for (int k = 0; k < 60; k++) {
+                    List<Edge<IWeight>> expected;
+                    try {
+                        expected = ShortestPath(csr, "v" + i, "v" + k);
+                    } catch (IGraph.NoSuchVertexException e) {
+                        continue; // unreachable
+                    }
+                    for (ContractionHierarchy<Integer, IWeight> ch : Arrays.asList(built, loaded)) {
+                        List<Edge<IWeight>> actual = ch.ShortestPath(csr.getVertexIndex("v" + i), csr.getVertexIndex("v" + k));
+                        assertEquals(findPathSum(expected), findPathSum(actual), EPSILON);
+                        // Shortcuts must unpack into original edges joining up from start to end.
+                        String at = "v" + i;
+                        for (Edge<IWeight> e : actual) {
+                            assertTrue(directed ? e.getVertexName1().equals(at) : e.getVertexName1().equals(at) || e.getVertexName2().equals(at));
+                            at = e.getVertexName1().equals(at) ? e.getVertexName2() : e.getVertexName1();
+                        }
+                        assertEquals("v" + k, at);
+                    }
+                }
+            }
+
+            // A cut short file is reported rather than read past its end.
+            RandomAccessFile raf = new RandomAccessFile(f, "rw");
+            raf.setLength(raf.length() - 4);
+            raf.close();
+            try {
+                ContractionHierarchy.read(csr, f.getPath());
+                fail();
+            } catch (IOException e) {
+                // Expected, rather than a BufferUnderflowException.
+            }
+        }
+    }
+
+    @Test public void DistanceTableTest(){
+        Graph<Integer, IWeight> g = randomGraph(11, 40, 120);
+
+        // Repeated targets and a target that is also a source must work too.
+        List<String> sources = Arrays.asList("v0", "v3", "v17", "v25", "v39");
+        List<String> targets = Arrays.asList("v1", "v3", "v9", "v9", "v30");
+        for (boolean directed : new boolean[] { true, false }) {
+            if (directed) { g.setDirectedGraph(); } else { g.setUndirectedGraph(); }
+            CSRGraph<Integer, IWeight> csr = new CSRGraph<Integer, IWeight>(g);
+            int[] s = new int[sources.size()], t = new int[targets.size()];
+            for (int i = 0; i < s.length; i++) { s[i] = csr.getVertexIndex(sources.get(i)); }
+            for (int k = 0; k < t.length; k++) { t[k] = csr.getVertexIndex(targets.get(k)); }
+
+            double[][] table = DistanceTable(g, sources, targets);
+            double[][] fromHierarchy = new ContractionHierarchy<Integer, IWeight>(csr).DistanceTable(s, t);
+            // The parallel versions must give exactly the same tables.
+            ForkJoinPool pool = new ForkJoinPool(4);
+            assertTrue(Arrays.deepEquals(table, DistanceTable(csr, sources, targets, pool)));
+            assertTrue(Arrays.deepEquals(fromHierarchy, new ContractionHierarchy<Integer, IWeight>(csr).DistanceTable(s, t, pool)));
+            pool.shutdown();
+            for (int i = 0; i < sources.size(); i++) {
+                for (int k = 0; k < targets.size(); k++) {
+                    double expected;
+                    try {
+                        expected = findPathSum(ShortestPath(csr, sources.get(i), targets.get(k)));
+                    } catch (IGraph.NoSuchVertexException e) {
+                        expected = Double.MAX_VALUE;
+                    }
+                    assertEquals(expected, table[i][k], EPSILON);
+                    assertEquals(expected, fromHierarchy[i][k], EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test public void RouteCacheTest(){
+        Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+        g.addVertex("A");
+        g.addVertex("B");
+        g.addVertex("C");
+        g.addEdge("A", "B", new Weight(5));
+        g.addEdge("A", "C", new Weight(2));
+        g.addEdge("C", "B", new Weight(2));
+
+        RouteCache<List<Edge<IWeight>>> cache = new RouteCache<List<Edge<IWeight>>>(2);
+        List<Edge<IWeight>> first = ShortestPath(g, "A", "B", null, cache);
+        assertEquals(ShortestPath(g, "A", "B"), first);
+        assertTrue(first == ShortestPath(g, "A", "B", null, cache));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // A -> B was used last, so A -> C is the one evicted by C -> B.
+        ShortestPath(g, "A", "C", null, cache);
+        ShortestPath(g, "A", "B", null, cache);
+        ShortestPath(g, "C", "B", null, cache);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertTrue(cache.get("A", "B") != null);
+        assertTrue(cache.get("A", "C") == null);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertTrue(first != ShortestPath(g, "A", "B", null, cache));
+    }
+
+    /**
+     * A graph of n vertices "v0" .. "v(n-1)" with up to m random edges of weight 1 to 20,
+     * the same graph for the same seed. Loops and repeated edges are left out.
+     */
+    private Graph<Integer, IWeight> randomGraph(long seed, int n, int m) {
+        return randomGraph(seed, n, m, true);
+    }
+
+    /**
+     * Same as randomGraph(seed, n, m), but when antiparallel is false an edge is also left out
+     * if the reverse edge is already there, so the graph stays valid once made undirected.
+     */
+    private Graph<Integer, IWeight> randomGraph(long seed, int n, int m, boolean antiparallel) {
+        Random r = new Random(seed);
+        Graph<Integer, IWeight> g = new Graph<>();
+        for (int i = 0; i < n; i++) {
+            g.addVertex("v" + i);
+        }
+        for (int i = 0; i < m; i++) {
+            String a = "v" + r.nextInt(n), b = "v" + r.nextInt(n);
+            if (!a.equals(b) && g.getEdge(a, b) == null && (antiparallel || g.getEdge(b, a) == null)) {
+                g.addEdge(a, b, new Weight(1 + r.nextInt(20)));
+            }
+        }
+        return g;
+    }
+
     //Helper method that will find the path sum, and can be compared to the shortest path
     //sum to see if a path of the shortest length was found
     private static double findPathSum(List<cs311.hw8.graph.IGraph.Edge<IWeight>> list){
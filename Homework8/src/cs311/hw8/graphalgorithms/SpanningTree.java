@@ -0,0 +1,179 @@
+package cs311.hw8.graphalgorithms;
+
+import cs311.hw8.graph.CSRGraph;
+import cs311.hw8.graph.Graph;
+
+/**
+ * Compact minimum spanning tree over dense vertex ids 0..n-1, as built by
+ * GraphAlgorithms.PrimmDense(...) and GraphAlgorithms.PrimmSparse(...).
+ * The tree is stored as a parent array, with the weight of the edge to the parent and
+ * (when the tree was built from a CSRGraph) the index of that edge in the graph.
+ * Only vertices in the same component as the root are reached, the rest have no parent.
+ * This is the fast path for callers that only need the tree itself (such as Tour),
+ * use toGraph(...) where an IGraph is needed.
+ */
+public class SpanningTree {
+
+	/**
+	 * Vertex the tree was grown from.
+	 */
+	private final int root;
+
+	/**
+	 * Parent of each vertex in the tree, -1 for the root and for vertices that were not reached.
+	 */
+	private final int[] parent;
+
+	/**
+	 * Weight of the edge from each vertex to its parent.
+	 */
+	private final double[] weight;
+
+	/**
+	 * Index of the graph edge joining each vertex to its parent, -1 if not known.
+	 */
+	private final int[] edge;
+
+	/**
+	 * The arrays are used as is (not copied).
+	 * @param Root Vertex the tree was grown from.
+	 * @param Parent Parent of each vertex, -1 for the root and unreached vertices.
+	 * @param Weight Weight of the edge from each vertex to its parent.
+	 * @param Edge Index of the graph edge to each parent, null if the tree was not built from a graph.
+	 */
+	SpanningTree(int Root, int[] Parent, double[] Weight, int[] Edge) {
+		root = Root;
+		parent = Parent;
+		weight = Weight;
+		edge = Edge;
+	}
+
+	/**
+	 * @return The number of vertices (reached or not) this tree was built over.
+	 */
+	public int getVertexCount() {
+		return parent.length;
+	}
+
+	/**
+	 * @return The vertex the tree was grown from.
+	 */
+	public int getRoot() {
+		return root;
+	}
+
+	/**
+	 * @param v A vertex id.
+	 * @return The parent of v, -1 if v is the root or was not reached.
+	 */
+	public int getParent(int v) {
+		return parent[v];
+	}
+
+	/**
+	 * @param v A vertex id.
+	 * @return True if v is in the tree.
+	 */
+	public boolean isReached(int v) {
+		return v == root || parent[v] >= 0;
+	}
+
+	/**
+	 * @param v A vertex id, other than the root.
+	 * @return Weight of the tree edge between v and its parent.
+	 */
+	public double getWeight(int v) {
+		return weight[v];
+	}
+
+	/**
+	 * @return The sum of the weights of all tree edges.
+	 */
+	public double getTotalWeight() {
+		double sum = 0.0;
+		for (int v=0; v<parent.length; v++) {
+			if (parent[v] >= 0) {
+				sum += weight[v];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Preorder traversal of the tree from the root, visiting the children of each vertex
+	 * from the nearest (lightest edge) to the farthest.
+	 * @return The reached vertices in preorder.
+	 */
+	public int[] Preorder() {
+		int n = parent.length;
+
+		// Children of each vertex, grouped by a counting sort on the parent.
+		int[] offsets = new int[n + 1];
+		for (int v=0; v<n; v++) {
+			if (parent[v] >= 0) {
+				offsets[parent[v] + 1]++;
+			}
+		}
+		for (int v=0; v<n; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		int[] children = new int[offsets[n]];
+		int[] next = new int[n];
+		System.arraycopy(offsets, 0, next, 0, n);
+		for (int v=0; v<n; v++) {
+			if (parent[v] >= 0) {
+				children[next[parent[v]]++] = v;
+			}
+		}
+
+		// Farthest child first within each group, so that popping the stack gives the nearest first.
+		for (int v=0; v<n; v++) {
+			for (int i=offsets[v]+1; i<offsets[v + 1]; i++) {
+				int c = children[i];
+				int k = i - 1;
+				for (; k >= offsets[v] && weight[children[k]] < weight[c]; k--) {
+					children[k + 1] = children[k];
+				}
+				children[k + 1] = c;
+			}
+		}
+
+		int[] order = new int[children.length + 1];
+		int size = 0;
+		int[] stack = new int[children.length + 1];
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int v = stack[--top];
+			order[size++] = v;
+			for (int i=offsets[v]; i<offsets[v + 1]; i++) {
+				stack[top++] = children[i];
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Adapt this tree back into a graph, with the vertices and edge data of the graph it was built from.
+	 * Each tree edge is added once, from parent to child, and the result is undirected.
+	 * Vertices that were not reached are included without any edges.
+	 * @param g The graph this tree was built from with GraphAlgorithms.PrimmSparse(...) or PrimmTree(...).
+	 * @return The tree as an ordinary Graph, which may be changed like any other.
+	 */
+	public <V, E> Graph<V, E> toGraph(CSRGraph<V, E> g) {
+		if (edge == null) {
+			throw new IllegalStateException("SpanningTree was not built from a graph");
+		}
+
+		Graph<V, E> tree = new Graph<V, E>(false);
+		for (int v=0; v<parent.length; v++) {
+			tree.addVertex(g.getVertexName(v), g.getVertexData(v));
+		}
+		for (int v=0; v<parent.length; v++) {
+			if (parent[v] >= 0) {
+				tree.addEdge(g.getVertexName(parent[v]), g.getVertexName(v), g.getEdgeData(edge[v]));
+			}
+		}
+		return tree;
+	}
+}
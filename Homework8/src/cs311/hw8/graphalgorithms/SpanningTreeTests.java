@@ -0,0 +1,166 @@
+package cs311.hw8.graphalgorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cs311.hw8.graph.CSRGraph;
+import cs311.hw8.graph.Graph;
+import cs311.hw8.graph.IGraph;
+
+public class SpanningTreeTests {
+
+    private static double EPSILON = .0000007;
+
+    @Test public void DisjointSetTest(){
+        DisjointSet s = new DisjointSet(6);
+        assertEquals(6, s.getSetCount());
+        assertTrue(s.union(0, 1));
+        assertTrue(s.union(2, 3));
+        assertTrue(s.union(1, 3));
+        assertFalse(s.union(0, 2));
+        assertEquals(s.find(0), s.find(3));
+        assertTrue(s.find(4) != s.find(0));
+        assertEquals(3, s.getSetCount());
+    }
+
+    @Test public void KruscalMatchesSetsVersionTest(){
+        // Two separate components, so both versions must return the same spanning forest weight.
+        Random r = new Random(5);
+        Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+        for (int i = 0; i < 80; i++) {
+            g.addVertex("v" + i);
+        }
+        for (int i = 0; i < 400; i++) {
+            int a = r.nextInt(80), b = r.nextInt(80);
+            if (a != b && (a < 40) == (b < 40) && g.getEdge("v" + a, "v" + b) == null && g.getEdge("v" + b, "v" + a) == null) {
+                g.addEdge("v" + a, "v" + b, new Weight(1 + r.nextInt(30)));
+            }
+        }
+
+        double expected = treeWeight(ReferenceAlgorithms.KruscalSets(g));
+        IGraph<Integer, IWeight> mst = GraphAlgorithms.Kruscal(g);
+        assertEquals(expected, treeWeight(mst), EPSILON);
+        assertEquals(78, mst.getEdges().size());
+
+        CSRGraph<Integer, IWeight> csr = new CSRGraph<Integer, IWeight>(g);
+        assertEquals(expected, treeWeight(GraphAlgorithms.Kruscal(csr)), EPSILON);
+    }
+
+    @Test public void InputNotModifiedTest(){
+        // Only reachable from 'a' when the one way edges may be walked backwards.
+        Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+        for (String v : new String[] { "a", "b", "c", "d" }) {
+            g.addVertex(v);
+        }
+        g.addEdge("a", "b", new Weight(1));
+        g.addEdge("c", "b", new Weight(2));
+        g.addEdge("b", "d", new Weight(3));
+        g.addEdge("c", "d", new Weight(4));
+        CSRGraph<Integer, IWeight> csr = new CSRGraph<Integer, IWeight>(g);
+
+        for (IGraph<Integer, IWeight> input : Arrays.<IGraph<Integer, IWeight>>asList(g, csr)) {
+            assertEquals(6.0, treeWeight(GraphAlgorithms.Primm(input, "a")), EPSILON);
+            assertEquals(6.0, treeWeight(GraphAlgorithms.Kruscal(input)), EPSILON);
+            assertTrue(input.isDirectedGraph());
+        }
+    }
+
+    @Test public void PrimmMatchesKruscalTest(){
+        Random r = new Random(7);
+        for (int n : new int[] { 1, 2, 40 }) {
+            for (boolean complete : new boolean[] { false, true }) {
+                Graph<Integer, IWeight> g = new Graph<Integer, IWeight>();
+                double[][] w = new double[n][n];
+                for (int i = 0; i < n; i++) {
+                    g.addVertex("v" + i);
+                    Arrays.fill(w[i], Double.POSITIVE_INFINITY);
+                }
+                for (int i = 0; i < n; i++) {
+                    for (int k = 0; k < n; k++) {
+                        // A chain keeps the sparse graph connected.
+                        if (i != k && (complete || k == i + 1 || r.nextInt(n) < 2)) {
+                            w[i][k] = 1 + r.nextInt(100);
+                            g.addEdge("v" + i, "v" + k, new Weight(w[i][k]));
+                        }
+                    }
+                }
+                CSRGraph<Integer, IWeight> csr = new CSRGraph<Integer, IWeight>(g);
+                double expected = treeWeight(GraphAlgorithms.Kruscal(g));
+
+                SpanningTree sparse = GraphAlgorithms.PrimmSparse(csr, 0);
+                SpanningTree auto = GraphAlgorithms.PrimmTree(csr, 0);
+                assertEquals(expected, sparse.getTotalWeight(), EPSILON);
+                assertEquals(expected, auto.getTotalWeight(), EPSILON);
+                assertEquals(expected, GraphAlgorithms.PrimmDense(w, 0).getTotalWeight(), EPSILON);
+                assertEquals(n, sparse.Preorder().length);
+
+                IGraph<Integer, IWeight> mst = GraphAlgorithms.Primm(g, "v0");
+                assertEquals(expected, treeWeight(mst), EPSILON);
+                assertEquals(expected, treeWeight(auto.toGraph(csr)), EPSILON);
+                assertEquals(Math.max(n - 1, 0), mst.getEdges().size());
+                assertFalse(mst.isDirectedGraph());
+
+                // Built from a frozen graph the tree is still an ordinary graph that may be added to.
+                IGraph<Integer, IWeight> fromFrozen = GraphAlgorithms.Primm(csr, "v0");
+                assertEquals(expected, treeWeight(fromFrozen), EPSILON);
+                assertFalse(fromFrozen.isDirectedGraph());
+                fromFrozen.addVertex("extra");
+                fromFrozen.addEdge("v0", "extra", new Weight(1));
+            }
+        }
+    }
+
+    @Test public void PreorderTest(){
+        // 0 is the root, 1 and 2 hang off it (2 is nearer), 3 hangs off 1, 4 is not reached.
+        SpanningTree t = new SpanningTree(0, new int[] { -1, 0, 0, 1, -1 }, new double[] { 0, 5, 2, 1, 0 }, null);
+        assertTrue(Arrays.equals(new int[] { 0, 2, 1, 3 }, t.Preorder()));
+        assertEquals(8.0, t.getTotalWeight(), EPSILON);
+        assertFalse(t.isReached(4));
+    }
+
+    @Test public void SortByWeightTest(){
+        Random r = new Random(9);
+        double[] w = new double[1000];
+        for (int i = 0; i < w.length; i++) {
+            w[i] = r.nextInt(50); // plenty of ties
+        }
+        int[] order = GraphAlgorithms.SortByWeight(w);
+        boolean[] seen = new boolean[w.length];
+        for (int i = 0; i < order.length; i++) {
+            seen[order[i]] = true;
+            if (i > 0) {
+                assertTrue(w[order[i - 1]] <= w[order[i]]);
+            }
+        }
+        for (boolean b : seen) {
+            assertTrue(b);
+        }
+    }
+
+    private static double treeWeight(IGraph<Integer, IWeight> mst){
+        double sum = 0.0;
+        for (IGraph.Edge<IWeight> e : mst.getEdges()) {
+            sum += e.getEdgeData().getWeight();
+        }
+        return sum;
+    }
+
+    private class Weight implements IWeight {
+        private double w;
+
+        public Weight(double w){
+            this.w = w;
+        }
+
+        @Override
+        public double getWeight(){
+            return w;
+        }
+    }
+}
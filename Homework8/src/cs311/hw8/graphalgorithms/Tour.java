@@ -0,0 +1,521 @@
+package cs311.hw8.graphalgorithms;
+
+import java.util.Arrays;
+
+/**
+ * Construction and local search for traveling salesperson tours over a distance table.
+ * A tour is an int[] holding every index 0..n-1 of the table exactly once, starting at 0,
+ * and returning from the last entry back to 0. d[i][k] is the cost of going from i to k and
+ * need not equal d[k][i] (one way streets), every move below is evaluated in the direction
+ * the tour is actually driven.
+ */
+public class Tour {
+
+	/**
+	 * How the initial tour is built, before it is improved.
+	 */
+	public enum Construction {
+		/**
+		 * Preorder walk of a minimum spanning tree, the classic 2-approximation.
+		 */
+		MST_PREORDER,
+		/**
+		 * Repeatedly insert the stop nearest the tour where it lengthens the tour least.
+		 */
+		NEAREST_INSERTION
+	}
+
+	/**
+	 * Length of the candidate neighbor list kept for each stop.
+	 */
+	public static final int NEIGHBORS = 8;
+
+	/**
+	 * Longest run of stops Or-opt will try to move elsewhere.
+	 */
+	public static final int SEGMENT = 3;
+
+	/**
+	 * How many times Improve(d, tour) may take a stop off its queue, per stop. The tours built here
+	 * reach a local optimum long before that, the cap only bounds the work on unlucky tables.
+	 */
+	public static final int PASSES = 100;
+
+	/**
+	 * Smallest change in length that counts as an improvement, guards against
+	 * cycling on rounding errors.
+	 */
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * Build a tour with the given construction, then improve it with Improve(d, tour).
+	 * The result only depends on the table, not on how fast the machine is.
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @param start How the initial tour is built.
+	 * @return A tour starting at 0.
+	 */
+	public static int[] Solve(double[][] d, Construction start) {
+		int[] tour = start == Construction.NEAREST_INSERTION ? NearestInsertion(d) : MstPreorder(d);
+		Improve(d, tour);
+		return tour;
+	}
+
+	/**
+	 * Build a tour with the given construction, then improve it with Improve(d, tour, budget).
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @param start How the initial tour is built.
+	 * @param budget Nanoseconds the improvement may take at most, 0 to skip it.
+	 * @return A tour starting at 0.
+	 */
+	public static int[] Solve(double[][] d, Construction start, long budget) {
+		int[] tour = start == Construction.NEAREST_INSERTION ? NearestInsertion(d) : MstPreorder(d);
+		if (budget > 0) {
+			Improve(d, tour, budget);
+		}
+		return tour;
+	}
+
+	/**
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @param tour A tour.
+	 * @return The cost of driving the tour, including the way back to its start.
+	 */
+	public static double Length(double[][] d, int[] tour) {
+		double sum = 0.0;
+		for (int i=0; i<tour.length; i++) {
+			sum += d[tour[i]][tour[(i + 1) % tour.length]];
+		}
+		return sum;
+	}
+
+	/**
+	 * A tour only has a finite length if every stop can be driven to from the start and back.
+	 * Distance tables mark a missing path with Double.MAX_VALUE (or infinity).
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @return The stops that cannot be reached from stop 0 or cannot get back to it, in order, empty if there are none.
+	 */
+	public static int[] Unreachable(double[][] d) {
+		int[] ret = new int[d.length];
+		int size = 0;
+		for (int v=1; v<d.length; v++) {
+			if (!(d[0][v] < Double.MAX_VALUE) || !(d[v][0] < Double.MAX_VALUE)) {
+				ret[size++] = v;
+			}
+		}
+		return Arrays.copyOf(ret, size);
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Construction
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * Preorder walk of the minimum spanning tree grown from 0 (nearer children first).
+	 * Stops that cannot be reached at all are appended at the end.
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @return A tour starting at 0.
+	 */
+	public static int[] MstPreorder(double[][] d) {
+		int n = d.length;
+		SpanningTree mst = GraphAlgorithms.PrimmDense(d, 0);
+		int[] order = mst.Preorder();
+		int[] tour = Arrays.copyOf(order, n);
+		int size = order.length;
+		for (int v=0; v<n; v++) {
+			if (!mst.isReached(v)) {
+				tour[size++] = v;
+			}
+		}
+		return tour;
+	}
+
+	/**
+	 * Nearest insertion, O(n^2). Start from 0 alone, then repeatedly take the stop
+	 * closest to any stop already on the tour and insert it where it adds the least.
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @return A tour starting at 0.
+	 */
+	public static int[] NearestInsertion(double[][] d) {
+		int n = d.length;
+		int[] tour = new int[n];
+		if (n == 0) {
+			return tour;
+		}
+
+		// Closest distance from each stop not yet on the tour to the tour.
+		boolean[] added = new boolean[n];
+		double[] near = new double[n];
+		Arrays.fill(near, Double.POSITIVE_INFINITY);
+		int size = 0;
+		for (int next = 0; next >= 0; ) {
+			// Cheapest place to insert it, between tour[i-1] and tour[i].
+			int at = size;
+			double best = Double.POSITIVE_INFINITY;
+			for (int i=1; i<=size && size > 1; i++) {
+				int a = tour[i - 1], b = tour[i % size];
+				double cost = d[a][next] + d[next][b] - d[a][b];
+				if (cost < best) {
+					best = cost;
+					at = i;
+				}
+			}
+			System.arraycopy(tour, at, tour, at + 1, size - at);
+			tour[at] = next;
+			size++;
+			added[next] = true;
+
+			next = -1;
+			double closest = Double.POSITIVE_INFINITY;
+			int fallback = -1;
+			for (int v=0; v<n; v++) {
+				if (added[v]) { continue; }
+				fallback = v;
+				near[v] = Math.min(near[v], Math.min(d[tour[at]][v], d[v][tour[at]]));
+				if (near[v] < closest) {
+					closest = near[v];
+					next = v;
+				}
+			}
+			// Unreachable stops still have to go somewhere.
+			if (next < 0) {
+				next = fallback;
+			}
+		}
+		return tour;
+	}
+
+	/* ----------------------------------------------------------------------------
+	 * Improvement
+	 * ---------------------------------------------------------------------------- */
+
+	/**
+	 * Improve a tour in place with 2-opt and Or-opt moves until no move helps, or each stop has
+	 * been looked at PASSES times on average. The same table and tour always give the same result.
+	 * See Improve(d, tour, budget) for the moves tried.
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @param tour The tour to improve, it still starts at the same stop afterwards.
+	 * @return The length of the improved tour.
+	 */
+	public static double Improve(double[][] d, int[] tour) {
+		int n = tour.length;
+		if (n < 4) {
+			return Length(d, tour);
+		}
+		new Search(Infinite(d), tour).Run(Long.MAX_VALUE, (long)PASSES * n);
+		return Length(d, tour);
+	}
+
+	/**
+	 * Improve a tour in place with 2-opt and Or-opt moves until no move helps or the budget runs out.
+	 * Only moves that add an edge from a stop to one of its NEIGHBORS nearest stops are tried,
+	 * and a stop is only looked at again once one of its tour edges has changed (don't-look bits).
+	 * 2-opt replaces two edges by reversing the run between them, with the cost of driving the run
+	 * backwards taken from running sums along the tour. Or-opt moves a run of up to SEGMENT stops,
+	 * in the same direction, to between two other stops.
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @param tour The tour to improve, it still starts at the same stop afterwards.
+	 * @param budget Nanoseconds this may take at most.
+	 * @return The length of the improved tour.
+	 */
+	public static double Improve(double[][] d, int[] tour, long budget) {
+		int n = tour.length;
+		if (n < 4) {
+			return Length(d, tour);
+		}
+		new Search(Infinite(d), tour).Run(System.nanoTime() + budget, Long.MAX_VALUE);
+		return Length(d, tour);
+	}
+
+	/**
+	 * Tables mark a missing path with Double.MAX_VALUE, but MAX_VALUE plus a little is still MAX_VALUE,
+	 * so the running sums and move deltas would come out finite and wrong. As infinity, a move over a
+	 * missing path gives NaN (rejected), or minus infinity when it really does drop one.
+	 * @param d Distance table, d[i][k] is the cost of going from i to k.
+	 * @return d itself if it has no missing paths, otherwise a copy with each one set to infinity.
+	 */
+	private static double[][] Infinite(double[][] d) {
+		double[][] ret = d;
+		for (int i=0; i<d.length; i++) {
+			for (int k=0; k<d[i].length; k++) {
+				if (d[i][k] == Double.MAX_VALUE) {
+					if (ret == d) {
+						ret = new double[d.length][];
+						for (int r=0; r<d.length; r++) {
+							ret[r] = d[r].clone();
+						}
+					}
+					ret[i][k] = Double.POSITIVE_INFINITY;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * State of a single Improve(...) run.
+	 */
+	private static class Search {
+		private final double[][] d;
+		private final int[] tour;
+		private final int n;
+		private final int start;
+
+		/**
+		 * Position of each stop in the tour.
+		 */
+		private final int[] pos;
+
+		/**
+		 * Nearest stops to each stop, either direction, closest first.
+		 */
+		private final int[][] near;
+
+		/**
+		 * fwd[i] is the cost of driving tour[0] .. tour[i] forwards, bwd[i] of driving it backwards.
+		 */
+		private final double[] fwd, bwd;
+
+		/**
+		 * Stops whose don't-look bit is clear, kept as a ring buffer queue.
+		 */
+		private final int[] queue;
+		private final boolean[] queued;
+		private int head, count;
+
+		/**
+		 * Scratch space used when moving stops around.
+		 */
+		private final int[] scratch;
+
+		Search(double[][] D, int[] Tour) {
+			d = D;
+			tour = Tour;
+			n = tour.length;
+			start = tour[0];
+			pos = new int[n];
+			fwd = new double[n];
+			bwd = new double[n];
+			queue = new int[n];
+			queued = new boolean[n];
+			scratch = new int[n];
+			near = Neighbors();
+			Update();
+			for (int i=0; i<n; i++) {
+				Push(tour[i]);
+			}
+		}
+
+		/**
+		 * @return The NEIGHBORS nearest stops to each stop, measured either way.
+		 * Stops that cannot be reached either way are left out, so a list may be shorter.
+		 */
+		private int[][] Neighbors() {
+			int k = Math.min(NEIGHBORS, n - 1);
+			int[][] ret = new int[n][k];
+			double[] dist = new double[n];
+			for (int a=0; a<n; a++) {
+				// Partial insertion sort keeping only the k closest.
+				int size = 0;
+				for (int b=0; b<n; b++) {
+					if (a == b) { continue; }
+					double w = Math.min(d[a][b], d[b][a]);
+					if (!(w < Double.MAX_VALUE)) { continue; }
+					if (size == k && w >= dist[ret[a][k - 1]]) { continue; }
+					int i = size < k ? size++ : k - 1;
+					for (; i > 0 && dist[ret[a][i - 1]] > w; i--) {
+						ret[a][i] = ret[a][i - 1];
+					}
+					ret[a][i] = b;
+					dist[b] = w;
+				}
+				if (size < k) {
+					ret[a] = Arrays.copyOf(ret[a], size);
+				}
+			}
+			return ret;
+		}
+
+		/**
+		 * Recompute positions and running sums after the tour has changed.
+		 */
+		private void Update() {
+			for (int i=0; i<n; i++) {
+				pos[tour[i]] = i;
+			}
+			for (int i=1; i<n; i++) {
+				fwd[i] = fwd[i - 1] + d[tour[i - 1]][tour[i]];
+				bwd[i] = bwd[i - 1] + d[tour[i]][tour[i - 1]];
+			}
+		}
+
+		private void Push(int v) {
+			if (!queued[v]) {
+				queued[v] = true;
+				queue[(head + count++) % n] = v;
+			}
+		}
+
+		private int Next(int v) {
+			return tour[(pos[v] + 1) % n];
+		}
+
+		private int Prev(int v) {
+			return tour[(pos[v] + n - 1) % n];
+		}
+
+		/**
+		 * Cost of driving the run of the tour from position i to position j (inclusive),
+		 * wrapping past the end of the array if j < i.
+		 * @param forward True for the tour direction, False for driving it backwards.
+		 */
+		private double Run(int i, int j, boolean forward) {
+			double[] sum = forward ? fwd : bwd;
+			if (i <= j) {
+				return sum[j] - sum[i];
+			}
+			double wrap = forward ? d[tour[n - 1]][tour[0]] : d[tour[0]][tour[n - 1]];
+			return sum[n - 1] - sum[i] + wrap + sum[j];
+		}
+
+		/**
+		 * Keep trying moves around queued stops until the queue empties, time is up,
+		 * or 'steps' stops have been taken off the queue.
+		 * @param deadline System.nanoTime() to stop at, Long.MAX_VALUE for no time limit.
+		 * @param steps Most stops to take off the queue.
+		 */
+		void Run(long deadline, long steps) {
+			for (; count > 0 && steps > 0; steps--) {
+				if (deadline != Long.MAX_VALUE && System.nanoTime() >= deadline) {
+					break;
+				}
+				int a = queue[head];
+				head = (head + 1) % n;
+				count--;
+				queued[a] = false;
+
+				if (TwoOpt(a) || OrOpt(a)) {
+					Push(a);
+				}
+			}
+		}
+
+		/**
+		 * Try 2-opt moves adding an edge from a to one of its neighbors.
+		 * @return True if the tour was changed.
+		 */
+		private boolean TwoOpt(int a) {
+			for (int c : near[a]) {
+				// a -> Next(a) ... c -> Next(c)  becomes  a -> c ... Next(a) -> Next(c).
+				if (TryReverse(a, Next(a), c, Next(c))) {
+					return true;
+				}
+				// Prev(c) -> c ... Prev(a) -> a  becomes  Prev(c) -> Prev(a) ... c -> a.
+				if (TryReverse(Prev(c), c, Prev(a), a)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Replace the edges p -> s and e -> q by p -> e and s -> q, reversing the run s .. e,
+		 * if that makes the tour shorter.
+		 */
+		private boolean TryReverse(int p, int s, int e, int q) {
+			if (s == q || p == e || s == e) {
+				return false;
+			}
+			int i = pos[s], j = pos[e];
+			double delta = d[p][e] + d[s][q] - d[p][s] - d[e][q] + Run(i, j, false) - Run(i, j, true);
+			// Written so that NaN, from an unreachable stop making the sums infinite, is never taken as a gain.
+			if (!(delta < -EPSILON)) {
+				return false;
+			}
+
+			// Reversing the other side instead would be cheaper when the run is long, but it would
+			// also turn the whole tour around, which is not the same tour when d is not symmetric.
+			int len = (j - i + n) % n + 1;
+			for (int k=0; k < len / 2; k++) {
+				int lo = (i + k) % n, hi = (j - k + n) % n;
+				int t = tour[lo];
+				tour[lo] = tour[hi];
+				tour[hi] = t;
+			}
+			if (tour[0] != start) {
+				// The run wrapped past the start, rotate it back to the front.
+				int at = 0;
+				while (tour[at] != start) { at++; }
+				System.arraycopy(tour, 0, scratch, 0, n);
+				System.arraycopy(scratch, at, tour, 0, n - at);
+				System.arraycopy(scratch, 0, tour, n - at, at);
+			}
+			Update();
+			Push(p); Push(s); Push(e); Push(q);
+			return true;
+		}
+
+		/**
+		 * Try moving the runs of 1 .. SEGMENT stops starting at a to between one of
+		 * the neighbors of its ends and the stop before or after it.
+		 * @return True if the tour was changed.
+		 */
+		private boolean OrOpt(int a) {
+			for (int len=1; len<=SEGMENT && len < n - 2; len++) {
+				int i = pos[a], j = i + len - 1;
+				if (i == 0 || j >= n) {
+					break; // the start stays in front
+				}
+				int e = tour[j];
+				int p = Prev(a), q = Next(e);
+				double removed = d[p][a] + d[e][q] - d[p][q];
+
+				for (int c : near[a]) {
+					// c -> a ... e -> Next(c)
+					if (TryMove(i, j, c, Next(c), removed)) {
+						return true;
+					}
+				}
+				for (int c : near[e]) {
+					// Prev(c) -> a ... e -> c
+					if (TryMove(i, j, Prev(c), c, removed)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Move the run tour[i..j] to between x and y (x -> y an edge of the tour outside the run)
+		 * if that makes the tour shorter.
+		 */
+		private boolean TryMove(int i, int j, int x, int y, double removed) {
+			int px = pos[x], py = pos[y];
+			if ((px >= i - 1 && px <= j) || (py >= i && py <= j + 1)) {
+				return false;
+			}
+			int a = tour[i], e = tour[j];
+			double delta = d[x][a] + d[e][y] - d[x][y] - removed;
+			// Written so that NaN, from an unreachable stop making the sums infinite, is never taken as a gain.
+			if (!(delta < -EPSILON)) {
+				return false;
+			}
+
+			int len = j - i + 1;
+			int p = tour[i - 1], q = tour[(j + 1) % n];
+			System.arraycopy(tour, i, scratch, 0, len);
+			if (px > j) {
+				// Slide the stops after the run back over it, then drop the run in after x.
+				System.arraycopy(tour, j + 1, tour, i, px - j);
+				System.arraycopy(scratch, 0, tour, px - len + 1, len);
+			} else {
+				// Slide the stops after x forward over the run, then drop the run in after x.
+				System.arraycopy(tour, px + 1, tour, px + 1 + len, i - px - 1);
+				System.arraycopy(scratch, 0, tour, px + 1, len);
+			}
+			Update();
+			Push(p); Push(q); Push(a); Push(e); Push(x); Push(y);
+			return true;
+		}
+	}
+}
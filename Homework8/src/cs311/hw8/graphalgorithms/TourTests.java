@@ -0,0 +1,121 @@
+package cs311.hw8.graphalgorithms;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TourTests {
+
+    private static double EPSILON = .0000007;
+
+    @Test public void ConstructionsVisitEveryStopTest(){
+        for (int n : new int[] { 1, 2, 3, 50 }) {
+            double[][] d = randomTable(n, new Random(n));
+            for (Tour.Construction c : Tour.Construction.values()) {
+                for (long budget : new long[] { 0, 1000000000L }) {
+                    assertPermutation(Tour.Solve(d, c, budget));
+                }
+            }
+        }
+    }
+
+    @Test public void ImproveNeverLengthensTest(){
+        Random r = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            double[][] d = randomTable(5 + r.nextInt(120), r);
+            for (Tour.Construction c : Tour.Construction.values()) {
+                int[] tour = Tour.Solve(d, c, 0);
+                double before = Tour.Length(d, tour);
+                double after = Tour.Improve(d, tour, 1000000000L);
+                assertPermutation(tour);
+                assertEquals(Tour.Length(d, tour), after, EPSILON);
+                assertTrue(after <= before + EPSILON);
+            }
+        }
+    }
+
+    @Test public void ImproveUntanglesTest(){
+        // Stops on a circle, visited in a scrambled order, the best tour goes round the circle.
+        int n = 40;
+        double[][] d = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                double a = 2 * Math.PI * i / n, b = 2 * Math.PI * k / n;
+                d[i][k] = Math.hypot(Math.cos(a) - Math.cos(b), Math.sin(a) - Math.sin(b));
+            }
+        }
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) {
+            tour[i] = (i * 7) % n;
+        }
+        double best = n * d[0][1];
+        assertEquals(best, Tour.Improve(d, tour, 1000000000L), 1e-6);
+        assertEquals(0, tour[0]);
+    }
+
+    @Test public void UntimedSolveTest(){
+        // Without a time limit the same table always gives the same tour, the one a generous
+        // time budget settles on as well.
+        double[][] d = randomTable(300, new Random(300));
+        for (Tour.Construction c : Tour.Construction.values()) {
+            int[] tour = Tour.Solve(d, c);
+            assertPermutation(tour);
+            assertArrayEquals(tour, Tour.Solve(d, c));
+            assertArrayEquals(tour, Tour.Solve(d, c, 10000000000L));
+        }
+    }
+
+    @Test public void DisconnectedTableSettlesTest(){
+        // Stops 25 to 29 have no route to or from the others, as DistanceTable marks them.
+        int n = 30;
+        double[][] d = randomTable(n, new Random(30));
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                if ((i >= 25) != (k >= 25)) {
+                    d[i][k] = Double.MAX_VALUE;
+                }
+            }
+        }
+        assertArrayEquals(new int[] { 25, 26, 27, 28, 29 }, Tour.Unreachable(d));
+        assertEquals(0, Tour.Unreachable(randomTable(n, new Random(30))).length);
+
+        for (Tour.Construction c : Tour.Construction.values()) {
+            long start = System.nanoTime();
+            int[] tour = Tour.Solve(d, c, 2000000000L);
+            // No move may be taken for a gain it does not have, so the search runs out of moves long before the budget.
+            assertTrue(System.nanoTime() - start < 500000000L);
+            assertPermutation(tour);
+        }
+    }
+
+    /**
+     * Random points in the unit square, with some one way detours so the table is not symmetric.
+     */
+    private static double[][] randomTable(int n, Random r){
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = r.nextDouble();
+            y[i] = r.nextDouble();
+        }
+        double[][] d = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                d[i][k] = Math.hypot(x[i] - x[k], y[i] - y[k]) * (r.nextInt(4) == 0 ? 1.5 : 1.0);
+            }
+        }
+        return d;
+    }
+
+    private static void assertPermutation(int[] tour){
+        boolean[] seen = new boolean[tour.length];
+        for (int v : tour) {
+            assertTrue(!seen[v]);
+            seen[v] = true;
+        }
+        assertEquals(0, tour.length > 0 ? tour[0] : 0);
+    }
+}